@@ -1,6 +1,7 @@
 package ast;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -13,14 +14,14 @@ import coco.Scanner;
 import coco.SyntaxException;
 import coco.Variables;
 import ir.Graph;
+import ir.IrBuilder;
 import types.Type;
 import types.TypeChecker;
-import types.VoidType;
 import coco.Token.Kind;
 
 public class AST extends Node {
 	
-	private Variables varTable = new Variables(this);
+	private Variables varTable;
 	private List<Exception> error = new ArrayList<>();
 	
 	private VariableDeclarations varDeclarations = null;
@@ -30,7 +31,11 @@ public class AST extends Node {
 	private List<Graph> ir = null;
 
 	public AST(Scanner scanner) {
-		ReversibleScanner source = new ReversibleScanner(scanner);
+		this(new ReversibleScanner(scanner));
+	}
+	
+	public AST(ReversibleScanner source) {
+		varTable = new Variables(this, source.symbols());
 
 		if(!source.hasNext()) {
 			error.add(new SyntaxException("no program", 0, 0));
@@ -109,8 +114,8 @@ public class AST extends Node {
 		return 0;
 	}
 	
-	public Type getType() {
-		return new VoidType();
+	protected Type attributeType() {
+		return Type.VOID;
 	}
 	
 	public void checkType(TypeChecker reporter, Type returnType, String functionName) {
@@ -121,10 +126,15 @@ public class AST extends Node {
 	
 	public List<Graph> genIr() {
 		if(ir != null) return ir;
-		Set<String> globalVariables = getGlobals();
+		// Shared by every function, which may be optimized in parallel, so nothing may change it
+		Set<String> globalVariables = Collections.unmodifiableSet(getGlobals());
 		
 		List<Graph> graphs = functions == null ? new ArrayList<>() : functions.genIr(globalVariables);
-		if(action != null) graphs.add(new Graph("main", action.genCode(new ir.Variables(globalVariables)), new String[0], "()", globalVariables));
+		if(action != null) {
+			IrBuilder builder = new IrBuilder(new ir.Variables(globalVariables));
+			action.genCode(builder);
+			graphs.add(new Graph("main", builder.getInstructions(), new String[0], "()", builder.getVariables()));
+		}
 		ir = graphs;
 		return graphs;
 	}
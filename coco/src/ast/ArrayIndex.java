@@ -1,13 +1,16 @@
 package ast;
 
-import java.util.ArrayList;
 import java.util.List;
 
 import coco.Location;
 import coco.Token;
+import ir.ArrayElement;
 import ir.InstructType;
 import ir.Instruction;
-import ir.ValueCode;
+import ir.IntConst;
+import ir.IrBuilder;
+import ir.Operand;
+import ir.Temp;
 import types.ArrayAccessException;
 import types.ErrorType;
 import types.IntType;
@@ -57,18 +60,16 @@ public class ArrayIndex extends NamedNode {
 		item.checkFunctionCalls(parent);
 	}
 	
-	public Type getType() {
-		Type type = item.getType();
+	protected Type attributeType() {
+		Type type;
 		try {
-			type.decrementDimensions();
+			type = item.getType().dereference();
 		} catch (ArrayAccessException e) {
-			type = new ErrorType();
-			((ErrorType) type).setError(start, "Cannot dereference " + type);
+			type = new ErrorType(start, "Cannot dereference " + item.getType());
 		}
 		
 		if(!IntType.is(index.getType())) {
-			ErrorType error = new ErrorType();
-			error.setError(index, "Cannot index " + item + " with " + index.getType() + ".");
+			ErrorType error = new ErrorType(index, "Cannot index " + item + " with " + index.getType() + ".");
 			type = error;
 		} else {
 			/* if(index instanceof Literal) {
@@ -79,8 +80,7 @@ public class ArrayIndex extends NamedNode {
 				if(index >= indexSize) outOfBounds = true;
 				
 				if(outOfBounds) {
-					ErrorType error = new ErrorType();
-					error.setError(location, "Array Index Out of Bounds : " + index + " for array " + item);
+					ErrorType error = new ErrorType(location, "Array Index Out of Bounds : " + index + " for array " + item);
 					type = error;
 				}
 			} */
@@ -98,29 +98,26 @@ public class ArrayIndex extends NamedNode {
 		item.checkType(reporter, returnType, functionName);
 	}
 	
-	public ValueCode genCode(ir.Variables variables) {
-		List<Instruction> instructions = new ArrayList<>();
-		String begin = variables.getTemp();
-		instructions.add(new Instruction(begin, "0"));
-		ValueCode code = genCode(variables, begin);
-		instructions.addAll(code.instructions);
-		String location = variables.getTemp();
-		instructions.add(new Instruction(location, code.returnValue, InstructType.MUL, "4"));
-		return new ValueCode(instructions, getName().lexeme() + "[" + location + "]");
+	public Operand genCode(IrBuilder builder) {
+		Temp begin = builder.getTemp();
+		builder.add(new Instruction(begin, IntConst.ZERO));
+		Operand offset = genCode(builder, begin);
+		Temp location = builder.getTemp();
+		builder.add(new Instruction(location, offset, InstructType.MUL, IntConst.of(4)));
+		return ArrayElement.of(builder.getVar(getName().lexeme()), location);
 	}
 	
-	public ValueCode genCode(ir.Variables variables, String input) {
-		List<Instruction> instructions = new ArrayList<>();
-		ValueCode indexCode = index.genCode(variables);
-		String indexCalc = variables.getTemp();
-		instructions.add(new Instruction(indexCalc, input, InstructType.ADD, indexCode.returnValue));
-		instructions.add(new Instruction(indexCalc, indexCalc, InstructType.MUL, indexSize));
+	public Operand genCode(IrBuilder builder, Operand input) {
+		Operand indexValue = index.genCode(builder);
+		Temp indexCalc = builder.getTemp();
+		builder.add(new Instruction(indexCalc, input, InstructType.ADD, indexValue));
+		// size isn't given for array parameters
+		Operand size = (indexSize == null) ? null : IntConst.of(Integer.parseInt(indexSize));
+		builder.add(new Instruction(indexCalc, indexCalc, InstructType.MUL, size));
 		if(item instanceof ArrayIndex) {
-			ValueCode fullIndex = ((ArrayIndex)item).genCode(variables, indexCalc);
-			instructions.addAll(fullIndex.instructions);
-			return new ValueCode(instructions, fullIndex.returnValue);
+			return ((ArrayIndex)item).genCode(builder, indexCalc);
 		} else {
-			return new ValueCode(instructions, indexCalc);
+			return indexCalc;
 		}
 	}
 	
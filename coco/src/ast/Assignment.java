@@ -1,8 +1,5 @@
 package ast;
 
-import java.util.ArrayList;
-import java.util.List;
-
 import coco.ErrorChecker;
 import coco.NonexistantVariableException;
 import coco.ReversibleScanner;
@@ -11,7 +8,8 @@ import coco.Token;
 import coco.Variables;
 import ir.InstructType;
 import ir.Instruction;
-import ir.ValueCode;
+import ir.IrBuilder;
+import ir.Operand;
 import types.ErrorType;
 import types.FloatType;
 import types.IntType;
@@ -53,7 +51,7 @@ public class Assignment extends CheckableNode {
 		}
 	}
 	
-	public Type getType() {
+	protected Type attributeType() {
 		return assignee.getType();
 	}
 	
@@ -62,14 +60,12 @@ public class Assignment extends CheckableNode {
 		
 		if(operand != null) {
 			if(!assignee.getType().equals(operand.getType())) {
-				ErrorType error = new ErrorType();
-				error.setError(assignee, "Cannot set " + operand.getType() + " to " + assignee.getType());
+				ErrorType error = new ErrorType(assignee, "Cannot set " + operand.getType() + " to " + assignee.getType());
 				reporter.reportError(error);
 			}
 		} else {
 			if(!IntType.is(assignee.getType()) && !FloatType.is(assignee.getType())) {
-				ErrorType error = new ErrorType();
-				error.setError(assignee, "Cannot increment " + assignee.getType());
+				ErrorType error = new ErrorType(assignee, "Cannot increment " + assignee.getType());
 				reporter.reportError(error);
 			}
 		}
@@ -78,29 +74,26 @@ public class Assignment extends CheckableNode {
 		if(operand != null) operand.checkType(reporter, returnType, functionName);
 	}
 	
-	public ValueCode genCode(ir.Variables variables) {
-		List<Instruction> instructions = new ArrayList<>();
-		ValueCode operandCode = operand.genCode(variables);
-		ValueCode assigneeCode = assignee.genCode(variables);
-		instructions.addAll(operandCode.instructions);
-		instructions.addAll(assigneeCode.instructions);
+	public Operand genCode(IrBuilder builder) {
+		Operand operandValue = operand.genCode(builder);
+		Operand assigneeValue = assignee.genCode(builder);
 		switch(operation.kind()) {
 			case ASSIGN: 
 			case UNI_INC: 
 			case UNI_DEC: 
-				instructions.add(new Instruction(assigneeCode.returnValue, operandCode.returnValue));
+				builder.add(new Instruction(assigneeValue, operandValue));
 				break;
 			case ADD_ASSIGN: 
-				instructions.add(new Instruction(assigneeCode.returnValue, assigneeCode.returnValue, InstructType.ADD, operandCode.returnValue));
+				builder.add(new Instruction(assigneeValue, assigneeValue, InstructType.ADD, operandValue));
 				break;
 			case SUB_ASSIGN: 
-				instructions.add(new Instruction(assigneeCode.returnValue, assigneeCode.returnValue, InstructType.SUB, operandCode.returnValue));
+				builder.add(new Instruction(assigneeValue, assigneeValue, InstructType.SUB, operandValue));
 				break;
 			case MUL_ASSIGN: 
-				instructions.add(new Instruction(assigneeCode.returnValue, assigneeCode.returnValue, InstructType.MUL, operandCode.returnValue));
+				builder.add(new Instruction(assigneeValue, assigneeValue, InstructType.MUL, operandValue));
 				break;
 			case DIV_ASSIGN: 
-				instructions.add(new Instruction(assigneeCode.returnValue, assigneeCode.returnValue, InstructType.DIV, operandCode.returnValue));
+				builder.add(new Instruction(assigneeValue, assigneeValue, InstructType.DIV, operandValue));
 				break;
 			case MOD_ASSIGN: 
 				/*String factor = variables.getTemp();
@@ -108,7 +101,7 @@ public class Assignment extends CheckableNode {
 				String goesAway = variables.getTemp();
 				instructions.add(new Instruction(goesAway, operandCode.returnValue, InstructType.MUL, factor));
 				instructions.add(new Instruction(assigneeCode.returnValue, assigneeCode.returnValue, InstructType.SUB, goesAway));*/
-				instructions.add(new Instruction(assigneeCode.returnValue, assigneeCode.returnValue, InstructType.MOD, operandCode.returnValue));
+				builder.add(new Instruction(assigneeValue, assigneeValue, InstructType.MOD, operandValue));
 				break;
 			case POW_ASSIGN: 
 				/* String times = variables.getTemp();
@@ -117,12 +110,12 @@ public class Assignment extends CheckableNode {
 				instructions.add(new Instruction(original, assigneeCode.returnValue));
 				instructions.add(new Instruction(assigneeCode.returnValue, 1));
 				instructions.add(new Instruction(assigneeCode.returnValue, assigneeCode.returnValue, InstructType.MUL, original));*/
-				instructions.add(new Instruction(assigneeCode.returnValue, assigneeCode.returnValue, InstructType.POW, operandCode.returnValue));
+				builder.add(new Instruction(assigneeValue, assigneeValue, InstructType.POW, operandValue));
 				break;
 			default: 
 				throw new RuntimeException("Unexpected Assignment Operation Encountered");
 		}
-		return new ValueCode(instructions, assigneeCode.returnValue);
+		return assigneeValue;
 	}
 	
 	public String printPreOrder(int level) {
@@ -10,19 +10,20 @@ import coco.SyntaxException;
 import coco.Token;
 import coco.Token.Kind;
 import coco.Variables;
+import types.ArrayAccessException;
 import types.Type;
 import types.TypeChecker;
 
 public class Designator extends Node {
 
 	private Token name;
-	private String type;
+	private Type type;
 	private List<Relation> indicies = new ArrayList<>();
 	private List<Token> starts = new ArrayList<>();
 	
 	public Designator(ReversibleScanner source, Variables variables) throws SyntaxException, NonexistantVariableException {
 		name = ErrorChecker.mustBe(Kind.IDENT, "IDENT", source);
-		type = variables.get(name).toArray(new String[0])[0];
+		type = variables.getType(name);
 		while(true) {
 			try {
 				ErrorChecker.mustBe(Kind.OPEN_BRACKET, "OPEN_BRACKET", source);
@@ -38,10 +39,15 @@ public class Designator extends Node {
 	public Node genAST() {
 		Variable var = new Variable(name, type);
 		if(indicies.size() > 0) {
-			String[] indexCuts = type.split("\\[");
-			String[] indexSizes = new String[indexCuts.length - 1];
-			for(int i=1; i<indexCuts.length; ++i) {
-				indexSizes[i - 1] = indexCuts[i].substring(0, indexCuts[1].length() - 1);
+			String[] indexSizes = new String[type.numDimensions()];
+			Type dimension = type;
+			for(int i=0; i<indexSizes.length; ++i) {
+				indexSizes[i] = dimension.size();
+				try {
+					dimension = dimension.dereference();
+				} catch (ArrayAccessException e) {
+					throw new RuntimeException("Array type ran out of dimensions", e);
+				}
 			}
 			return new ArrayIndex(var, 0, indicies, starts, indexSizes);
 		} else {
@@ -61,8 +67,8 @@ public class Designator extends Node {
 		return name;
 	}
 	
-	public Type getType() {
-		return Type.fromString(type, name);
+	protected Type attributeType() {
+		return type;
 	}
 	
 	public void checkType(TypeChecker reporter, Type returnType, String functionName) {
@@ -74,7 +80,7 @@ public class Designator extends Node {
 		addLevel(level, print);
 		print.append(name.lexeme());
 		print.append(":");
-		print.append(type);
+		print.append(type.name());
 		print.append("\n");
 		for(Relation index: indicies) {
 			addLevel(level+1, print);
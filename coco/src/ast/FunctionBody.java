@@ -8,7 +8,8 @@ import coco.SyntaxException;
 import coco.Token;
 import coco.Token.Kind;
 import coco.Variables;
-import ir.ValueCode;
+import ir.IrBuilder;
+import ir.Operand;
 import types.Type;
 import types.TypeChecker;
 
@@ -39,7 +40,7 @@ public class FunctionBody extends Node {
 		statements.checkFunctionCalls(parent);
 	}
 	
-	public Type getType() {
+	protected Type attributeType() {
 		return statements.getType();
 	}
 	
@@ -47,8 +48,8 @@ public class FunctionBody extends Node {
 		statements.checkType(reporter, returnType, functionName);
 	}
 	
-	public ValueCode genCode(ir.Variables variables) {
-		return statements.genCode(variables);
+	public Operand genCode(IrBuilder builder) {
+		return statements.genCode(builder);
 	}
 	
 	public String printPreOrder(int level) {
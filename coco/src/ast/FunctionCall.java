@@ -1,8 +1,8 @@
 package ast;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
-import java.util.Set;
 
 import coco.ErrorChecker;
 import coco.NonexistantVariableException;
@@ -11,11 +11,15 @@ import coco.SyntaxException;
 import coco.Token;
 import coco.Variables;
 import ir.Instruction;
-import ir.ValueCode;
+import ir.IrBuilder;
+import ir.Operand;
+import ir.Temp;
 import types.ErrorType;
+import types.Signature;
 import types.Type;
 import types.TypeChecker;
 import types.TypeList;
+import types.VoidType;
 import coco.Token.Kind;
 
 public class FunctionCall extends CheckableNode {
@@ -23,7 +27,8 @@ public class FunctionCall extends CheckableNode {
 	private Token function;
 	private List<Node> parameters = new ArrayList<>();
 	private Variables variables;
-	private Set<String> types;
+	private Collection<Signature> types;
+	private Signature target;	// overload the arguments resolve to, once types are attributed
 	
 	private Token call;
 
@@ -64,24 +69,19 @@ public class FunctionCall extends CheckableNode {
 	}
 	
 	public void checkFunctionCalls(AST parent) {
-		try {
-			types = variables.get(function);
-		} catch(NonexistantVariableException e) {
-			parent.reportError(e);
-		}
+		types = variables.getFunctions(function);
 		
 		for(Node parameter: parameters) {
 			if(parameter instanceof CheckableNode) ((CheckableNode) parameter).checkFunctionCalls(parent);
 		}
 	}
 	
-	public Type getType() {
+	protected Type attributeType() {
 		if(types != null) {
-			String returnType = getReturnType();
-			if(returnType != null) return Type.fromString(returnType, this);
+			target = resolve();
+			if(target != null) return target.returnType();
 		}
-		ErrorType error = new ErrorType();
-		error.setError(this, "Call with args " + TypeList.fromList(parameters) + " matches no function signature.");
+		ErrorType error = new ErrorType(this, "Call with args " + TypeList.fromList(parameters) + " matches no function signature.");
 		return error;
 	}
 	
@@ -96,45 +96,21 @@ public class FunctionCall extends CheckableNode {
 		}
 	}
 	
-	public ValueCode genCode(ir.Variables variables) {
-		List<Instruction> instructions = new ArrayList<>();
-		String result = variables.getTemp();
-		List<String> params = new ArrayList<>();
-		for(Node param: parameters) {
-			ValueCode paramCode = param.genCode(variables);
-			instructions.addAll(paramCode.instructions);
-			params.add(paramCode.returnValue);
-		}
-		
-		String call = "call " + function.lexeme() + "(";
-		boolean first = true;
-		for(String param: params) {
-			if(first) {
-				first = false;
-			} else {
-				call += ", ";
-			}
-			call += param;
-		}
-		call += ")";
-		
-		StringBuilder types = new StringBuilder();
-		types.append("(");
-		if(parameters.size() > 0) {
-			types.append(parameters.get(0).getType());
-		}
-		for(int param=1; param<parameters.size(); ++param) {
-			types.append(",");
-			types.append(parameters.get(param).getType());
+	public Operand genCode(IrBuilder builder) {
+		Temp result = builder.getTemp();
+		Operand[] arguments = new Operand[parameters.size()];
+		for(int param=0; param<arguments.length; ++param) {
+			arguments[param] = parameters.get(param).genCode(builder);
 		}
-		types.append(")");
 		
-		if(getReturnType().equals("void")) {
-			instructions.add(new Instruction(call, types.toString()));
-			return new ValueCode(instructions, call);
+		boolean isVoid = VoidType.is(getType());
+		String types = target.parameters().name();
+		if(isVoid) {
+			builder.add(new Instruction(function.lexeme(), arguments, types));
+			return null;
 		}
-		instructions.add(new Instruction(result, call, types.toString()));
-		return new ValueCode(instructions, result);
+		builder.add(new Instruction(result, function.lexeme(), arguments, types));
+		return result;
 	}
 	
 	public String printPreOrder(int level) {
@@ -144,7 +120,7 @@ public class FunctionCall extends CheckableNode {
 		print.append(function.lexeme());
 		print.append(":");
 		boolean first = true;
-		for(String type: types) {
+		for(Signature type: types) {
 			if(first) {
 				first = false;
 			} else {
@@ -154,6 +130,9 @@ public class FunctionCall extends CheckableNode {
 			}
 			print.append(type);
 		}
+		if(types.isEmpty()) {
+			print.append(variables.getType(function, true).name());
+		}
 		print.append("]\n");
 		addLevel(level+1, print);
 		print.append("ArgumentList\n");
@@ -163,22 +142,17 @@ public class FunctionCall extends CheckableNode {
 		return print.toString();
 	}
 	
-	private String getReturnType() {
-		for(String type: types) {
-			String[] typeParts = type.split("->");
-			if(typeParts.length < 2) continue;
-			String paramTypes = typeParts[0];
-			String returnType = typeParts[1];
-			TypeList possibleParameters = TypeList.fromString(paramTypes, call);
-			boolean correct = possibleParameters.size() == parameters.size();
-			for(int p=0; p<parameters.size()&&correct; ++p) {
-				correct &= parameters.get(p).getType().equals(possibleParameters.get(p));
-			}
-			if(correct) {
-				return returnType;
+	// Looked up by the canonical list of argument types rather than tried against each overload
+	private Signature resolve() {
+		List<Type> arguments = new ArrayList<>();
+		for(Node parameter: parameters) {
+			Type argument = parameter.getType();
+			if(ErrorType.is(argument)) {
+				return null;
 			}
+			arguments.add(argument);
 		}
-		return null;
+		return variables.resolve(function, TypeList.of(arguments));
 	}
 	
 }
@@ -7,8 +7,10 @@ import coco.ReversibleScanner;
 import coco.SyntaxException;
 import coco.Token;
 import coco.Variables;
-import ir.ValueCode;
+import ir.IrBuilder;
+import ir.Operand;
 import coco.Token.Kind;
+import types.Signature;
 import types.Type;
 import types.TypeChecker;
 
@@ -30,7 +32,7 @@ public class FunctionDeclaration extends CheckableNode {
 		if((type.kind() != Kind.VOID) && (type.kind() != Kind.BOOL) && (type.kind() != Kind.INT) && (type.kind() != Kind.FLOAT)) {
 			throw new SyntaxException("Expected void or type but got " + type.kind() + ".", type);
 		}
-		variables.add(name, parameters + "->" + type.lexeme());
+		variables.add(name, Signature.of(parameters.getTypeList(), Type.fromToken(type)));
 		action = new FunctionBody(source, variables);
 		variables.exitLevel();
 	}
@@ -55,18 +57,17 @@ public class FunctionDeclaration extends CheckableNode {
 		action.checkFunctionCalls(parent);
 	}
 	
-	public Type getType() {
+	protected Type attributeType() {
 		return Type.fromToken(type);
 	}
 	
 	public void checkType(TypeChecker reporter, Type returnType, String functionName) {
-		Type definedType = Type.fromToken(this.type);
-		action.checkType(reporter, definedType, name.lexeme());
+		action.checkType(reporter, getType(), name.lexeme());
 	}
 	
-	public ValueCode genCode(ir.Variables variables) {
-		variables.add(parameters.getNames());
-		return action.genCode(variables);
+	public Operand genCode(IrBuilder builder) {
+		builder.getVariables().add(parameters.getNames());
+		return action.genCode(builder);
 	}
 	
 	public String printPreOrder(int level) {
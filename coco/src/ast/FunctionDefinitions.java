@@ -13,10 +13,10 @@ import coco.SyntaxException;
 import coco.Token;
 import coco.Variables;
 import ir.Graph;
+import ir.IrBuilder;
 import coco.Token.Kind;
 import types.Type;
 import types.TypeChecker;
-import types.VoidType;
 
 public class FunctionDefinitions extends CheckableNode {
 	
@@ -50,8 +50,8 @@ public class FunctionDefinitions extends CheckableNode {
 		}
 	}
 	
-	public Type getType() {
-		return new VoidType();
+	protected Type attributeType() {
+		return Type.VOID;
 	}
 	
 	public void checkType(TypeChecker reporter, Type returnType, String functionName) {
@@ -63,10 +63,11 @@ public class FunctionDefinitions extends CheckableNode {
 	public List<Graph> genIr(Set<String> globalVariables) {
 		List<Graph> graphs = new ArrayList<>();
 		for(FunctionDeclaration function: functions) {
-			ir.Variables variables = new ir.Variables(globalVariables);
+			IrBuilder builder = new IrBuilder(new ir.Variables(globalVariables));
+			function.genCode(builder);
 			String[] parameters = function.getParameters().getNames().toArray(new String[0]);
 			String type = function.getParameters().getTypes();
-			graphs.add(new Graph(function.getName().lexeme(), function.genCode(variables), parameters, type, globalVariables));
+			graphs.add(new Graph(function.getName().lexeme(), builder.getInstructions(), parameters, type, builder.getVariables()));
 		}
 		return graphs;
 	}
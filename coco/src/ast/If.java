@@ -1,8 +1,5 @@
 package ast;
 
-import java.util.ArrayList;
-import java.util.List;
-
 import coco.ErrorChecker;
 import coco.NonexistantVariableException;
 import coco.ReversibleScanner;
@@ -12,7 +9,9 @@ import coco.Token.Kind;
 import coco.Variables;
 import ir.InstructType;
 import ir.Instruction;
-import ir.ValueCode;
+import ir.IrBuilder;
+import ir.Operand;
+import ir.Temp;
 import types.BoolType;
 import types.ErrorType;
 import types.Type;
@@ -68,16 +67,15 @@ public class If extends CheckableNode {
 		}
 	}
 	
-	public Type getType() {
+	protected Type attributeType() {
 		if(!VoidType.is(action.getType())) return action.getType();
 		if(!VoidType.is(inaction.getType())) return inaction.getType();
-		return new VoidType();
+		return Type.VOID;
 	}
 	
 	public void checkType(TypeChecker reporter, Type returnType, String functionName) {
 		if(!BoolType.is(decision.getType())) {
-			ErrorType error = new ErrorType();
-			error.setError(this, "IfStat requires bool condition not " + decision.getType() + ".");
+			ErrorType error = new ErrorType(this, "IfStat requires bool condition not " + decision.getType() + ".");
 			reporter.reportError(error);
 		}
 		
@@ -86,31 +84,27 @@ public class If extends CheckableNode {
 		if(inaction != null) inaction.checkType(reporter, returnType, functionName);
 	}
 	
-	public ValueCode genCode(ir.Variables variables) {
-		List<Instruction> instructions = new ArrayList<>();
-		ValueCode decisionCode = decision.genCode(variables);
-		instructions.addAll(decisionCode.instructions);
-		String jumpDecision = variables.getTemp();
-		instructions.add(new Instruction(jumpDecision, InstructType.NOT, decisionCode.returnValue));
-		
-		ValueCode actionCode = action.genCode(variables);
-		ValueCode inactionCode = inaction == null ? null : inaction.genCode(variables);
+	public Operand genCode(IrBuilder builder) {
+		Operand decisionValue = decision.genCode(builder);
+		Temp jumpDecision = builder.getTemp();
+		builder.add(new Instruction(jumpDecision, InstructType.NOT, decisionValue));
 		
 		Instruction afterAction = new Instruction();
-		instructions.add(new Instruction(InstructType.JUMP, afterAction, jumpDecision));
-		instructions.addAll(actionCode.instructions);
+		builder.add(new Instruction(InstructType.JUMP, afterAction, jumpDecision));
+		action.genCode(builder);
 
-		if(inactionCode != null && inactionCode.instructions.size() > 0) {
+		// statements always generate code, so an else is never empty
+		if(inaction != null) {
 			Instruction afterIf = new Instruction();
-			instructions.add(new Instruction(InstructType.JUMP, afterIf));
-			instructions.add(afterAction);
-			instructions.addAll(inactionCode.instructions);
-			instructions.add(afterIf);
+			builder.add(new Instruction(InstructType.JUMP, afterIf));
+			builder.add(afterAction);
+			inaction.genCode(builder);
+			builder.add(afterIf);
 		} else {
-			instructions.add(afterAction);
+			builder.add(afterAction);
 		}
 
-		return new ValueCode(instructions, decisionCode.returnValue);
+		return decisionValue;
 	}
 	
 	public String printPreOrder(int level) {
@@ -1,10 +1,12 @@
 package ast;
 
-import java.util.ArrayList;
-
 import coco.Token;
 import coco.Token.Kind;
-import ir.ValueCode;
+import ir.BoolConst;
+import ir.FloatConst;
+import ir.IntConst;
+import ir.IrBuilder;
+import ir.Operand;
 import types.Type;
 import types.TypeChecker;
 
@@ -26,14 +28,23 @@ public class Literal extends CheckableNode {
 	
 	public void checkFunctionCalls(AST parent) { }
 	
-	public Type getType() {
+	protected Type attributeType() {
 		return Type.fromToken(literal);
 	}
 	
 	public void checkType(TypeChecker reporter, Type returnType, String functionName) { }
 	
-	public ValueCode genCode(ir.Variables variables) {
-		return new ValueCode(new ArrayList<>(), literal.lexeme());
+	public Operand genCode(IrBuilder builder) {
+		switch(literal.kind()) {
+			case TRUE: 
+				return BoolConst.TRUE;
+			case FALSE: 
+				return BoolConst.FALSE;
+			case FLOAT_VAL: 
+				return FloatConst.of(literal.lexeme());
+			default: 
+				return IntConst.of(Integer.parseInt(literal.lexeme()));
+		}
 	}
 	
 	@Override
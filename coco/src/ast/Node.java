@@ -1,14 +1,15 @@
 package ast;
 
-import java.util.ArrayList;
-
 import coco.Location;
-import ir.ValueCode;
+import ir.IrBuilder;
+import ir.Operand;
 import types.Type;
 import types.TypeChecker;
 
 public abstract class Node implements Location {
 	
+	private Type type;	// attributed on first use, never changes after
+	
 	public Node genAST() {
 		return this;
 	}
@@ -24,14 +25,22 @@ public abstract class Node implements Location {
 		}
 	}
 	
-	public ValueCode genCode(ir.Variables variables) {
-		return new ValueCode(new ArrayList<>(), "-invalid");
+	// Appends the code computing this node to builder, returning the operand its value is in
+	public Operand genCode(IrBuilder builder) {
+		return null;
 	}
 	
 	abstract public int lineNumber();
 	abstract public int charPosition();
 	
-	abstract public Type getType();
+	// Children are attributed before their parent, each node only once
+	public final Type getType() {
+		if(type == null) {
+			type = attributeType();
+		}
+		return type;
+	}
+	abstract protected Type attributeType();
 	abstract public void checkType(TypeChecker reporter, Type returnType, String functionName);
 	
 }
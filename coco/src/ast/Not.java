@@ -40,14 +40,13 @@ public class Not extends CheckableNode {
 		return new Operation(null, relation.genAST(), "LogicalNot", not);
 	}
 	
-	public Type getType() {
-		return new BoolType();
+	protected Type attributeType() {
+		return Type.BOOL;
 	}
 	
 	public void checkType(TypeChecker reporter, Type returnType, String functionName) {
 		if(!BoolType.is(relation.getType())) {
-			ErrorType error = new ErrorType();
-			error.setError(relation, "Value must be BOOL to apply not.");
+			ErrorType error = new ErrorType(relation, "Value must be BOOL to apply not.");
 			reporter.reportError(error);
 		}
 	}
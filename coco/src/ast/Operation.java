@@ -1,13 +1,12 @@
 package ast;
 
-import java.util.ArrayList;
-import java.util.List;
-
 import coco.Token;
 import coco.Token.Kind;
 import ir.InstructType;
 import ir.Instruction;
-import ir.ValueCode;
+import ir.IrBuilder;
+import ir.Operand;
+import ir.Temp;
 import types.BoolType;
 import types.ErrorType;
 import types.NumberType;
@@ -41,31 +40,28 @@ public class Operation extends CheckableNode {
 		if(right instanceof CheckableNode) ((CheckableNode) right).checkFunctionCalls(parent);
 	}
 	
-	public Type getType() {
+	protected Type attributeType() {
 		if(opToken.kind() == Kind.AND || opToken.kind() == Kind.OR) {
 			if(!BoolType.is(left.getType()) || !BoolType.is(right.getType())) {
-				ErrorType error = new ErrorType();
-				error.setError(opToken, "Cannot " + toString(opToken, left.getType().toString(), right.getType().toString()) + ".");
+				ErrorType error = new ErrorType(opToken, "Cannot " + toString(opToken, left.getType().toString(), right.getType().toString()) + ".");
 				return error;
 			} else {
-				return new BoolType();
+				return Type.BOOL;
 			}
 		} else if(opToken.kind() == Kind.NOT) {
 			if(!BoolType.is(right.getType())) {
-				ErrorType error = new ErrorType();
-				error.setError(opToken, "Cannot " + toString(opToken, right.getType().toString()) + ".");
+				ErrorType error = new ErrorType(opToken, "Cannot " + toString(opToken, right.getType().toString()) + ".");
 				return error;
 			} else {
-				return new BoolType();
+				return Type.BOOL;
 			}
 		} else {
 			if((!NumberType.is(left.getType()) || !NumberType.is(right.getType())) && opToken.kind() != Kind.EQUAL_TO && opToken.kind() != Kind.NOT_EQUAL) {
-				ErrorType error = new ErrorType();
-				error.setError(opToken, "Cannot " + toString(opToken, left.getType().toString(), right.getType().toString()) + ".");
+				ErrorType error = new ErrorType(opToken, "Cannot " + toString(opToken, left.getType().toString(), right.getType().toString()) + ".");
 				return error;
 			} else {
 				if(operation.startsWith("Relation")) {
-					return new BoolType();
+					return Type.BOOL;
 				} else {
 					return left.getType();
 				}
@@ -83,70 +79,66 @@ public class Operation extends CheckableNode {
 		right.checkType(reporter, returnType, functionName);
 	}
 	
-	public ValueCode genCode(ir.Variables variables) {
-		List<Instruction> instructions = new ArrayList<>();
-		
-		ValueCode leftCode = null;
+	public Operand genCode(IrBuilder builder) {
+		Operand leftValue = null;
 		if(opToken.kind() != Kind.NOT) {
-			leftCode = left.genCode(variables);
-			instructions.addAll(leftCode.instructions);
+			leftValue = left.genCode(builder);
 		}
 		
-		ValueCode rightCode = right.genCode(variables);
-		instructions.addAll(rightCode.instructions);
+		Operand rightValue = right.genCode(builder);
 		
-		String result = variables.getTemp();
+		Temp result = builder.getTemp();
 		switch(opToken.kind()) {
 			case EQUAL_TO: 
-				instructions.add(new Instruction(result, leftCode.returnValue, InstructType.EQUAL, rightCode.returnValue));
+				builder.add(new Instruction(result, leftValue, InstructType.EQUAL, rightValue));
 				break;
 			case NOT_EQUAL: 
-				instructions.add(new Instruction(result, leftCode.returnValue, InstructType.NOT_EQUAL, rightCode.returnValue));
+				builder.add(new Instruction(result, leftValue, InstructType.NOT_EQUAL, rightValue));
 				break;
 			case LESS_EQUAL: 
-				instructions.add(new Instruction(result, leftCode.returnValue, InstructType.LESS_EQUAL, rightCode.returnValue));
+				builder.add(new Instruction(result, leftValue, InstructType.LESS_EQUAL, rightValue));
 				break;
 			case GREATER_EQUAL: 
-				instructions.add(new Instruction(result, leftCode.returnValue, InstructType.GREATER_EQUAL, rightCode.returnValue));
+				builder.add(new Instruction(result, leftValue, InstructType.GREATER_EQUAL, rightValue));
 				break;
 			case LESS_THAN: 
-				instructions.add(new Instruction(result, leftCode.returnValue, InstructType.LESS, rightCode.returnValue));
+				builder.add(new Instruction(result, leftValue, InstructType.LESS, rightValue));
 				break;
 			case GREATER_THAN: 
-				instructions.add(new Instruction(result, leftCode.returnValue, InstructType.GREATER, rightCode.returnValue));
+				builder.add(new Instruction(result, leftValue, InstructType.GREATER, rightValue));
 				break;
 			case ADD: 
-				instructions.add(new Instruction(result, leftCode.returnValue, InstructType.ADD, rightCode.returnValue));
+				builder.add(new Instruction(result, leftValue, InstructType.ADD, rightValue));
 				break;
 			case SUB: 
-				instructions.add(new Instruction(result, leftCode.returnValue, InstructType.SUB, rightCode.returnValue));
+				builder.add(new Instruction(result, leftValue, InstructType.SUB, rightValue));
 				break;
 			case OR: 
-				instructions.add(new Instruction(result, leftCode.returnValue, InstructType.OR, rightCode.returnValue));
+				builder.add(new Instruction(result, leftValue, InstructType.OR, rightValue));
 				break;
 			case MUL: 
-				instructions.add(new Instruction(result, leftCode.returnValue, InstructType.MUL, rightCode.returnValue));
+				builder.add(new Instruction(result, leftValue, InstructType.MUL, rightValue));
 				break;
 			case DIV: 
-				instructions.add(new Instruction(result, leftCode.returnValue, InstructType.DIV, rightCode.returnValue));
+				builder.add(new Instruction(result, leftValue, InstructType.DIV, rightValue));
 				break;
 			case MOD: 
-				instructions.add(new Instruction(result, leftCode.returnValue, InstructType.MOD, rightCode.returnValue));
+				builder.add(new Instruction(result, leftValue, InstructType.MOD, rightValue));
 				break;
 			case AND: 
-				instructions.add(new Instruction(result, leftCode.returnValue, InstructType.AND, rightCode.returnValue));
+				builder.add(new Instruction(result, leftValue, InstructType.AND, rightValue));
 				break;
 			case POW: 
-				instructions.add(new Instruction(result, leftCode.returnValue, InstructType.POW, rightCode.returnValue));
+				builder.add(new Instruction(result, leftValue, InstructType.POW, rightValue));
 				break;
 			case NOT: 
-				instructions.add(new Instruction(result, InstructType.NOT, rightCode.returnValue));
+				builder.add(new Instruction(result, InstructType.NOT, rightValue));
 				break;
 			default: 
 				throw new RuntimeException("Unexpected Operation Found");
 		}
 		
-		return new ValueCode(instructions, result);
+		return result;
 	}
 	
 	public String printPreOrder(int level) {
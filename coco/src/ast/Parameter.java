@@ -7,6 +7,7 @@ import coco.SyntaxException;
 import coco.Token;
 import coco.Variables;
 import coco.Token.Kind;
+import types.Type;
 
 public class Parameter {
 	
@@ -16,15 +17,15 @@ public class Parameter {
 	public Parameter(ReversibleScanner source, Variables variables) throws SyntaxException, RedefinitionException {
 		type = new ParameterType(source);
 		name = ErrorChecker.mustBe(Kind.IDENT, "IDENT", source);
-		variables.add(name, type.toString());
+		variables.add(name, type.getType());
 	}
 	
 	public Token getName() {
 		return name;
 	}
 	
-	public String getTypeString() {
-		return type.toString();
+	public Type getType() {
+		return type.getType();
 	}
 	
 }
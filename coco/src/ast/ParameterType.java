@@ -5,6 +5,7 @@ import coco.ReversibleScanner;
 import coco.SyntaxException;
 import coco.Token;
 import coco.Token.Kind;
+import types.Type;
 
 public class ParameterType {
 	
@@ -29,13 +30,17 @@ public class ParameterType {
 		}
 	}
 	
-	@Override
-	public String toString() {
-		String str = type.lexeme();
+	public Type getType() {
+		Type parameter = Type.fromToken(type);
 		for(int dim=0; dim<dimensions; ++dim) {
-			str += "[]";
+			parameter = parameter.arrayOf(null);
 		}
-		return str;
+		return parameter;
+	}
+	
+	@Override
+	public String toString() {
+		return getType().name();
 	}
 	
 }
@@ -10,6 +10,8 @@ import coco.SyntaxException;
 import coco.Token;
 import coco.Variables;
 import coco.Token.Kind;
+import types.Type;
+import types.TypeList;
 
 public class Parameters /*extends Traversible*/ {
 	
@@ -40,31 +42,21 @@ public class Parameters /*extends Traversible*/ {
 		return names;
 	}
 	
-	public String getTypes() {
-		StringBuilder types = new StringBuilder();
-		types.append("(");
-		if(parameters.size() > 0) {
-			types.append(parameters.get(0).getTypeString());
-		}
-		for(int param=1; param<parameters.size(); ++param) {
-			types.append(",");
-			types.append(parameters.get(param).getTypeString());
+	public TypeList getTypeList() {
+		List<Type> types = new ArrayList<>();
+		for(Parameter parameter: parameters) {
+			types.add(parameter.getType());
 		}
-		types.append(")");
-		return types.toString();
+		return TypeList.of(types);
+	}
+	
+	public String getTypes() {
+		return getTypeList().name();
 	}
 	
 	@Override
 	public String toString() {
-		String str = "(";
-		if(parameters.size() > 0) {
-			str += parameters.get(0).getTypeString();
-		}
-		for(int param=1; param<parameters.size(); ++param) {
-			str += "," + parameters.get(param).getTypeString();
-		}
-		str += ")";
-		return str;
+		return getTypes();
 	}
 	
 }
@@ -60,7 +60,7 @@ public class Power extends CheckableNode {
 		}
 	}
 	
-	public Type getType() {
+	protected Type attributeType() {
 		return operands.get(0).getType();
 	}
 	
@@ -57,7 +57,7 @@ public class Product extends CheckableNode {
 		}
 	}
 	
-	public Type getType() {
+	protected Type attributeType() {
 		return operands.get(0).getType();
 	}
 	
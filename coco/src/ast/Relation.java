@@ -9,7 +9,6 @@ import coco.SyntaxException;
 import coco.Token;
 import coco.Variables;
 import coco.Token.Kind;
-import types.BoolType;
 import types.Type;
 import types.TypeChecker;
 
@@ -58,8 +57,8 @@ public class Relation extends CheckableNode {
 		}
 	}
 	
-	public Type getType() {
-		return new BoolType();
+	protected Type attributeType() {
+		return Type.BOOL;
 	}
 	
 	public void checkType(TypeChecker reporter, Type returnType, String functionName) {
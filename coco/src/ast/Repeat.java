@@ -1,8 +1,5 @@
 package ast;
 
-import java.util.ArrayList;
-import java.util.List;
-
 import coco.ErrorChecker;
 import coco.NonexistantVariableException;
 import coco.ReversibleScanner;
@@ -16,7 +13,9 @@ import types.TypeChecker;
 import coco.Token.Kind;
 import ir.InstructType;
 import ir.Instruction;
-import ir.ValueCode;
+import ir.IrBuilder;
+import ir.Operand;
+import ir.Temp;
 
 public class Repeat extends CheckableNode {
 
@@ -47,7 +46,7 @@ public class Repeat extends CheckableNode {
 		if(decision instanceof CheckableNode) ((CheckableNode) decision).checkFunctionCalls(parent);
 	}
 	
-	public Type getType() {
+	protected Type attributeType() {
 		return action.getType();
 	}
 	
@@ -56,32 +55,32 @@ public class Repeat extends CheckableNode {
 		
 		decision.checkType(reporter, returnType, functionName);
 		if(!BoolType.is(decision.getType())) {
-			ErrorType error = new ErrorType();
-			error.setError(start, "RepeatStat requires bool condition not " + decision.getType() + ".");
+			ErrorType error = new ErrorType(start, "RepeatStat requires bool condition not " + decision.getType() + ".");
 			reporter.reportError(error);
 		}
 	}
 	
-	public ValueCode genCode(ir.Variables variables) {
-		List<Instruction> instructions = new ArrayList<>();
-		ValueCode decisionCode = decision.genCode(variables);
+	public Operand genCode(IrBuilder builder) {
+		// the decision's temps come before the action's but its code goes after
+		IrBuilder decisionCode = builder.fork();
+		Operand decisionValue = decision.genCode(decisionCode);
 		
-		ValueCode actionCode = action.genCode(variables);
+		int actionStart = builder.size();
+		action.genCode(builder);
 		
-		if(actionCode.instructions.size() > 0) {
-			String decisionTemp = variables.getTemp();
-			Instruction jumpDecision = new Instruction(decisionTemp, InstructType.NOT, decisionCode.returnValue);
-			Instruction jump = new Instruction(InstructType.JUMP, actionCode.instructions.get(0), decisionTemp);
+		if(builder.size() > actionStart) {
+			Temp decisionTemp = builder.getTemp();
+			Instruction jumpDecision = new Instruction(decisionTemp, InstructType.NOT, decisionValue);
+			Instruction jump = new Instruction(InstructType.JUMP, builder.get(actionStart), decisionTemp);
 			
-			instructions.addAll(actionCode.instructions);
-			instructions.addAll(decisionCode.instructions);
-			instructions.add(jumpDecision);
-			instructions.add(jump);
+			builder.append(decisionCode);
+			builder.add(jumpDecision);
+			builder.add(jump);
 		} else {
-			instructions.addAll(decisionCode.instructions);
+			builder.append(decisionCode);
 		}
 
-		return new ValueCode(instructions, decisionCode.returnValue);
+		return decisionValue;
 	}
 	
 	public String printPreOrder(int level) {
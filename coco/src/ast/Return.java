@@ -1,8 +1,5 @@
 package ast;
 
-import java.util.ArrayList;
-import java.util.List;
-
 import coco.ErrorChecker;
 import coco.NonexistantVariableException;
 import coco.ReversibleScanner;
@@ -16,7 +13,8 @@ import types.VoidType;
 import coco.Variables;
 import ir.InstructType;
 import ir.Instruction;
-import ir.ValueCode;
+import ir.IrBuilder;
+import ir.Operand;
 
 public class Return extends CheckableNode {
 	
@@ -46,8 +44,8 @@ public class Return extends CheckableNode {
 		if(value != null && value instanceof CheckableNode) ((CheckableNode) value).checkFunctionCalls(parent);
 	}
 	
-	public Type getType() {
-		if(value == null) return new VoidType();
+	protected Type attributeType() {
+		if(value == null) return Type.VOID;
 		return value.getType();
 	}
 	
@@ -56,25 +54,21 @@ public class Return extends CheckableNode {
 		
 		if(value == null) {
 			if(!VoidType.is(returnType)) {
-				ErrorType error = new ErrorType();
-				error.setError(this, "Function " + functionName + " returns " + value.getType() + " instead of " + returnType + ".");
+				ErrorType error = new ErrorType(this, "Function " + functionName + " returns " + value.getType() + " instead of " + returnType + ".");
 				reporter.reportError(error);
 			}
 		} else {
 			if(!returnType.equals(value.getType())) {
-				ErrorType error = new ErrorType();
-				error.setError(this, "Function " + functionName + " returns " + value.getType() + " instead of " + returnType + ".");
+				ErrorType error = new ErrorType(this, "Function " + functionName + " returns " + value.getType() + " instead of " + returnType + ".");
 				reporter.reportError(error);
 			}
 		}
 	}
 	
-	public ValueCode genCode(ir.Variables variables) {
-		List<Instruction> instructions = new ArrayList<>();
-		ValueCode valueCode = value.genCode(variables);
-		instructions.addAll(valueCode.instructions);
-		instructions.add(new Instruction(InstructType.RETURN, valueCode.returnValue));
-		return new ValueCode(instructions, valueCode.returnValue);
+	public Operand genCode(IrBuilder builder) {
+		Operand returnValue = value.genCode(builder);
+		builder.add(new Instruction(InstructType.RETURN, returnValue));
+		return returnValue;
 	}
 	
 	public String printPreOrder(int level) {
@@ -9,12 +9,11 @@ import coco.ReversibleScanner;
 import coco.SyntaxException;
 import coco.Token;
 import coco.Variables;
-import ir.Instruction;
-import ir.ValueCode;
+import ir.IrBuilder;
+import ir.Operand;
 import coco.Token.Kind;
 import types.Type;
 import types.TypeChecker;
-import types.VoidType;
 
 public class Statements extends CheckableNode {
 	
@@ -45,13 +44,13 @@ public class Statements extends CheckableNode {
 		}
 	}
 	
-	public Type getType() {
+	protected Type attributeType() {
 		for(Node statement: statements) {
 			if(statement instanceof Return) {
 				return statement.getType();
 			}
 		}
-		return new VoidType();
+		return Type.VOID;
 	}
 	
 	public void checkType(TypeChecker reporter, Type returnType, String functionName) {
@@ -60,12 +59,11 @@ public class Statements extends CheckableNode {
 		}
 	}
 	
-	public ValueCode genCode(ir.Variables variables) {
-		List<Instruction> instructions = new ArrayList<>();
+	public Operand genCode(IrBuilder builder) {
 		for(CheckableNode statement: statements) {
-			instructions.addAll(statement.genCode(variables).instructions);
+			statement.genCode(builder);
 		}
-		return new ValueCode(instructions);
+		return null;
 	}
 	
 	public String printPreOrder(int level) {
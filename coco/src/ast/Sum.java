@@ -67,7 +67,7 @@ public class Sum extends CheckableNode {
 		}
 	}
 	
-	public Type getType() {
+	protected Type attributeType() {
 		return operands.get(0).getType();
 	}
 	
@@ -1,18 +1,17 @@
 package ast;
 
-import java.util.ArrayList;
-
 import coco.Token;
-import ir.ValueCode;
+import ir.IrBuilder;
+import ir.Operand;
 import types.Type;
 import types.TypeChecker;
 
 public class Variable extends NamedNode {
 
 	private Token name;
-	private String type;
+	private Type type;
 	
-	public Variable(Token name, String type) {
+	public Variable(Token name, Type type) {
 		this.name = name;
 		this.type = type;
 	}
@@ -29,16 +28,16 @@ public class Variable extends NamedNode {
 		return name;
 	}
 	
-	public Type getType() {
-		return Type.fromString(type, name);
+	protected Type attributeType() {
+		return type;
 	}
 	
 	public void checkFunctionCalls(AST parent) { }
 	
 	public void checkType(TypeChecker reporter, Type returnType, String functionName) { }
 	
-	public ValueCode genCode(ir.Variables variables) {
-		return new ValueCode(new ArrayList<>(), name.lexeme());
+	public Operand genCode(IrBuilder builder) {
+		return builder.getVar(name.lexeme());
 	}
 	
 	@Override
@@ -51,7 +50,7 @@ public class Variable extends NamedNode {
 		addLevel(level, print);
 		print.append(name.lexeme());
 		print.append(":");
-		print.append(type);
+		print.append(type.name());
 		print.append("\n");
 		return print.toString();
 	}
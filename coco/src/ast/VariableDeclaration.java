@@ -73,17 +73,14 @@ public class VariableDeclaration extends Node {
 		return end.charPosition();
 	}
 	
-	public Type getType() {
-		Type type = Type.fromToken(this.type);
-		type.setDimensions(arrayDimensions.size());
-		return type;
+	protected Type attributeType() {
+		return getDeclaredType();
 	}
 	
 	public void checkType(TypeChecker reporter, Type returnType, String functionName) {
 		for(Token dimension: arrayDimensions) {
 			if((dimension.kind() != Kind.INT_VAL)) {
-				ErrorType error = new ErrorType();
-				error.setError(dimension, "Cannot set array size to " + Type.fromToken(dimension));
+				ErrorType error = new ErrorType(dimension, "Cannot set array size to " + Type.fromToken(dimension));
 			}
 			String number = dimension.lexeme();
 			boolean negative = false;
@@ -125,23 +122,23 @@ public class VariableDeclaration extends Node {
 			print.append("VariableDeclaration[");
 			print.append(identifier.lexeme());
 			print.append(":");
-			print.append(getTypeString());
+			print.append(getDeclaredType().name());
 			print.append("]\n");
 		}
 		return print.toString();
 	}
 	
 	private void addIdentifier(Token identifier) throws RedefinitionException {
-		variables.add(identifier, getTypeString());
+		variables.add(identifier, getDeclaredType());
 		identifiers.add(identifier);
 	}
 	
-	private String getTypeString() {
-		String str = type.lexeme();
-		for(Token size: arrayDimensions) {
-			str += "[" + size.lexeme() + "]";
+	private Type getDeclaredType() {
+		Type declared = Type.fromToken(type);
+		for(int dim=arrayDimensions.size()-1; dim>=0; --dim) {
+			declared = declared.arrayOf(arrayDimensions.get(dim).lexeme());
 		}
-		return str;
+		return declared;
 	}
 	
 }
@@ -11,7 +11,6 @@ import coco.SyntaxException;
 import coco.Variables;
 import types.Type;
 import types.TypeChecker;
-import types.VoidType;
 
 public class VariableDeclarations extends Node {
 
@@ -42,8 +41,8 @@ public class VariableDeclarations extends Node {
 		return this;
 	}
 	
-	public Type getType() {
-		return new VoidType();
+	protected Type attributeType() {
+		return Type.VOID;
 	}
 	
 	public void checkType(TypeChecker reporter, Type returnType, String functionName) {
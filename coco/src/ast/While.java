@@ -1,8 +1,5 @@
 package ast;
 
-import java.util.ArrayList;
-import java.util.List;
-
 import coco.ErrorChecker;
 import coco.NonexistantVariableException;
 import coco.ReversibleScanner;
@@ -11,7 +8,9 @@ import coco.Token;
 import coco.Token.Kind;
 import ir.InstructType;
 import ir.Instruction;
-import ir.ValueCode;
+import ir.IrBuilder;
+import ir.Operand;
+import ir.Temp;
 import coco.Variables;
 import types.BoolType;
 import types.ErrorType;
@@ -48,42 +47,39 @@ public class While extends CheckableNode {
 		action.checkFunctionCalls(parent);
 	}
 	
-	public Type getType() {
+	protected Type attributeType() {
 		return action.getType();
 	}
 	
 	public void checkType(TypeChecker reporter, Type returnType, String functionName) {
 		if(!BoolType.is(decision.getType())) {
-			ErrorType error = new ErrorType();
-			error.setError(this, "WhileStat requires bool condition not " + decision.getType() + ".");
+			ErrorType error = new ErrorType(this, "WhileStat requires bool condition not " + decision.getType() + ".");
 			reporter.reportError(error);
 		}
 		
 		action.checkType(reporter, returnType, functionName);
 	}
 	
-	public ValueCode genCode(ir.Variables variables) {
-		List<Instruction> instructions = new ArrayList<>();
-		ValueCode decisionCode = decision.genCode(variables);
-		instructions.addAll(decisionCode.instructions);
-		String jumpDecision = variables.getTemp();
-		instructions.add(new Instruction(jumpDecision, InstructType.NOT, decisionCode.returnValue));
-		
-		ValueCode actionCode = action.genCode(variables);
+	public Operand genCode(IrBuilder builder) {
+		int decisionStart = builder.size();
+		Operand decisionValue = decision.genCode(builder);
+		boolean hasDecisionCode = builder.size() > decisionStart;
+		Temp jumpDecision = builder.getTemp();
+		builder.add(new Instruction(jumpDecision, InstructType.NOT, decisionValue));
 
 		Instruction afterAction = new Instruction();
 		Instruction jump = new Instruction(InstructType.JUMP, afterAction, jumpDecision);
 		
-		instructions.add(jump);
-		instructions.addAll(actionCode.instructions);
-		if(decisionCode.instructions.size() > 0) {
-			instructions.add(new Instruction(InstructType.JUMP, decisionCode.instructions.get(0)));
+		builder.add(jump);
+		action.genCode(builder);
+		if(hasDecisionCode) {
+			builder.add(new Instruction(InstructType.JUMP, builder.get(decisionStart)));
 		} else {
-			instructions.add(new Instruction(InstructType.JUMP, jump));
+			builder.add(new Instruction(InstructType.JUMP, jump));
 		}
-		instructions.add(afterAction);
+		builder.add(afterAction);
 
-		return new ValueCode(instructions, decisionCode.returnValue);
+		return decisionValue;
 	}
 	
 	public String printPreOrder(int level) {
@@ -0,0 +1,70 @@
+package coco;
+
+import org.apache.commons.cli.*;
+
+// What the benchmarks share: their options, parsed from the command line, rounds of work timed
+// with the best kept, and a checksum of what the work produced, printed at the end so none of it
+// can be optimized away
+class Benchmark {
+
+    private CommandLine cmd;
+    private long checksum = 0;
+
+    // Exits printing the options if the arguments don't parse
+    Benchmark(String[] args, Options options) {
+        try {
+            cmd = new DefaultParser().parse(options, args);
+        } catch (ParseException e) {
+            new HelpFormatter().printHelp("All Options", options);
+            System.exit(-1);
+        }
+    }
+
+    CommandLine getCommandLine() {
+        return cmd;
+    }
+
+    int getInt(String option, int defaultValue) {
+        return Integer.parseInt(cmd.getOptionValue(option, String.valueOf(defaultValue)));
+    }
+
+    void check(long value) {
+        checksum += value;
+    }
+
+    void printChecksum() {
+        System.out.println("Checksum: " + checksum);
+    }
+
+    // Rounds to time the work between start() and stop() in, going through one more first to warm up:
+    //   Rounds rounds = new Rounds(count);
+    //   while(rounds.next()) { set up; rounds.start(); work; rounds.stop(); }
+    static class Rounds {
+        private int rounds;
+        private int round = -1;
+        private long start;
+        private long best = Long.MAX_VALUE;
+
+        Rounds(int rounds) {
+            this.rounds = rounds;
+        }
+
+        boolean next() {
+            return ++round <= rounds;
+        }
+
+        void start() {
+            start = System.nanoTime();
+        }
+
+        void stop() {
+            long time = System.nanoTime() - start;
+            if(round > 0) best = Math.min(best, time);
+        }
+
+        // Nanoseconds the fastest timed round took
+        long best() {
+            return best;
+        }
+    }
+}
@@ -11,6 +11,12 @@ import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
 import java.util.Stack;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Function;
 
 import org.apache.commons.cli.CommandLine;
 
@@ -18,18 +24,28 @@ import ast.AST;
 import code.Code;
 import code.Op;
 import ir.Block;
+import ir.Builtin;
+import ir.CallGraph;
 import ir.Graph;
 import ir.Instruction;
+import ir.LiveSets;
+import ir.ModRef;
+import ir.Operand;
+import ir.VariableNumbering;
 import reg.LiveRange;
 import reg.LiveRangeComparator;
 
 public class Compiler {
 	
 	private Scanner scanner;
+	private TokenPipeline pipeline;
 	private AST ast;
 	private List<Graph> functions;
 	private Map<Graph, Map<String, Integer>> regAllocs;
+	private CallGraph callGraph;
+	private ModRef modRef;
 	private int numReg;
+	private ForkJoinPool pool = null;	// to work on functions in parallel with, if any
 	static final int TEMP_REG = 27;
 	static final int FRAME_REG = 28;
 	static final int STACK_REG = 29;
@@ -41,65 +57,103 @@ public class Compiler {
 		this.scanner = scanner;
 	}
 	
+	// pipelined lexes on a separate thread while the AST is built
+	public Compiler(Scanner scanner, int numRegs, boolean pipelined) {
+		this(scanner, numRegs);
+		if(pipelined) pipeline = new TokenPipeline(scanner);
+	}
+	
 	public AST genAST() {
-		ast = new AST(scanner);
+		if(pipeline != null) {
+			ast = new AST(new ReversibleScanner(pipeline));
+			pipeline.close();
+		} else {
+			ast = new AST(scanner);
+		}
 		return ast;
 	}
 	
-	public AST genSSA(AST ast) {
-		return ast;
+	// Optimizes, allocates registers for and generates code for functions on threads, one task a
+	// function, or in order on this one for 1. The code comes out the same either way. A pool
+	// already there is kept if it has as many threads, and shut down otherwise.
+	public void setParallelism(int threads) {
+		if(pool != null && pool.getParallelism() == threads) return;
+		if(pool != null) pool.shutdown();
+		pool = threads > 1 ? new ForkJoinPool(threads) : null;
+	}
+	
+	// Nanoseconds parsing spent waiting for the lexer, 0 unless pipelined
+	public long lexerWaitTime() {
+		return pipeline != null ? pipeline.waitTime() : 0;
 	}
 	
-	public String optimization(List<String> optStrings, CommandLine optsCmd) {
+	// Per function, how many dataflow problems were solved and how many blocks that took visiting,
+	// and how many instructions were moved out of loops
+	public String dataflowReport() {
+		StringBuilder report = new StringBuilder();
+		for(Graph function: functions) {
+			report.append(String.format("%s: %d blocks, %d solves, %d block visits, %d control flow analyses, %d hoisted%n", function.getSignature(), function.getBlocks().size(), function.getDataflowSolves(), function.getDataflowVisits(), function.getAnalysesComputed(), function.getHoisted()));
+		}
+		return report.toString();
+	}
+	
+	public AST genSSA(AST ast) {
 		if(functions == null) functions = ast.genIr();
-		
-		boolean change;
 		for(Graph function: functions) {
-			change = true;
-			while(change) {
-				change = false;
-				function.otherOptimizations();
-				if(optStrings.contains("dce") || optStrings.contains("max")) change = function.eliminateDeadCode() || change;
-				if(optStrings.contains("cf") || optStrings.contains("max")) change = function.foldConstants() || change;
-				if(optStrings.contains("cp") || optStrings.contains("max")) change = function.propagateAssignments(true) || change;
-				if(optStrings.contains("cse") || optStrings.contains("max")) change = function.eliminateCommonSubexpressions() || change;
-				if(optStrings.contains("cpp") || optStrings.contains("max")) change = function.propagateAssignments(false) || change;
-			}
+			function.toSSA();
 		}
+		return ast;
+	}
+	
+	public String optimization(List<String> optStrings, CommandLine optsCmd, int inlineBudget) {
+		if(functions == null) functions = ast.genIr();
 		
-		if(optStrings.contains("ofe") || optStrings.contains("max")) {
-			Set<Graph> functionsReached = new HashSet<>();
-			Queue<Graph> functionsToExplore = new LinkedList<>();
-			for(Graph function: functions) {
-				if(function.getSignature().equals("main()")) {
-					functionsReached.add(function);
-					functionsToExplore.add(function);
-					break;
+		if(optStrings.contains("inline") || optStrings.contains("max")) {
+			CallGraph calls = new CallGraph(functions);
+			// Bottom-up, so callees have their own calls inlined before they're copied
+			for(List<Graph> component: calls.getComponents()) {
+				for(Graph function: component) {
+					function.inlineCalls(calls, inlineBudget);
 				}
 			}
-			while(functionsToExplore.size() > 0) {
-				Collection<String> newCalls = functionsToExplore.remove().getFunctionCalls();
-				for(String call: newCalls) {
-					for(Graph function: functions) {
-						if(function.getSignature().equals(call)) {
-							if(!functionsReached.contains(function)) {
-								functionsReached.add(function);
-								functionsToExplore.add(function);
-								break;
-							}
-						}
-					}
-				}
-			}
-			List<Graph> unreachedFunctions = new ArrayList<>();
-			for(Graph function: functions) {
-				if(!functionsReached.contains(function)) {
-					unreachedFunctions.add(function);
+		}
+		summarize();
+		// Bottom-up, so what callees do is summarized as optimized before their callers are. In
+		// parallel a component only waits for those it calls.
+		Map<Graph, CompletableFuture<Void>> optimized = new HashMap<>();
+		List<CompletableFuture<Void>> components = new ArrayList<>();
+		for(List<Graph> component: callGraph.getComponents()) {
+			List<CompletableFuture<Void>> callees = new ArrayList<>();
+			for(Graph function: component) {
+				for(Graph callee: callGraph.getCallees(function)) {
+					if(optimized.containsKey(callee)) callees.add(optimized.get(callee));
 				}
 			}
-			for(Graph function: unreachedFunctions) {
-				functions.remove(function);
+			CompletableFuture<Void> done = CompletableFuture.allOf(callees.toArray(new CompletableFuture<?>[0])).thenRunAsync(() -> {
+				forEachFunction(component, function -> {
+					optimize(function, optStrings);
+					return null;
+				});
+				modRef.update(component);
+			}, executor());
+			for(Graph function: component) {
+				optimized.put(function, done);
 			}
+			components.add(done);
+		}
+		try {
+			CompletableFuture.allOf(components.toArray(new CompletableFuture<?>[0])).join();
+		} catch(CompletionException e) {
+			// As it would have been thrown optimizing in order
+			if(e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+			if(e.getCause() instanceof Error) throw (Error) e.getCause();
+			throw e;
+		}
+		
+		if(optStrings.contains("ofe") || optStrings.contains("max")) {
+			Graph main = callGraph.getFunction("main()");
+			Set<Graph> functionsReached = main == null ? new HashSet<>() : new CallGraph(functions).getReachable(main);
+			functions.retainAll(functionsReached);
 		}
 		
 		StringBuilder dot = new StringBuilder();
@@ -109,9 +163,30 @@ public class Compiler {
 		return dot.toString();
 	}
 	
+	private static void optimize(Graph function, List<String> optStrings) {
+		boolean change;
+		if(optStrings.contains("sccp") || optStrings.contains("max")) function.propagateConditionalConstants();
+		if(optStrings.contains("gvn") || optStrings.contains("max")) function.numberValuesGlobally();
+		// Strength reduction needs what loops don't change worked out before them, so it brings licm along
+		if(optStrings.contains("licm") || optStrings.contains("sr") || optStrings.contains("max")) function.hoistLoopInvariants();
+		if(optStrings.contains("sr") || optStrings.contains("max")) function.reduceStrength();
+		function.fromSSA();
+		change = true;
+		while(change) {
+			change = false;
+			function.otherOptimizations();
+			if(optStrings.contains("dce") || optStrings.contains("max")) change = function.eliminateDeadCode() || change;
+			if(optStrings.contains("cf") || optStrings.contains("max")) change = function.foldConstants() || change;
+			if(optStrings.contains("cp") || optStrings.contains("max")) change = function.propagateAssignments(true) || change;
+			if(optStrings.contains("cse") || optStrings.contains("max")) change = function.eliminateCommonSubexpressions() || change;
+			if(optStrings.contains("cpp") || optStrings.contains("max")) change = function.propagateAssignments(false) || change;
+		}
+	}
+	
 	public void regAlloc(int numReg) {
 		if(functions == null) functions = ast.genIr();
 		this.numReg = numReg;
+		summarize();
 		
 		/* Design: 
 		 * Function params put into registers starting with R0 in order
@@ -120,112 +195,134 @@ public class Compiler {
 		 * build graph (with array of ordered nodes)
 		 * */
 		regAllocs = new HashMap<>();
-		for(Graph function: functions) {
-			Map<String, LiveRange> nameToLv = new HashMap<>();
-			List<LiveRange> ranges = new LinkedList<>();
+		List<Map<String, Integer>> allocations = forEachFunction(functions, this::allocate);
+		for(int function=0; function<functions.size(); ++function) {
+			regAllocs.put(functions.get(function), allocations.get(function));
+		}
+	}
 			
-			boolean change = true;
-			while(change) {
-				change = false;
-				for(Block block: function.getBlocks()) {
-					change = block.updateLiveVariables() || change;
-				}
+	// Registers for the function's variables, 0 for those kept in memory
+	private Map<String, Integer> allocate(Graph function) {
+		function.fromSSA();
+		VariableNumbering variables = function.computeLiveVariables();
+		LiveRange[] rangeOf = new LiveRange[variables.size()];
+		Map<Block, LiveSets> liveSetsOf = new HashMap<>();
+		List<LiveRange> ranges = new ArrayList<>();
+		
+		Block entry = function.getEntryBlock();
+		Queue<Block> blocks = new LinkedList<>();
+		Set<Block> visited = new HashSet<>();
+		blocks.add(entry);
+		while(!blocks.isEmpty()) {
+			Block block = blocks.remove();
+			if(visited.contains(block)) {
+				continue;
+			} else {
+				visited.add(block);
 			}
 			
-			Block entry = function.getEntryBlock();
-			Queue<Block> blocks = new LinkedList<>();
-			Set<Block> visited = new HashSet<>();
-			blocks.add(entry);
-			while(!blocks.isEmpty()) {
-				Block block = blocks.remove();
-				if(visited.contains(block)) {
-					continue;
-				} else {
-					visited.add(block);
+			LiveSets liveSets = block.genLiveSets();
+			liveSetsOf.put(block, liveSets);
+			for(int var=liveSets.nextLiveAtStart(0); var>=0; var=liveSets.nextLiveAtStart(var+1)) {
+				if(block == entry) {
+					rangeOf[var] = new LiveRange(variables.getName(var), var);
+					rangeOf[var].addStart(0, block);
+					ranges.add(rangeOf[var]);
+				} else if(rangeOf[var] != null) {
+					rangeOf[var].addBlock(block);
 				}
-				
-				List<Collection<String>> liveSets = block.genLiveSets();
-				if(liveSets.size() > 0) {
-					Collection<String> liveSet = liveSets.get(0);
-					if(block == entry) {
-						for(String liveVar: liveSet) {
-							LiveRange varLv = new LiveRange(liveVar);
-							varLv.addStart(0, block);
-							nameToLv.put(liveVar, varLv);
-							ranges.add(varLv);
-						}
-					} else {
-						for(String liveVar: liveSet) {
-							if(nameToLv.containsKey(liveVar)) {
-								nameToLv.get(liveVar).addBlock(block);
-							}
-						}
+			}
+			for(int i=1; i<liveSets.numPoints(); ++i) {
+				for(int born=0; born<liveSets.numBorn(i); ++born) {
+					int var = liveSets.getBorn(i, born);
+					if(rangeOf[var] == null) {
+						rangeOf[var] = new LiveRange(variables.getName(var), var);
+						ranges.add(rangeOf[var]);
 					}
+					rangeOf[var].addStart(i / 2, block);
 				}
-				for(int i=1; i<liveSets.size(); ++i) {
-					Collection<String> thisSet = liveSets.get(i);
-					Collection<String> lastSet = liveSets.get(i - 1);
-					for(String var: thisSet) {
-						if(!lastSet.contains(var)) {
-							if(nameToLv.containsKey(var)) {
-								nameToLv.get(var).addStart(i / 2, block);
-							} else {
-								LiveRange varLv = new LiveRange(var);
-								varLv.addStart(i / 2, block);
-								nameToLv.put(var, varLv);
-								ranges.add(varLv);
-							}
-						}
-					}
-					for(String var: lastSet) {
-						if(!thisSet.contains(var) && nameToLv.containsKey(var)) {
-							nameToLv.get(var).addEnd(i / 2, block);
-						}
+				for(int died=0; died<liveSets.numDied(i); ++died) {
+					int var = liveSets.getDied(i, died);
+					if(rangeOf[var] != null) {
+						rangeOf[var].addEnd(i / 2, block);
 					}
 				}
-				
-				blocks.addAll(block.getSuccessors());
-			}
-			
-			Stack<LiveRange> stack = new Stack<>();
-			for(LiveRange lv: ranges) {
-				lv.link(ranges);
-				lv.setStack(stack);
 			}
 			
-			while(!ranges.isEmpty()) {
-				ranges.sort(new LiveRangeComparator());
-				int removal = 0;
-				while(removal < ranges.size()) {
-					if(ranges.get(removal).numConflicts() < numReg) {
-						break;
-					} else {
-						++removal;
-					}
-				}
-				if(removal >= ranges.size()) {
-					removal = 0;
+			blocks.addAll(block.getSuccessors());
+		}
+		
+		Stack<LiveRange> stack = new Stack<>();
+		Set<LiveRange> stacked = new HashSet<>();
+		for(LiveRange lv: ranges) {
+			lv.link(liveSetsOf, rangeOf);
+			lv.setStack(stacked);
+		}
+		
+		while(!ranges.isEmpty()) {
+			ranges.sort(new LiveRangeComparator());
+			int removal = 0;
+			while(removal < ranges.size()) {
+				if(ranges.get(removal).numConflicts() < numReg) {
+					break;
+				} else {
+					++removal;
 				}
-				stack.push(ranges.remove(removal));
-			}
-			
-			while(!stack.isEmpty()) {
-				LiveRange var = stack.pop();
-				var.setReg(numReg);
 			}
-			
-			Map<String, Integer> allocs = new HashMap<>();
-			for(String var: nameToLv.keySet()) {
-				allocs.put(var, nameToLv.get(var).getReg());
+			if(removal >= ranges.size()) {
+				// Might not get a register, so the range cheapest to keep in memory for how many it conflicts with
+				removal = 0;
+				for(int range=1; range<ranges.size(); ++range) {
+					if(spillPriority(ranges.get(range)) < spillPriority(ranges.get(removal))) removal = range;
+				}
 			}
-			regAllocs.put(function, allocs);
+			stacked.add(stack.push(ranges.remove(removal)));
+		}
 			
-			// Testing: Prints Allocation
-			/* for(String var: nameToLv.keySet()) {
-				System.out.println(var + ": " + nameToLv.get(var).getReg());
+		while(!stack.isEmpty()) {
+			LiveRange var = stack.pop();
+			var.setReg(numReg);
+		}
+		
+		Map<String, Integer> allocs = new HashMap<>();
+		for(LiveRange lv: rangeOf) {
+			if(lv != null) allocs.put(lv.getName(), lv.getReg());
+		}
+		
+		// Testing: Prints Allocation
+		/* for(String var: allocs.keySet()) {
+			System.out.println(var + ": " + allocs.get(var));
+		}
+		System.out.println(); */
+		
+		return allocs;
+	}
+	
+	// Results of work on each function, in order, with a task for each in parallel
+	private <T> List<T> forEachFunction(List<Graph> functions, Function<Graph, T> work) {
+		List<T> results = new ArrayList<>();
+		if(pool == null) {
+			for(Graph function: functions) {
+				results.add(work.apply(function));
 			}
-			System.out.println(); */
+			return results;
+		}
+		List<ForkJoinTask<T>> tasks = new ArrayList<>();
+		for(Graph function: functions) {
+			tasks.add(pool.submit(() -> work.apply(function)));
+		}
+		for(ForkJoinTask<T> task: tasks) {
+			results.add(task.join());
 		}
+		return results;
+	}
+			
+	private Executor executor() {
+		return pool != null ? pool : Runnable::run;
+	}
+	
+	private static double spillPriority(LiveRange range) {
+		return range.spillCost() / range.numConflicts();
 	}
 	
 	public int[] genCode() {
@@ -238,403 +335,420 @@ public class Compiler {
 			globalOffsets.put(var, offset -= WORD_SIZE);
 		}
 		
-		Map<Graph, List<Code>> functionCodes = new HashMap<>();
-		// TODO: need to handle overloaded functions
-		Map<String, Collection<Code>> functionCalls = new HashMap<>();
+		// Registers each function may overwrite, counting those it calls, which are all a call needs to save
+		Map<Graph, Set<Integer>> clobbered = new HashMap<>();
+		for(List<Graph> component: callGraph.getComponents()) {
+			Set<Integer> registers = new HashSet<>();
+			for(Graph function: component) {
+				registers.addAll(regAllocs.get(function).values());
+				for(Graph callee: callGraph.getCallees(function)) {
+					if(clobbered.containsKey(callee)) registers.addAll(clobbered.get(callee));
+				}
+			}
+			for(Graph function: component) {
+				clobbered.put(function, registers);
+			}
+		}
 		
+		// Calls by the function they resolved to, so each overload is linked to its own definition
+		Map<Graph, Map<Graph, Collection<Code>>> functionCalls = new HashMap<>();
 		for(Graph function: functions) {
-			Map<String, Integer> allocs = regAllocs.get(function);
-			List<Code> code = new ArrayList<>();
-			Map<Block, Set<Integer>> jumps = new HashMap<>();
-			Map<Block, Integer> starts = new HashMap<>();
-			
-			if(function.getSignature().equals("main()")) {
-				code.add(new Code(Op.ADDI, FRAME_REG, GLOBAL_REG, offset));
+			functionCalls.put(function, new HashMap<>());
+		}
+		int globalsOffset = offset;
+		List<List<Code>> functionCodes = forEachFunction(functions, function -> genCode(function, globalVariables, globalOffsets, globalsOffset, clobbered, functionCalls.get(function)));
+		
+		// main goes first, then the other functions in order
+		Map<Graph, Integer> functionLocations = new HashMap<>();
+		List<Integer> layout = new ArrayList<>();
+		for(int function=0; function<functions.size(); ++function) {
+			if(functions.get(function).getSignature().equals("main()")) {
+				layout.add(0, function);
+			} else {
+				layout.add(function);
 			}
-			
-			Map<String, Integer> frameOffsets = new HashMap<>();
-			String[] funcParams = function.getParameters();
-			Set<String> funcParamsSet = new HashSet<>(Arrays.asList(funcParams));
-			offset = numReg * -WORD_SIZE;
-			for(String var: allocs.keySet()) {
-				if(!globalVariables.contains(var) || funcParamsSet.contains(var)) {
-					if(allocs.get(var) != 0) {
-						frameOffsets.put(var, allocs.get(var) * -WORD_SIZE);
-					} else {
-						frameOffsets.put(var, offset -= WORD_SIZE);
-					}
+		}
+		int location = 0;
+		for(int function: layout) {
+			functionLocations.put(functions.get(function), location);
+			location += functionCodes.get(function).size();
+		}
+		
+		for(Graph function: functions) {
+			for(Map.Entry<Graph, Collection<Code>> calls: functionCalls.get(function).entrySet()) {
+				if(!functionLocations.containsKey(calls.getKey())) continue;
+				for(Code call: calls.getValue()) {
+					call.setJump(functionLocations.get(calls.getKey()) * WORD_SIZE);
 				}
 			}
-			
-			code.add(new Code(Op.ADDI, STACK_REG, FRAME_REG, offset));
-			
-			VariableLoader varLoader = new VariableLoader(code, allocs, frameOffsets, globalOffsets);
-			
-			for(int param=0; param<funcParams.length; ++param) {
-				varLoader.install(funcParams[param], (funcParams.length - param) * WORD_SIZE - offset);
+		}
+		
+		int[] code = new int[location];
+		int next = 0;
+		for(int function: layout) {
+			for(Code inst: functionCodes.get(function)) {
+				// System.out.println(next + ": " + inst);
+				code[next++] = inst.gen();
 			}
-			if(!function.getSignature().equals("main()")) {
-				for(String var: globalVariables) {
-					if(!varLoader.isSpilled(var) && !frameOffsets.containsKey(var) && !varLoader.isCrossAlloced(var)) {
-						varLoader.specialLoad(var, allocs.get(var));
-					}
+		}
+		
+		return code;
+	}
+	
+	// Code for one function, recording the calls it makes to be linked once every function's laid out.
+	// main's frame starts below the globals, at globalsOffset.
+	private List<Code> genCode(Graph function, Set<String> globalVariables, Map<String, Integer> globalOffsets, int globalsOffset, Map<Graph, Set<Integer>> clobbered, Map<Graph, Collection<Code>> functionCalls) {
+		Map<String, Integer> allocs = regAllocs.get(function);
+		List<Code> code = new ArrayList<>();
+		Map<Block, Set<Integer>> jumps = new HashMap<>();
+		Map<Block, Integer> starts = new HashMap<>();
+		
+		if(function.getSignature().equals("main()")) {
+			code.add(new Code(Op.ADDI, FRAME_REG, GLOBAL_REG, globalsOffset));
+		}
+		
+		Map<String, Integer> frameOffsets = new HashMap<>();
+		String[] funcParams = function.getParameters();
+		Set<String> funcParamsSet = new HashSet<>(Arrays.asList(funcParams));
+		int offset = numReg * -WORD_SIZE;
+		for(String var: allocs.keySet()) {
+			if(!globalVariables.contains(var) || funcParamsSet.contains(var)) {
+				if(allocs.get(var) != 0) {
+					frameOffsets.put(var, allocs.get(var) * -WORD_SIZE);
+				} else {
+					frameOffsets.put(var, offset -= WORD_SIZE);
 				}
 			}
-			
-			for(Block block: function) {
-				starts.put(block, code.size());
-				if(jumps.containsKey(block)) {
-					for(int jump: jumps.get(block)) {
-						code.get(jump).setJump(code.size() - jump);
-					}
+		}
+		// The stack pointer goes a word below the frame, since a call's first argument is stored where it points
+		offset -= WORD_SIZE;
+		
+		code.add(new Code(Op.ADDI, STACK_REG, FRAME_REG, offset));
+		
+		VariableLoader varLoader = new VariableLoader(code, allocs, frameOffsets, globalOffsets);
+		// What's live at each call says what has to be saved and restored round it
+		function.computeLiveVariables();
+		
+		for(int param=0; param<funcParams.length; ++param) {
+			varLoader.install(funcParams[param], (funcParams.length - param) * WORD_SIZE - offset);
+		}
+		if(!function.getSignature().equals("main()")) {
+			Set<String> liveOnEntry = function.getEntryBlock().genLiveSets().getLive(0);
+			for(String var: globalVariables) {
+				if(!varLoader.isSpilled(var) && !frameOffsets.containsKey(var) && liveOnEntry.contains(var)) {
+					varLoader.specialLoad(var, allocs.get(var));
 				}
-				
-				for(Instruction instr: block) {
-					if(instr.isVoidCall() || instr.isCall()) {
-						if(instr.isVoidCall()) {
-							if(instr.assignee.startsWith("call printInt(")) {
-								String [] parameters = instr.getParameters();
-								if(parameters.length == 1) {
-									int r;
-									if(Instruction.isVar(parameters[0])) {
-										r = varLoader.load(parameters[0]);
-									} else {
-										code.add(new Code(Op.ADDI, TEMP_REG, 0, Integer.parseInt(parameters[0])));
-										r = TEMP_REG;
-									}
-									code.add(new Code(Op.WRI, 0, r, 0));
-									varLoader.push(r, parameters[0]);
-								}
-							} else if(instr.assignee.startsWith("call printBool(")) {
-								String [] parameters = instr.getParameters();
-								if(parameters.length == 1) {
-									int r;
-									if(Instruction.isVar(parameters[0])) {
-										r = varLoader.load(parameters[0]);
-									} else {
-										int bool = 0;
-										if(parameters[0].equals("true")) bool = 1;
-										code.add(new Code(Op.ADDI, TEMP_REG, 0, bool));
-										r = TEMP_REG;
-									}
-									code.add(new Code(Op.WRI, 0, r, 0));
-									varLoader.push(r, parameters[0]);
+			}
+		}
+		
+		for(Block block: function) {
+			starts.put(block, code.size());
+			if(jumps.containsKey(block)) {
+				for(int jump: jumps.get(block)) {
+					code.get(jump).setJump(code.size() - jump);
+				}
+			}
+			
+			LiveSets liveSets = block.genLiveSets();
+			int index = -1;
+			for(Instruction instr: block) {
+				++index;
+				if(instr.isVoidCall() || instr.isCall()) {
+					Builtin builtin = instr.getBuiltin();
+					if(builtin == null) {
+						callFunction(instr, code, varLoader, functionCalls, clobbered, offset, liveSets.getLive(2*index + 1), liveSets.getLive(2*index + 2));
+						if(instr.isCall()) varLoader.install(instr.assignee, (instr.getArguments().length + 1) * -WORD_SIZE);
+					} else if(instr.isVoidCall()) {
+						switch(builtin) {
+							case PRINT_INT: 
+							case PRINT_BOOL: 
+								Operand argument = instr.getArguments()[0];
+								int r;
+								if(argument.isVariable()) {
+									r = varLoader.load(argument);
+								} else {
+									loadConstant(code, TEMP_REG, getValue(argument));
+									r = TEMP_REG;
 								}
-							} else if(instr.assignee.equals("call println()")) {
+								code.add(new Code(Op.WRI, 0, r, 0));
+								varLoader.push(r, argument);
+								break;
+							case PRINTLN: 
 								code.add(new Code(Op.WRL, 0, 0, 0));
-							} else if(instr.assignee.equals("call readInt()")) {
+								break;
+							case READ_INT: 
 								code.add(new Code(Op.RDI, TEMP_REG, 0, 0));
-							} else if(instr.assignee.equals("call readBool()")) {
+								break;
+							case READ_BOOL: 
 								code.add(new Code(Op.RDB, TEMP_REG, 0, 0));
+								break;
+						}
+					} else {
+						int assignee = varLoader.load(instr.assignee);
+						code.add(new Code(builtin == Builtin.READ_BOOL ? Op.RDB : Op.RDI, assignee, 0, 0));
+						varLoader.push(assignee, instr.assignee);
+					}
+				} else if(instr.isCopy()) {
+					int assignee = varLoader.load(instr.assignee);
+					if(instr.value1.isVariable()) {
+						int assignment = varLoader.load(instr.value1);
+						if(assignee != assignment) code.add(new Code(Op.ADDI, assignee, assignment, 0));
+						varLoader.push(assignment, instr.value1);
+					} else {
+						loadConstant(code, assignee, getValue(instr.value1));
+					}
+					varLoader.push(assignee, instr.assignee);
+				} else if(instr.isNot()) {
+					code.add(new Code(Op.ADDI, TEMP_REG, 0, 1));
+					Op op;
+					int bool;
+					if(instr.value1.isVariable()) {
+						op = Op.BIC;
+						bool = varLoader.load(instr.value1);
+					} else {
+						op = Op.BICI;
+						bool = getValue(instr.value1);
+					}
+					int assignee = varLoader.load(instr.assignee);
+					code.add(new Code(op, assignee, TEMP_REG, bool));
+					if(instr.value1.isVariable()) varLoader.push(bool, instr.value1);
+					varLoader.push(assignee, instr.assignee);
+				} else if(instr.isOp()) {
+					if(instr.isComparison()) {
+						Op op;
+						int first;
+						int second;
+						if(instr.value1.isVariable()) {
+							first = varLoader.load(instr.value1);
+							if(instr.value2.isVariable()) {
+								op = Op.CMP;
+								second = varLoader.load(instr.value2);
+							} else if(fitsImmediate(instr.value2)) {
+								op = Op.CMPI;
+								second = getValue(instr.value2);
 							} else {
-								callFunction(instr, code, varLoader, functionCalls, offset);
+								op = Op.CMP;
+								second = loadConstant(code, TEMP_REG, getValue(instr.value2));
 							}
 						} else {
-							if(instr.value1.equals("call readInt()")) {
-								int assignee = varLoader.load(instr.assignee);
-								code.add(new Code(Op.RDI, assignee, 0, 0));
-								varLoader.push(assignee, instr.assignee);
-							} else if(instr.value1.equals("call readBool()")) {
-								int assignee = varLoader.load(instr.assignee);
-								code.add(new Code(Op.RDB, assignee, 0, 0));
-								varLoader.push(assignee, instr.assignee);
+							
+							loadConstant(code, TEMP_REG, getValue(instr.value1));
+							first = TEMP_REG;
+							if(instr.value2.isVariable()) {
+								op = Op.CMP;
+								second = varLoader.load(instr.value2);
 							} else {
-								callFunction(instr, code, varLoader, functionCalls, offset);
-								varLoader.install(instr.assignee, (instr.getParameters().length + 1) * -WORD_SIZE);
+								op = Op.CMPI;
+								second = getValue(instr.value2);
 							}
 						}
-					} else if(instr.isCopy()) {
+						code.add(new Code(op, TEMP_REG, first, second));
 						int assignee = varLoader.load(instr.assignee);
-						if(Instruction.isVar(instr.value1)) {
-							int assignment = varLoader.load(instr.value1);
-							if(assignee != assignment) code.add(new Code(Op.ADDI, assignee, assignment, 0));
-							varLoader.push(assignment, instr.value1);
-						} else {
-							int value;
-							try {
-								value = Integer.parseInt(instr.value1);
-							} catch(NumberFormatException e) {
-								if(instr.value1.equals("true")) value = 1;
-								else value = 0;
-							}
-							code.add(new Code(Op.ADDI, assignee, 0, value));
+						code.add(new Code(Op.ADDI, assignee, 0, 1));
+						switch(instr.op) {
+							case EQUAL: 
+								op = Op.BEQ;
+								break;
+							case NOT_EQUAL: 
+								op = Op.BNE;
+								break;
+							case LESS_EQUAL: 
+								op = Op.BLE;
+								break;
+							case GREATER_EQUAL: 
+								op = Op.BGE;
+								break;
+							case LESS: 
+								op = Op.BLT;
+								break;
+							case GREATER: 
+								op = Op.BGT;
+								break;
+							default: 
+								throw new RuntimeException("something had gone wrong");
 						}
+						code.add(new Code(op, TEMP_REG, 0, 2));
+						code.add(new Code(Op.ADDI, assignee, 0, 0));
 						varLoader.push(assignee, instr.assignee);
-					} else if(instr.isNot()) {
-						code.add(new Code(Op.ADDI, TEMP_REG, 0, 1));
+					} else {
+						int assignee;
 						Op op;
-						int bool;
-						if(Instruction.isVar(instr.value1)) {
-							op = Op.BIC;
-							bool = varLoader.load(instr.value1);
-						} else {
-							op = Op.BICI;
-							if(instr.value1.equals("true")) bool = 1;
-							else bool = 0;
-						}
-						int assignee = varLoader.load(instr.assignee);
-						code.add(new Code(op, assignee, TEMP_REG, bool));
-						if(Instruction.isVar(instr.value1)) varLoader.push(bool, instr.value1);
-						varLoader.push(assignee, instr.assignee);
-					} else if(instr.isOp()) {
-						if(instr.isComparison()) {
-							Op op;
-							int first;
-							int second;
-							if(Instruction.isVar(instr.value1)) {
-								first = varLoader.load(instr.value1);
-								if(Instruction.isVar(instr.value2)) {
-									op = Op.CMP;
-									second = varLoader.load(instr.value2);
-								} else {
-									op = Op.CMPI;
-									second = Integer.parseInt(instr.value2);
-								}
+						int first;
+						int second;
+						if(instr.value1.isVariable()) {
+							first = varLoader.load(instr.value1);
+							if(instr.value2.isVariable()) {
+								op = Op.fromInstructOp(instr.op, false);
+								second = varLoader.load(instr.value2);
+							} else if(fitsImmediate(instr.value2)) {
+								op = Op.fromInstructOp(instr.op, true);
+								second = getValue(instr.value2);
 							} else {
-								
-								code.add(new Code(Op.ADDI, TEMP_REG, 0, getValue(instr.value1)));
-								first = TEMP_REG;
-								if(Instruction.isVar(instr.value2)) {
-									op = Op.CMP;
-									second = varLoader.load(instr.value2);
-								} else {
-									op = Op.CMPI;
-									second = getValue(instr.value2);
-								}
-							}
-							code.add(new Code(op, TEMP_REG, first, second));
-							int assignee = varLoader.load(instr.assignee);
-							code.add(new Code(Op.ADDI, assignee, 0, 1));
-							switch(instr.op) {
-								case EQUAL: 
-									op = Op.BEQ;
-									break;
-								case NOT_EQUAL: 
-									op = Op.BNE;
-									break;
-								case LESS_EQUAL: 
-									op = Op.BLE;
-									break;
-								case GREATER_EQUAL: 
-									op = Op.BGE;
-									break;
-								case LESS: 
-									op = Op.BLT;
-									break;
-								case GREATER: 
-									op = Op.BGT;
-									break;
-								default: 
-									throw new RuntimeException("something had gone wrong");
+								op = Op.fromInstructOp(instr.op, false);
+								second = loadConstant(code, TEMP_REG, getValue(instr.value2));
 							}
-							code.add(new Code(op, TEMP_REG, 0, 2));
-							code.add(new Code(Op.ADDI, assignee, 0, 0));
-							varLoader.push(assignee, instr.assignee);
 						} else {
-							int assignee;
-							Op op;
-							int first;
-							int second;
-							if(Instruction.isVar(instr.value1)) {
-								first = varLoader.load(instr.value1);
-								if(Instruction.isVar(instr.value2)) {
-									op = Op.fromInstructOp(instr.op, false);
-									second = varLoader.load(instr.value2);
-								} else {
-									op = Op.fromInstructOp(instr.op, true);
-									try {
-										second = Integer.parseInt(instr.value2);
-									} catch(NumberFormatException e) {
-										if(instr.value2.equals("true")) second = 1;
-										else second = 0;
-									}
-								}
+							loadConstant(code, TEMP_REG, getValue(instr.value1));
+							first = TEMP_REG;
+							if(instr.value2.isVariable()) {
+								op = Op.fromInstructOp(instr.op, false);
+								second = varLoader.load(instr.value2);
 							} else {
-								try {
-									first = Integer.parseInt(instr.value1);
-								} catch(NumberFormatException e) {
-									if(instr.value1.equals("true")) first = 1;
-									else first = 0;
-								}
-								code.add(new Code(Op.ADDI, TEMP_REG, 0, first));
-								first = TEMP_REG;
-								if(Instruction.isVar(instr.value2)) {
-									op = Op.fromInstructOp(instr.op, false);
-									second = varLoader.load(instr.value2);
-								} else {
-									op = Op.fromInstructOp(instr.op, true);
-									try {
-										second = Integer.parseInt(instr.value2);
-									} catch(NumberFormatException e) {
-										if(instr.value2.equals("true")) second = 1;
-										else second = 0;
-									}
-								}
-							}
-							if(varLoader.isSpilled(instr.assignee) && (first == 25 && second == 26 || first == 26 && second == 25)) {
-								assignee = varLoader.specialLoad(instr.assignee, TEMP_REG);
-							} else {
-								assignee = varLoader.load(instr.assignee);
-							}
-							code.add(new Code(op, assignee, first, second));
-							if(assignee == TEMP_REG) {
-								varLoader.specialPush(assignee, instr.assignee);
-							} else {
-								varLoader.push(assignee, instr.assignee);
+								op = Op.fromInstructOp(instr.op, true);
+								second = getValue(instr.value2);
 							}
 						}
-					} else if(instr.isJump() && !instr.isReturn()) {
-						Op op;
-						int decision = 0;
-						if(instr.isConditionalJump()) {
-							op = Op.BNE;
-							if(Instruction.isVar(instr.value1)) {
-								decision = varLoader.load(instr.value1);
-							} else {
-								int bool = 0;
-								if(instr.value1.equals("true")) bool = 1;
-								code.add(new Code(Op.ADDI, TEMP_REG, 0, bool));
-								decision = TEMP_REG;
-							}
+						if(varLoader.isSpilled(instr.assignee) && (first == 25 && second == 26 || first == 26 && second == 25)) {
+							assignee = varLoader.specialLoad(instr.assignee, TEMP_REG);
 						} else {
-							op = Op.BEQ;
+							assignee = varLoader.load(instr.assignee);
 						}
-						
-						Block jumpBlock = instr.getJump().getBlock();
-						int jumpVector = 0;
-						if(starts.containsKey(jumpBlock)) {
-							jumpVector = starts.get(jumpBlock) - code.size();
+						code.add(new Code(op, assignee, first, second));
+						if(assignee == TEMP_REG) {
+							varLoader.specialPush(assignee, instr.assignee);
 						} else {
-							if(!jumps.containsKey(jumpBlock)) {
-								jumps.put(jumpBlock, new HashSet<>());
-							}
-							jumps.get(jumpBlock).add(code.size());
+							varLoader.push(assignee, instr.assignee);
 						}
-						
-						code.add(new Code(op, decision, 0, jumpVector));
-						varLoader.push(decision, instr.value1);
-					} else if(instr.isReturn()) {
-						if(function.getSignature().equals("main()")) {
-							code.add(new Code(Op.RET, 0, 0, 0));
+					}
+				} else if(instr.isJump() && !instr.isReturn()) {
+					Op op;
+					int decision = 0;
+					if(instr.isConditionalJump()) {
+						op = Op.BNE;
+						if(instr.value1.isVariable()) {
+							decision = varLoader.load(instr.value1);
 						} else {
-							varLoader.saveGlobals();
-							if(instr.value1 != null) {
-								int reg;
-								if(Instruction.isVar(instr.value1)) {
-									reg = varLoader.load(instr.value1);
-								} else {
-									int value;
-									try {
-										value = Integer.parseInt(instr.value1);
-									} catch(NumberFormatException e) {
-										if(instr.value1.equals("true")) value = 1;
-										else value = 0;
-									}
-									code.add(new Code(Op.ADDI, TEMP_REG, 0, value));
-									reg = TEMP_REG;
-								}
-								code.add(new Code(Op.STW, reg, FRAME_REG, -WORD_SIZE));
-							}
-							code.add(new Code(Op.RET, 0, 0, RETURN_REG));
+							loadConstant(code, TEMP_REG, getValue(instr.value1));
+							decision = TEMP_REG;
 						}
-					} else if(instr.isExit()) {
-						if(function.getSignature().equals("main()")) {
-							code.add(new Code(Op.RET, 0, 0, 0));
-						} else {
-							varLoader.saveGlobals();
-							code.add(new Code(Op.RET, 0, 0, RETURN_REG));
+					} else {
+						op = Op.BEQ;
+					}
+					
+					Block jumpBlock = instr.getJump().getBlock();
+					int jumpVector = 0;
+					if(starts.containsKey(jumpBlock)) {
+						jumpVector = starts.get(jumpBlock) - code.size();
+					} else {
+						if(!jumps.containsKey(jumpBlock)) {
+							jumps.put(jumpBlock, new HashSet<>());
 						}
+						jumps.get(jumpBlock).add(code.size());
+					}
+					
+					code.add(new Code(op, decision, 0, jumpVector));
+					varLoader.push(decision, instr.value1);
+				} else if(instr.isReturn()) {
+					if(function.getSignature().equals("main()")) {
+						code.add(new Code(Op.RET, 0, 0, 0));
+					} else {
+						varLoader.saveGlobals(modRef.getWritten(function));
+						if(instr.value1 != null) {
+							int reg;
+							if(instr.value1.isVariable()) {
+								reg = varLoader.load(instr.value1);
+							} else {
+								loadConstant(code, TEMP_REG, getValue(instr.value1));
+								reg = TEMP_REG;
+							}
+							code.add(new Code(Op.STW, reg, FRAME_REG, -WORD_SIZE));
+						}
+						code.add(new Code(Op.RET, 0, 0, RETURN_REG));
+					}
+				} else if(instr.isExit()) {
+					if(function.getSignature().equals("main()")) {
+						code.add(new Code(Op.RET, 0, 0, 0));
+					} else {
+						varLoader.saveGlobals(modRef.getWritten(function));
+						code.add(new Code(Op.RET, 0, 0, RETURN_REG));
 					}
 				}
 			}
-			
-			functionCodes.put(function, code);
-		}
-		
-		Map<String, Integer> functionSizes = new HashMap<>();
-		for(Graph function: functionCodes.keySet()) {
-			functionSizes.put(function.getSignature(), functionCodes.get(function).size());
-		}
-		
-		Map<String, Integer> functionLocations = new HashMap<>();
-		functionLocations.put("main()", 0);
-		int location = functionSizes.get("main()");
-		for(Graph function: functionCodes.keySet()) {
-			if(!function.getSignature().equals("main()")) {
-				functionLocations.put(function.getSignature(), location);
-				location += functionSizes.get(function.getSignature());
-			}
-		}
-		
-		for(Graph function: functions) {
-			if(functionCalls.containsKey(function.getSignature())) {
-				for(Code call: functionCalls.get(function.getSignature())) {
-					call.setJump(functionLocations.get(function.getSignature()) * WORD_SIZE);
-				}
-			}
-		}
-		
-		int length = location;
-		int[] code = new int[length];
-		int next = 0;
-		for(Graph function: functionCodes.keySet()) {
-			next = functionLocations.get(function.getSignature());
-			for(Code inst: functionCodes.get(function)) {
-				// System.out.println(next + ": " + inst);
-				code[next++] = inst.gen();
-			}
 		}
+
 		
 		return code;
 	}
 	
-	private static int getValue(String value) {
-		try {
-			return Integer.parseInt(value);
-		} catch(NumberFormatException e) {
-			if(value.equals("true")) return 1;
-			else return 0;
+	// Puts a constant in a register, building one too big for an immediate from its high half
+	// shifted up and its low half added on, and returns the register
+	private static int loadConstant(List<Code> code, int reg, int value) {
+		if(value == (short) value) {
+			code.add(new Code(Op.ADDI, reg, 0, value));
+		} else {
+			short low = (short) value;
+			code.add(new Code(Op.ADDI, reg, 0, (short) ((value - low) >> 16)));
+			code.add(new Code(Op.LSHI, reg, reg, 16));
+			if(low != 0) code.add(new Code(Op.ADDI, reg, reg, low));
+		}
+		return reg;
+	}
+	
+	private static boolean fitsImmediate(Operand constant) {
+		return getValue(constant) == (short) getValue(constant);
+	}
+	
+	// Value of a constant operand, 0 for anything else that can't be loaded (like array elements)
+	// Only constants go into an instruction as they are, anything else (array elements included)
+	// has no code to get it into a register yet
+	private static int getValue(Operand value) {
+		if(!value.isConstant()) {
+			throw new RuntimeException("Can't generate code for " + value);
 		}
+		return value.intValue();
 	}
 	
-	private void callFunction(Instruction instr, List<Code> code, VariableLoader varLoader, Map<String, Collection<Code>> functionCalls, int offset) {
-		String [] parameters = instr.getParameters();
+	// liveBefore and liveAfter are the variables live going into and coming out of the call
+	private void callFunction(Instruction instr, List<Code> code, VariableLoader varLoader, Map<Graph, Collection<Code>> functionCalls, Map<Graph, Set<Integer>> clobbered, int offset, Set<String> liveBefore, Set<String> liveAfter) {
+		Operand[] parameters = instr.getArguments();
 		for(int paramIndex=0; paramIndex<parameters.length; ++paramIndex) {
-			String param = parameters[paramIndex].trim();
+			Operand param = parameters[paramIndex];
 			int paramReg;
-			if(Instruction.isVar(param)) {
+			if(param.isVariable()) {
 				paramReg = varLoader.load(param);
 			} else {
-				int paramVal;
-				try {
-					paramVal = Integer.parseInt(param);
-				} catch(NumberFormatException e) {
-					if(param.equals("true")) paramVal = 1;
-					else paramVal = 0;
-				}
-				code.add(new Code(Op.ADDI, TEMP_REG, 0, paramVal));
+				loadConstant(code, TEMP_REG, getValue(param));
 				paramReg = TEMP_REG;
 			}
 			code.add(new Code(Op.STW, paramReg, STACK_REG, paramIndex * -WORD_SIZE));
 		}
 		
-		varLoader.save();
+		Graph callee = instr.getCallee();
+		Set<String> used = new HashSet<>(modRef.getRead(callee));
+		used.addAll(modRef.getWritten(callee));
+		varLoader.save(clobbered.get(callee), used, liveBefore, liveAfter);
 		
 		code.add(new Code(Op.STW, RETURN_REG, STACK_REG, parameters.length * -WORD_SIZE));
 		code.add(new Code(Op.ADDI, FRAME_REG, STACK_REG, parameters.length * -WORD_SIZE));
 		
 		Code jump = new Code(Op.JSR, -1);
 		code.add(jump);
-		if(!functionCalls.containsKey(instr.getSignature())) {
-			functionCalls.put(instr.getSignature(), new ArrayList<>());
+		if(!functionCalls.containsKey(callee)) {
+			functionCalls.put(callee, new ArrayList<>());
 		}
-		functionCalls.get(instr.getSignature()).add(jump);
+		functionCalls.get(callee).add(jump);
 		
 		code.add(new Code(Op.SUBI, STACK_REG, FRAME_REG, parameters.length * -WORD_SIZE));
 		code.add(new Code(Op.SUBI, FRAME_REG, STACK_REG, offset));
 		code.add(new Code(Op.LDW, RETURN_REG, STACK_REG, parameters.length * -WORD_SIZE));
 		
-		varLoader.restore();
+		// The result is installed afterwards, so it isn't restored
+		if(instr.isCall()) liveAfter.remove(instr.assignee.toString());
+		varLoader.restore(clobbered.get(callee), modRef.getWritten(callee), liveAfter);
+	}
+	
+	// Works out which functions call which and the globals each may read and assign, so passes and
+	// code generation only keep track of those across calls
+	private void summarize() {
+		// Out of SSA form, where the globals calls use are copied round them
+		for(Graph function: functions) {
+			function.fromSSA();
+		}
+		callGraph = new CallGraph(functions);
+		modRef = new ModRef(callGraph);
+		for(Graph function: functions) {
+			function.setModRef(modRef);
+		}
 	}
 	
 	public boolean hasError() {
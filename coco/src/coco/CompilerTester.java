@@ -1,6 +1,7 @@
 package coco;
 
 import java.io.*;
+import java.nio.file.Paths;
 import java.util.*;
 
 // You need to put jar files in lib/ in your classpath
@@ -15,6 +16,9 @@ public class CompilerTester {
         options.addOption("nr", "reg", true, "Num Regs");
         options.addOption("b", "asm", false, "Print DLX instructions");
         options.addOption("a", "astOut", false, "Print AST");
+        options.addOption("mm", "mmap", false, "Scan the source file from a memory-mapped buffer");
+        options.addOption("tc", "tokenCache", false, "Replay tokens cached next to the source file, writing the cache if it's missing or stale");
+        options.addOption("pl", "pipeline", false, "Lex on a separate thread while parsing");
 
         options.addOption("gDir", "graphDir", false, "Graph dir, default will be current dir");
         options.addOption("ast", "ast", false, "Print AST.dot - requires graphs/");
@@ -26,6 +30,9 @@ public class CompilerTester {
 
         options.addOption("o", "opt", true, "Order-sensitive optimization -allowed to have multiple");
         options.addOption("max", "maxOpt", false, "Run all available optimizations till convergence");
+        options.addOption("ib", "inlineBudget", true, "Instructions a function can have for -o inline to inline it (default 24)");
+        options.addOption("df", "dataflow", false, "Report how many blocks dataflow analyses visited");
+        options.addOption("j", "threads", true, "Threads to optimize, allocate registers and generate code for functions on (default 1)");
 
         HelpFormatter formatter = new HelpFormatter();
         CommandLineParser cmdParser = new DefaultParser();
@@ -40,7 +47,13 @@ public class CompilerTester {
         Scanner s = null;
         String sourceFile = cmd.getOptionValue("src");
         try {
-            s = new Scanner(new FileReader(sourceFile));
+            if (cmd.hasOption("tokenCache")) {
+                s = new Scanner(Paths.get(sourceFile), true);
+            } else if (cmd.hasOption("mmap")) {
+                s = new Scanner(Paths.get(sourceFile));
+            } else {
+                s = new Scanner(new FileReader(sourceFile));
+            }
         } catch (IOException e) {
             e.printStackTrace();
             System.err.println("Error accessing the code file: \"" + sourceFile + "\"");
@@ -76,9 +89,39 @@ public class CompilerTester {
             numRegs = 24;
         }
 
+        String strInlineBudget = cmd.getOptionValue("inlineBudget", "24");
+        int inlineBudget = 24;
+        try {
+            inlineBudget = Integer.parseInt(strInlineBudget);
+            if (inlineBudget < 0) {
+                System.err.println("inline budget negative - setting to 24 (default)");
+                inlineBudget = 24;
+            }
+        } catch (NumberFormatException e) {
+            System.err.println("Error in option InlineBudget -- reseting to 24 (default)");
+            inlineBudget = 24;
+        }
+
+
+        String strThreads = cmd.getOptionValue("threads", "1");
+        int threads = 1;
+        try {
+            threads = Integer.parseInt(strThreads);
+            if (threads < 1) {
+                System.err.println("thread count too small - setting to 1");
+                threads = 1;
+            }
+        } catch (NumberFormatException e) {
+            System.err.println("Error in option Threads -- reseting to 1 (default)");
+            threads = 1;
+        }
 
-        Compiler c = new Compiler(s, numRegs);
+        Compiler c = new Compiler(s, numRegs, cmd.hasOption("pipeline"));
+        c.setParallelism(threads);
         ast.AST ast = c.genAST();
+        if (cmd.hasOption("pipeline")) {
+            System.err.printf("Parser waited on lexer: %.3f ms%n", c.lexerWaitTime() / 1e6);
+        }
         if(c.hasError()) {
         	System.out.println(c.errorReport());
         }
@@ -145,7 +188,7 @@ public class CompilerTester {
 
         //PA 7
         try {
-            String optimized_dotgraph_text = c.optimization(optArguments, cmd);
+            String optimized_dotgraph_text = c.optimization(optArguments, cmd, inlineBudget);
             System.out.println(optimized_dotgraph_text);
         } catch (Exception e) {
             e.printStackTrace();
@@ -156,6 +199,10 @@ public class CompilerTester {
         //PA 8
         c.regAlloc(numRegs);
 
+        if (cmd.hasOption("dataflow")) {
+            System.err.print(c.dataflowReport());
+        }
+
         //PA 9
         int[] program = c.genCode();
         if (c.hasError()) {
@@ -0,0 +1,115 @@
+package coco;
+
+import java.util.List;
+
+import org.apache.commons.cli.Options;
+
+import ast.AST;
+import ir.Block;
+import ir.Graph;
+import ir.Instruction;
+
+// Times common subexpression elimination against global value numbering (in and out of SSA form
+// included) on one long function, straight-line and with its statements split between the arms
+// of ifs, and counts the operations each replaces with copies, so a pass isn't faster for doing
+// less. Programs double in size, so time per line should stay flat for a pass linear in the size
+// of the function.
+public class GvnBenchmark {
+
+    public static void main (String[] args) {
+        Options options = new Options();
+        options.addOption("l", "lines", true, "Statements in the largest program (default 4000)");
+        options.addOption("b", "block", true, "Statements in each arm of an if in branchy programs (default 8)");
+        options.addOption("s", "sizes", true, "Program sizes, each half the next (default 4)");
+        options.addOption("r", "rounds", true, "Timed rounds for each size (default 3)");
+        Benchmark benchmark = new Benchmark(args, options);
+
+        int lines = benchmark.getInt("lines", 4000);
+        int block = benchmark.getInt("block", 8);
+        int sizes = benchmark.getInt("sizes", 4);
+        int rounds = benchmark.getInt("rounds", 3);
+
+        System.out.println("Best of " + rounds + " rounds");
+        for(int branchy=0; branchy<2; ++branchy) {
+            System.out.println(branchy == 0 ? "Straight-line:" : "Branchy, " + block + " statements an arm:");
+            for(int size=sizes-1; size>=0; --size) {
+                int count = lines >> size;
+                char[] source = program(count, branchy == 0 ? 0 : block).toCharArray();
+                long cse = time(source, false, rounds, benchmark);
+                int cseRemoved = removed;
+                long gvn = time(source, true, rounds, benchmark);
+                System.out.printf("%8d lines: cse %10.3f ms, %8.1f ns/line, %7d ops removed; gvn %10.3f ms, %8.1f ns/line, %7d ops removed%n", count, cse / 1e6, (double) cse / count, cseRemoved, gvn / 1e6, (double) gvn / count, removed);
+            }
+        }
+        benchmark.printChecksum();
+    }
+
+    private static int removed = 0;  // operations the pass last timed replaced
+
+    // Best time for either pass over the main function, adding the lengths of what it leaves to the checksum
+    private static long time(char[] source, boolean gvn, int rounds, Benchmark benchmark) {
+        Benchmark.Rounds timed = new Benchmark.Rounds(rounds);
+        while(timed.next()) {
+            AST ast = new AST(new Scanner(source, source.length));
+            if(ast.hasError()) {
+                System.err.println(ast.errorReport());
+                System.exit(-2);
+            }
+            List<Graph> ir = ast.genIr();
+            Graph main = ir.get(ir.size() - 1);
+            int operations = operations(main);
+            timed.start();
+            if(gvn) {
+                main.numberValuesGlobally();
+                main.fromSSA();
+            } else {
+                main.eliminateCommonSubexpressions();
+            }
+            timed.stop();
+            removed = operations - operations(main);
+            benchmark.check(main.length());
+        }
+        return timed.best();
+    }
+
+    private static int operations(Graph function) {
+        int operations = 0;
+        for(Block block: function) {
+            for(Instruction instr: block) {
+                if(instr.isExpr()) ++operations;
+            }
+        }
+        return operations;
+    }
+
+    private static String program(int lines, int block) {
+        String[] statements = {
+            "e = (a + b) * (c - d);\n",
+            "f = (b + a) * (c - d) + e;\n",
+            "g = (c - d) * (a + b) - f;\n",
+            "a = e - f + g;\n",
+            "h = (a + b) * (c - d);\n",
+            "c = (b + a) + h;\n",
+        };
+
+        StringBuilder program = new StringBuilder();
+        program.append("main\nint a, b, c, d, e, f, g, h;\n{\n");
+        program.append("a = call readInt();\nb = call readInt();\nc = call readInt();\nd = call readInt();\n");
+        int written = 0;
+        while(written < lines) {
+            if(block > 0) program.append("if (a < b) then\n");
+            for(int s=0; s<Math.max(1, block) && written<lines; ++s, ++written) {
+                program.append(statements[written % statements.length]);
+            }
+            if(block > 0 && written < lines) {
+                program.append("else\n");
+                for(int s=0; s<block && written<lines; ++s, ++written) {
+                    program.append(statements[(written + 3) % statements.length]);
+                }
+            }
+            if(block > 0) program.append("fi;\n");
+        }
+        program.append("call printInt(a + b + c + d + e + f + g + h);\n}.\n");
+        return program.toString();
+    }
+}
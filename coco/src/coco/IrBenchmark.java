@@ -0,0 +1,85 @@
+package coco;
+
+import java.util.List;
+
+import org.apache.commons.cli.Options;
+
+import ast.AST;
+import ir.Graph;
+
+// Times generating IR for programs of long statement lists nested in ifs, each statement a
+// deeply nested expression. Programs double in size, so time per line should stay flat if
+// generating IR is linear in the size of the program.
+public class IrBenchmark {
+
+    public static void main (String[] args) {
+        Options options = new Options();
+        options.addOption("l", "lines", true, "Statements in the largest program (default 128000)");
+        options.addOption("d", "depth", true, "Depth expressions are nested to (default 32)");
+        options.addOption("n", "nesting", true, "Depth statement lists are nested in ifs (default 16)");
+        options.addOption("s", "sizes", true, "Program sizes, each half the next (default 4)");
+        options.addOption("r", "rounds", true, "Timed rounds for each size (default 3)");
+        Benchmark benchmark = new Benchmark(args, options);
+
+        int lines = benchmark.getInt("lines", 128000);
+        int depth = benchmark.getInt("depth", 32);
+        int nesting = benchmark.getInt("nesting", 16);
+        int sizes = benchmark.getInt("sizes", 4);
+        int rounds = benchmark.getInt("rounds", 3);
+
+        System.out.println("Expressions nested " + depth + " deep, statements " + nesting + " deep, best of " + rounds + " rounds");
+        for(int size=sizes-1; size>=0; --size) {
+            int count = lines >> size;
+            char[] source = program(count, depth, nesting).toCharArray();
+
+            Benchmark.Rounds timed = new Benchmark.Rounds(rounds);
+            while(timed.next()) {
+                AST ast = new AST(new Scanner(source, source.length));
+                if(ast.hasError()) {
+                    System.err.println(ast.errorReport());
+                    System.exit(-2);
+                }
+                timed.start();
+                List<Graph> ir = ast.genIr();
+                timed.stop();
+                for(Graph function: ir) {
+                    benchmark.check(function.length());
+                }
+            }
+            long best = timed.best();
+            System.out.printf("%8d lines: %10.3f ms, %8.1f ns/line%n", count, best / 1e6, (double) best / count);
+        }
+        benchmark.printChecksum();
+    }
+
+    private static String program(int lines, int depth, int nesting) {
+        StringBuilder expression = new StringBuilder();
+        for(int d=0; d<depth; ++d) {
+            expression.append(d % 2 == 0 ? "(a + " : "(b * ");
+        }
+        expression.append("1");
+        for(int d=0; d<depth; ++d) {
+            expression.append(")");
+        }
+
+        StringBuilder program = new StringBuilder();
+        program.append("main\nint a, b;\n{\n");
+        program.append("a = call readInt();\nb = call readInt();\n");
+        int perList = Math.max(1, lines / nesting);
+        int written = 0;
+        while(written < lines) {
+            int open = 0;
+            for(; open<nesting && written<lines; ++open) {
+                program.append("if (a < b) then\n");
+                for(int s=0; s<perList && written<lines; ++s, ++written) {
+                    program.append(s % 2 == 0 ? "a = " : "b = ").append(expression).append(";\n");
+                }
+            }
+            for(; open>0; --open) {
+                program.append("fi;\n");
+            }
+        }
+        program.append("call printInt(a);\n}.\n");
+        return program.toString();
+    }
+}
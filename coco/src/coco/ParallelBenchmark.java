@@ -0,0 +1,103 @@
+package coco;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.cli.Options;
+
+import ast.AST;
+import types.TypeChecker;
+
+// Times optimizing, allocating registers for and generating code for programs of many functions,
+// each a loop calling one other, on more and more threads. Functions call those with half their
+// index, so the call graph's a tree that's only as deep as the log of how many there are and most
+// functions can be optimized at once. Every optimization but inlining runs, which would leave one
+// big function, and cpp. Code generated in parallel has to match what one thread generates.
+public class ParallelBenchmark {
+
+    private static final List<String> OPTIMIZATIONS = Arrays.asList("sccp", "gvn", "licm", "sr", "dce", "cf", "cp", "cse");
+
+    public static void main (String[] args) {
+        Options options = new Options();
+        options.addOption("f", "functions", true, "Functions in the largest program (default 800)");
+        options.addOption("b", "body", true, "Statements in each function's loop (default 6)");
+        options.addOption("t", "threads", true, "Most threads, doubling from 1 (default the number of processors)");
+        options.addOption("s", "sizes", true, "Program sizes, each half the next (default 3)");
+        options.addOption("r", "rounds", true, "Timed rounds for each size and number of threads (default 3)");
+        Benchmark benchmark = new Benchmark(args, options);
+
+        int functions = benchmark.getInt("functions", 800);
+        int body = benchmark.getInt("body", 6);
+        int threads = benchmark.getInt("threads", Runtime.getRuntime().availableProcessors());
+        int sizes = benchmark.getInt("sizes", 3);
+        int rounds = benchmark.getInt("rounds", 3);
+
+        System.out.println(body + " statements a loop, best of " + rounds + " rounds");
+        for(int size=sizes-1; size>=0; --size) {
+            int count = functions >> size;
+            char[] source = program(count, body).toCharArray();
+            int[] sequential = null;
+            long single = 0;
+            for(int threadCount=1; threadCount<=Math.max(1, threads); threadCount*=2) {
+                Benchmark.Rounds timed = new Benchmark.Rounds(rounds);
+                int[] code = null;
+                while(timed.next()) {
+                    Compiler compiler = new Compiler(new Scanner(source, source.length), 24);
+                    compiler.setParallelism(threadCount);
+                    AST ast = compiler.genAST();
+                    TypeChecker checker = new TypeChecker();
+                    if(compiler.hasError() || !checker.check(ast)) {
+                        System.err.println(compiler.hasError() ? compiler.errorReport() : checker.errorReport());
+                        System.exit(-2);
+                    }
+                    compiler.genSSA(ast);
+                    timed.start();
+                    compiler.optimization(OPTIMIZATIONS, benchmark.getCommandLine(), 24);
+                    compiler.regAlloc(24);
+                    code = compiler.genCode();
+                    timed.stop();
+                    compiler.setParallelism(1);
+                }
+                long best = timed.best();
+                if(sequential == null) {
+                    sequential = code;
+                    single = best;
+                } else if(!Arrays.equals(sequential, code)) {
+                    System.err.println(count + " functions on " + threadCount + " threads generated different code than on 1");
+                    System.exit(-3);
+                }
+                System.out.printf("%6d functions, %2d threads: %10.3f ms, %5.2fx%n", count, threadCount, best / 1e6, (double) single / best);
+            }
+            benchmark.check(Arrays.hashCode(sequential));
+        }
+        benchmark.printChecksum();
+    }
+
+    private static String program(int functions, int body) {
+        String[] statements = {
+            "t = (x + y) * (k - y) + (y + x) * 3;\n",
+            "if (t > s) then\ns = s + t * k;\nelse\ns = s - (x + y) * (k - y);\nfi;\n",
+            "u = x * 4 + k;\n",
+            "s = s + u - (x + y);\n",
+            "if (s > 1000) then\ns = s / 2;\nfi;\n",
+            "t = t + (k - y) * (x + y);\n",
+        };
+
+        StringBuilder program = new StringBuilder();
+        program.append("main\n\n");
+        for(int f=0; f<functions; ++f) {
+            program.append("function f" + f + "(int x, int y) : int {\n");
+            program.append("int k, s, t, u;\n");
+            program.append("s = " + f + ";\nk = 0;\n");
+            program.append("while (k < x) do\n");
+            for(int s=0; s<body; ++s) {
+                program.append(statements[(f + s) % statements.length]);
+            }
+            program.append("k = k + 1;\nod;\n");
+            if(f > 0) program.append("s = s + call f" + (f - 1) / 2 + "(y, k);\n");
+            program.append("return s;\n};\n\n");
+        }
+        program.append("{\ncall printInt(call f" + (functions - 1) + "(3, 1));\ncall println();\n}.\n");
+        return program.toString();
+    }
+}
@@ -0,0 +1,170 @@
+package coco;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+// You need to put jar files in lib/ in your classpath
+import org.apache.commons.cli.*;
+
+import ast.AST;
+
+// Compiles and runs each program in a directory, tests/ by default, and checks what it prints
+// against its "// Expected output:" line. A program runs once with no options and once more for
+// each of its "// Run with:" lines, which give the -o and -nr options that exercise it. Every run
+// is in a JVM of its own, so one that never halts is timed out without taking the rest with it.
+public class ProgramTester {
+
+    private static final String EXPECTED = "// Expected output:";
+    private static final String RUN_WITH = "// Run with:";
+
+    public static void main(String[] args) {
+        Options options = new Options();
+        options.addOption("d", "dir", true, "Directory of programs (default tests)");
+        options.addOption("t", "timeout", true, "Seconds each run may take (default 20)");
+        // A single run, in the JVM the runs are forked into
+        options.addOption("run", "run", true, "Compile and run one program, printing only its output");
+        options.addOption("nr", "reg", true, "Num Regs");
+        options.addOption("o", "opt", true, "Order-sensitive optimization -allowed to have multiple");
+        options.addOption("ib", "inlineBudget", true, "Instructions a function can have for -o inline to inline it (default 24)");
+
+        HelpFormatter formatter = new HelpFormatter();
+        CommandLineParser cmdParser = new DefaultParser();
+        CommandLine cmd = null;
+        try {
+            cmd = cmdParser.parse(options, args);
+        } catch (ParseException e) {
+            formatter.printHelp("All Options", options);
+            System.exit(-1);
+        }
+
+        if (cmd.hasOption("run")) {
+            System.exit(run(cmd));
+        }
+
+        File dir = new File(cmd.getOptionValue("dir", "tests"));
+        long timeout = Long.parseLong(cmd.getOptionValue("timeout", "20"));
+        File[] programs = dir.listFiles((d, name) -> name.endsWith(".coco"));
+        if (programs == null) {
+            System.err.println("Error accessing the test directory: \"" + dir + "\"");
+            System.exit(-3);
+        }
+        Arrays.sort(programs);
+
+        int runs = 0;
+        int failures = 0;
+        for (File program : programs) {
+            String expected = null;
+            List<String> runsWith = new ArrayList<>();
+            runsWith.add("");
+            try {
+                for (String line : Files.readAllLines(program.toPath(), StandardCharsets.UTF_8)) {
+                    if (line.startsWith(EXPECTED)) expected = normalize(line.substring(EXPECTED.length()));
+                    if (line.startsWith(RUN_WITH)) runsWith.add(line.substring(RUN_WITH.length()).trim());
+                }
+            } catch (IOException e) {
+                System.err.println("Error accessing the code file: \"" + program + "\"");
+                System.exit(-3);
+            }
+            if (expected == null) {
+                System.out.println("SKIP " + program.getName() + ": no expected output");
+                continue;
+            }
+            for (String with : runsWith) {
+                ++runs;
+                String got;
+                try {
+                    got = fork(program, with, timeout);
+                } catch (IOException | InterruptedException e) {
+                    got = "error: " + e.getMessage();
+                }
+                if (!expected.equals(got)) {
+                    ++failures;
+                    System.out.println("FAIL " + program.getName() + " [" + with + "]: expected \"" + expected + "\", got \"" + got + "\"");
+                }
+            }
+        }
+        System.out.println((runs - failures) + " of " + runs + " runs passed");
+        System.exit(failures == 0 ? 0 : 1);
+    }
+
+    // What the program printed, or what went wrong
+    private static String fork(File program, String with, long timeout) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(ProgramTester.class.getName());
+        command.add("-run");
+        command.add(program.getPath());
+        if (!with.isEmpty()) command.addAll(Arrays.asList(with.split("\\s+")));
+
+        File out = File.createTempFile("coco", ".out");
+        File err = File.createTempFile("coco", ".err");
+        try {
+            Process process = new ProcessBuilder(command).redirectOutput(out).redirectError(err).start();
+            process.getOutputStream().close();
+            if (!process.waitFor(timeout, TimeUnit.SECONDS)) {
+                process.destroyForcibly().waitFor();
+                return "timed out after " + timeout + "s";
+            }
+            if (process.exitValue() != 0) {
+                List<String> errors = Files.readAllLines(err.toPath(), StandardCharsets.UTF_8);
+                return "exit " + process.exitValue() + (errors.isEmpty() ? "" : ": " + errors.get(0));
+            }
+            return normalize(new String(Files.readAllBytes(out.toPath()), StandardCharsets.UTF_8));
+        } finally {
+            out.delete();
+            err.delete();
+        }
+    }
+
+    private static String normalize(String output) {
+        return String.join(" ", output.trim().split("\\s+"));
+    }
+
+    private static int run(CommandLine cmd) {
+        String sourceFile = cmd.getOptionValue("run");
+        int numRegs = Math.max(2, Math.min(24, Integer.parseInt(cmd.getOptionValue("reg", "24"))));
+        int inlineBudget = Integer.parseInt(cmd.getOptionValue("inlineBudget", "24"));
+        String[] optArgs = cmd.getOptionValues("opt");
+        List<String> optArguments = optArgs != null ? Arrays.asList(optArgs) : new ArrayList<String>();
+
+        Compiler c;
+        try {
+            c = new Compiler(new Scanner(new FileReader(sourceFile)), numRegs);
+        } catch (IOException e) {
+            System.err.println("Error accessing the code file: \"" + sourceFile + "\"");
+            return -3;
+        }
+        AST ast = c.genAST();
+        if (c.hasError()) {
+            System.err.println(c.errorReport().trim());
+            return -4;
+        }
+        types.TypeChecker tc = new types.TypeChecker();
+        if (!tc.check(ast)) {
+            System.err.println(tc.errorReport().trim());
+            return -4;
+        }
+        c.genSSA(ast);
+        c.optimization(optArguments, cmd, inlineBudget);
+        c.regAlloc(numRegs);
+        int[] program = c.genCode();
+        if (c.hasError()) {
+            System.err.println(c.errorReport().trim());
+            return -4;
+        }
+
+        DLX.load(program);
+        try {
+            DLX.execute(new ByteArrayInputStream(new byte[0]));
+        } catch (IOException e) {
+            System.err.println("IOException inside DLX");
+            return -6;
+        }
+        return 0;
+    }
+}
@@ -1,34 +1,51 @@
 package coco;
 
-import java.util.Stack;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+
+import coco.Token.Kind;
 
 public class ReversibleScanner {
 	
-	private Stack<Token> needRereading;
-	private Scanner scanner;
+	private Token[] tokens = new Token[256];
+	// For each IF scanned, where its ELSE is, or its FI if it hasn't one, and for each ELSE where its
+	// FI is, -1 until that's been scanned. A branch not taken can then be seeked past.
+	private int[] closers = new int[256];
+	private Deque<Integer> open = new ArrayDeque<>();
+	private int size = 0;
+	private int cursor = 0;
+	private Iterator<Token> scanner;
+	private Symbols symbols;
 	private Token lastToken;
 	
 	public ReversibleScanner(Scanner scanner) {
 		this.scanner = scanner;
-		needRereading = new Stack<>();
+		this.symbols = scanner.symbols();
+	}
+	
+	// Drains tokens lexed on another thread
+	public ReversibleScanner(TokenPipeline pipeline) {
+		this.scanner = pipeline;
+		this.symbols = pipeline.symbols();
 	}
 	
+	// Tokens scanned ahead by seek or closer are still to be read
 	public boolean hasNext() {
-		return scanner.hasNext();
+		return cursor < size || scanner.hasNext();
 	}
 	
 	public Token next() {
-		if(needRereading.size() > 0) {
-			lastToken = needRereading.pop();
-		} else {
-			lastToken = scanner.next();
+		if(cursor == size) {
+			scan();
 		}
+		lastToken = tokens[cursor++];
 		return lastToken;
 	}
 	
 	public Token peek() {
 		Token token = next();
-		needRereading.add(token);
+		--cursor;
 		return token;
 	}
 	
@@ -37,7 +54,73 @@ public class ReversibleScanner {
 	}
 	
 	public void push(Token token) {
-		needRereading.add(token);
+		if(cursor > 0 && tokens[cursor - 1] == token) {
+			--cursor;
+		} else {
+			add(cursor, token);
+		}
+	}
+	
+	// Position of the next token to be read, to be handed back to reset
+	public int mark() {
+		return cursor;
+	}
+	
+	public void reset(int mark) {
+		cursor = mark;
+	}
+	
+	// Moves to the index-th token of the program, scanning ahead if it hasn't been read yet
+	public void seek(int index) {
+		while(size < index && scanner.hasNext()) {
+			scan();
+		}
+		cursor = Math.min(index, size);
+	}
+	
+	// Position of the ELSE or FI closing the IF or ELSE at index, scanning ahead to it if it hasn't
+	// been read yet, or -1 if the program ends first
+	public int closer(int index) {
+		while(closers[index] < 0 && scanner.hasNext()) {
+			scan();
+		}
+		return closers[index];
+	}
+	
+	public Symbols symbols() {
+		return symbols;
+	}
+	
+	private void scan() {
+		int index = size;
+		Token token = scanner.next();
+		add(index, token);
+		closers[index] = -1;
+		if(token.kind() == Kind.IF) {
+			open.push(index);
+		} else if(token.kind() == Kind.ELSE && !open.isEmpty()) {
+			closers[open.pop()] = index;
+			open.push(index);
+		} else if(token.kind() == Kind.FI && !open.isEmpty()) {
+			closers[open.pop()] = index;
+		}
+	}
+	
+	// A token pushed back that wasn't the one just read goes in at index, moving those after it
+	// along. Where IFs and ELSEs are closed isn't moved with them, so seeking by closer only
+	// works for readers that just push back what they read.
+	private void add(int index, Token token) {
+		if(size == tokens.length) {
+			Token[] grown = new Token[tokens.length * 2];
+			System.arraycopy(tokens, 0, grown, 0, size);
+			tokens = grown;
+			int[] grownClosers = new int[closers.length * 2];
+			System.arraycopy(closers, 0, grownClosers, 0, size);
+			closers = grownClosers;
+		}
+		System.arraycopy(tokens, index, tokens, index + 1, size - index);
+		tokens[index] = token;
+		++size;
 	}
 	
 }
@@ -3,8 +3,16 @@ package coco;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.Reader;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Queue;
 
@@ -13,14 +21,23 @@ public class Scanner implements Iterator<Token> {
     private BufferedReader input;   // buffered reader to read file
     private boolean closed; // flag for whether reader is closed or not
 
+    private char[] buffer;  // whole source when scanning from memory (null when reading input)
+    private int length;     // number of valid chars in buffer
+    private int cursor;     // index of the char after nextChar in buffer
+
     private int lineNum;    // current line number
     private int charPos;    // character offset on current line
     private int prevLineCharPos;
 
     private String scan;    // current lexeme being scanned in
+    private StringBuilder lexeme = new StringBuilder();
+    private char[] scratch = new char[64];  // lexeme copied out for classifying when reading input
     private int nextChar;   // contains the next char (-1 == EOF)
     private Queue<Integer> prevChars = new LinkedList<>();
 
+    private Symbols symbols = new Symbols();    // identifiers seen over the whole compilation
+    private TokenCache replay;      // tokens to hand out instead of lexing (null when lexing)
+
     // reader will be a FileReader over the source file
     public Scanner (Reader reader) {
         input = new BufferedReader(reader);
@@ -29,6 +46,75 @@ public class Scanner implements Iterator<Token> {
         closed = false;
     }
 
+    // source holds the entire program; only the first length chars are scanned
+    public Scanner (char[] source, int length) {
+        buffer = source;
+        this.length = length;
+        cursor = 0;
+        lineNum = 1;
+        charPos = 0;
+        closed = false;
+    }
+
+    // maps the source file and decodes it into a single buffer up front
+    public Scanner (Path source) throws IOException {
+        this(source, false);
+    }
+
+    // with cached, tokens are replayed from the TokenCache next to the source when it was written
+    // for the same contents; otherwise the whole source is lexed and the cache (re)written first
+    public Scanner (Path source, boolean cached) throws IOException {
+        lineNum = 1;
+        charPos = 0;
+        closed = false;
+
+        MappedByteBuffer mapped;
+        try (FileChannel channel = FileChannel.open(source, StandardOpenOption.READ)) {
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        Charset charset = Charset.defaultCharset();
+        byte[] hash = null;
+        Path cacheFile = null;
+        if(cached) {
+            hash = TokenCache.hash(mapped, charset);
+            cacheFile = TokenCache.pathFor(source);
+            replay = TokenCache.open(cacheFile, hash);
+            if(replay != null) {
+                return;
+            }
+        }
+
+        CharBuffer decoded = charset.decode(mapped);
+        buffer = decoded.array();
+        length = decoded.limit();
+        cursor = 0;
+
+        if(cached) {
+            replay = record(hash);
+            buffer = null;
+            try {
+                replay.save(cacheFile);
+            } catch (IOException e) {
+                Error("Failed to write token cache " + cacheFile, e);
+            }
+        }
+    }
+
+    // lexes the whole buffer into a cache to be replayed from the start
+    private TokenCache record (byte[] hash) {
+        // identifiers only get their real ids as they're replayed, same as when lexed on demand
+        Symbols interned = symbols;
+        symbols = new Symbols();
+        List<Token> tokens = new ArrayList<>();
+        Token token;
+        do {
+            token = lex();
+            tokens.add(token);
+        } while(token.kind != Token.Kind.EOF);
+        symbols = interned;
+        return TokenCache.of(hash, tokens);
+    }
+
     // signal an error message
     public void Error (String msg, Exception e) {
         System.err.println("Scanner: Line - " + lineNum + ", Char - " + charPos);
@@ -45,7 +131,10 @@ public class Scanner implements Iterator<Token> {
      */
     private int readChar () {
         try {
-        	if(prevChars.size() > 0) {
+        	if(buffer != null) {
+        		nextChar = cursor < length ? buffer[cursor] : -1;
+        		++cursor;
+        	} else if(prevChars.size() > 0) {
         		nextChar = prevChars.poll();
         	} else {
         		nextChar = input.read();
@@ -71,7 +160,18 @@ public class Scanner implements Iterator<Token> {
     	} else {
     		--charPos;
     	}
-    	prevChars.add(nextChar);
+    	if(buffer != null) {
+    		--cursor;
+    	} else {
+    		prevChars.add(nextChar);
+    	}
+    }
+
+    // only input read through a reader is collected; buffered lexemes are classified in place at the end
+    private void append(int in) {
+    	if(buffer == null) {
+    		lexeme.append((char)in);
+    	}
     }
 
     /*
@@ -97,6 +197,14 @@ public class Scanner implements Iterator<Token> {
             throw new NoSuchElementException();
         }
         
+        Token token = replay != null ? replay.next(symbols) : lex();
+        if(token.kind == Token.Kind.EOF) {
+            closed = true;
+        }
+        return token;
+    }
+
+    private Token lex () {
         int in = readChar();
         
         while((in == ' ') || (in == '\t') || (in == '\n') || (in == '\r')) {
@@ -109,7 +217,7 @@ public class Scanner implements Iterator<Token> {
         		while(in != '\n' && in != -1) {
         			in = readChar();
         		}
-        		return next();
+        		return lex();
         	} else if(next == '*') {
         		int last = 0;
         		while((in != '/' || last != '*') && in != -1) {
@@ -119,22 +227,22 @@ public class Scanner implements Iterator<Token> {
         		if(in == -1) {
         			return new Token("", lineNum, charPos);
         		}
-        		return next();
+        		return lex();
         	} else {
         		reverse();
         	}
         }
         
         if(in == -1) {
-        	closed = true;
         	return Token.EOF(lineNum, charPos);
         }
         
         int startChar = charPos;
         int startLine = lineNum;
+        int start = cursor - 1;
         
-        StringBuilder lexeme = new StringBuilder();
-        lexeme.append((char)in);
+        lexeme.setLength(0);
+        append(in);
         
         switch(in) {
 	        case '^': 
@@ -145,13 +253,13 @@ public class Scanner implements Iterator<Token> {
 	        case '!': 
 	        case '<': 
 	        case '>': 
-	        	lexeme.append(possibleEquals());
+	        	possibleEquals();
 	        	break;
 	        case '+': 
-	        	lexeme.append(incOrEquals());
+	        	incOrEquals();
 	        	break;
 	        case '-': 
-	        	lexeme.append(decOrNumOrEquals());
+	        	decOrNumOrEquals();
 	        	break;
 	        case '(': 
 	        case ')': 
@@ -166,112 +274,111 @@ public class Scanner implements Iterator<Token> {
 	        	break;
         	default: 
         		if(Character.isLetter(in)) {
-        			lexeme.append(identChars());
+        			identChars();
         		} else if(Character.isDigit(in)) {
-        			lexeme.append(decimalNumber());
+        			decimalNumber();
         		} else {
+        			StringBuilder unknown = new StringBuilder();
+        			unknown.append((char)in);
         			while(true) {
         				in = readChar();
         				if((in == ' ') || (in == '\t') || (in == '\n') || (in == '\r') || (in == -1)) break;
-        				lexeme.append(in);
+        				unknown.append(in);
         			}
+        			scan = unknown.toString();
+        			return new Token(scan, startLine, startChar);
         		}
         		break;
         }
         
-        scan = lexeme.toString();
-        Token token = new Token(scan, startLine, startChar);
-        return token;
+        if(buffer != null) {
+        	return new Token(buffer, start, cursor - start, startLine, startChar, symbols);
+        }
+        if(scratch.length < lexeme.length()) {
+        	scratch = new char[lexeme.capacity()];
+        }
+        lexeme.getChars(0, lexeme.length(), scratch, 0);
+        return new Token(scratch, 0, lexeme.length(), startLine, startChar, symbols);
+    }
+
+    public Symbols symbols () {
+        return symbols;
     }
     
-    private StringBuilder identChars() {
-    	int in = readChar();
-    	if(Character.isLetterOrDigit(in) || (in == '_')) {
-    		StringBuilder lexeme = identChars();
-    		lexeme.insert(0, (char)in);
-    		return lexeme;
-    	} else {
-    		if((in == ' ') || (in == '\t') || (in == '\n') || (in == '\r') || (in == -1) || inUseSymbol(in)) {
-        		reverse();
-        		return new StringBuilder();
+    private void identChars() {
+    	while(true) {
+    		int in = readChar();
+    		if(Character.isLetterOrDigit(in) || (in == '_')) {
+    			append(in);
+    		} else if((in == ' ') || (in == '\t') || (in == '\n') || (in == '\r') || (in == -1) || inUseSymbol(in)) {
+    			reverse();
+    			return;
     		} else {
-        		StringBuilder lexeme = identChars();
-        		lexeme.insert(0, (char)in);
-        		return lexeme;
+    			append(in);
     		}
     	}
     }
     
-    private StringBuilder possibleEquals() {
+    private void possibleEquals() {
     	int in = readChar();
-    	StringBuilder lexeme = new StringBuilder();
     	if(in == '=') {
-    		lexeme.append('=');
+    		append('=');
     	} else {
     		reverse();
     	}
-    	return lexeme;
     }
     
-    private StringBuilder incOrEquals() {
+    private void incOrEquals() {
     	int in = readChar();
-    	StringBuilder lexeme = new StringBuilder();
     	if(in == '+') {
-    		lexeme.append('+');
+    		append('+');
     	} else if(in == '=') {
-    		lexeme.append('=');
+    		append('=');
     	} else {
     		reverse();
     	}
-    	return lexeme;
     }
     
-    private StringBuilder decOrNumOrEquals() {
+    private void decOrNumOrEquals() {
     	int in = readChar();
-    	StringBuilder lexeme;
     	if(in == '-') {
-    		lexeme = new StringBuilder();
-    		lexeme.append('-');
+    		append('-');
     	} else if(in == '=') {
-    		lexeme = new StringBuilder();
-    		lexeme.append('=');
+    		append('=');
     	} else if(Character.isDigit(in)) {
-    		lexeme = decimalNumber();
-    		lexeme.insert(0, (char)in);
+    		append(in);
+    		decimalNumber();
     	} else {
-    		lexeme = new StringBuilder();
     		reverse();
     	}
-    	return lexeme;
     }
     
-    private StringBuilder decimalNumber() {
-    	int in = readChar();
-    	StringBuilder lexeme;
-    	if(Character.isDigit(in)) {
-    		lexeme = decimalNumber();
-    		lexeme.insert(0, (char)in);
-    	} else if(in == '.') {
-    		lexeme = number();
-    		lexeme.insert(0, '.');
-    	} else {
-    		lexeme = new StringBuilder();
-    		reverse();
+    private void decimalNumber() {
+    	while(true) {
+    		int in = readChar();
+    		if(Character.isDigit(in)) {
+    			append(in);
+    		} else if(in == '.') {
+    			append('.');
+    			number();
+    			return;
+    		} else {
+    			reverse();
+    			return;
+    		}
     	}
-    	return lexeme;
     }
     
-    private StringBuilder number() {
-    	int in = readChar();
-    	StringBuilder lexeme;
-    	if(Character.isDigit(in)) {
-    		lexeme = number();
-    		lexeme.insert(0, (char)in);
-    	} else {
-    		lexeme = new StringBuilder();
-    		reverse();
+    private void number() {
+    	while(true) {
+    		int in = readChar();
+    		if(Character.isDigit(in)) {
+    			append(in);
+    		} else {
+    			reverse();
+    			return;
+    		}
     	}
-    	return lexeme;
     }
     
     private boolean inUseSymbol(int c) {
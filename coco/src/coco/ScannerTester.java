@@ -2,6 +2,7 @@ package coco;
 
 import java.io.FileReader;
 import java.io.IOException;
+import java.nio.file.Paths;
 
 // IMPORTANT: You need to put jar files in lib/ in your classpath: at the minimum commons-cli-1.5.0.jar
 import org.apache.commons.cli.*;
@@ -11,6 +12,8 @@ public class ScannerTester {
     public static void main (String[] args) {
         Options options = new Options();
         options.addRequiredOption("s", "src", true, "Source File");
+        options.addOption("mm", "mmap", false, "Scan the source file from a memory-mapped buffer");
+        options.addOption("tc", "tokenCache", false, "Replay tokens cached next to the source file, writing the cache if it's missing or stale");
 
 
         HelpFormatter formatter = new HelpFormatter();
@@ -27,7 +30,13 @@ public class ScannerTester {
         String sourceFile = cmd.getOptionValue("src");
 
         try {
-            s = new Scanner(new FileReader(sourceFile));
+            if (cmd.hasOption("tokenCache")) {
+                s = new Scanner(Paths.get(sourceFile), true);
+            } else if (cmd.hasOption("mmap")) {
+                s = new Scanner(Paths.get(sourceFile));
+            } else {
+                s = new Scanner(new FileReader(sourceFile));
+            }
         }
         catch (IOException e) {
             e.printStackTrace();
@@ -0,0 +1,127 @@
+package coco;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.apache.commons.cli.Options;
+
+// Times resolving names through nested scopes with a HashMap per scope chained to its parent
+// (how Table and interpreter.Variables used to work) against the flat ScopedTable
+public class ScopeBenchmark {
+
+    public static void main (String[] args) {
+        Options options = new Options();
+        options.addOption("d", "depth", true, "Depth scopes are nested to (default 32)");
+        options.addOption("l", "locals", true, "Names declared in each scope (default 16)");
+        options.addOption("u", "uses", true, "Lookups made in each scope (default 256)");
+        options.addOption("r", "rounds", true, "Timed rounds for each table (default 10)");
+        Benchmark benchmark = new Benchmark(args, options);
+
+        int depth = benchmark.getInt("depth", 32);
+        int locals = benchmark.getInt("locals", 16);
+        int uses = benchmark.getInt("uses", 256);
+        int rounds = benchmark.getInt("rounds", 10);
+
+        // each scope declares some fresh names and shadows some from the scopes around it,
+        // then uses names from anywhere in the chain, mostly the ones declared nearby
+        Random random = new Random(0);
+        int[][] declared = new int[depth][locals];
+        int[][] used = new int[depth][uses];
+        int next = 0;
+        for(int level=0; level<depth; ++level) {
+            for(int l=0; l<locals; ++l) {
+                if(level > 0 && random.nextInt(4) == 0) {
+                    declared[level][l] = declared[random.nextInt(level)][random.nextInt(locals)];
+                } else {
+                    declared[level][l] = next++;
+                }
+            }
+            for(int u=0; u<uses; ++u) {
+                int from = random.nextInt(4) == 0 ? random.nextInt(level + 1) : level;
+                used[level][u] = declared[from][random.nextInt(locals)];
+            }
+        }
+
+        // both tables have to resolve every use to the same declaration
+        long chainedSum = chained(declared, used);
+        long flatSum = flat(declared, used);
+        if(chainedSum != flatSum) {
+            System.err.println("Tables disagree: " + chainedSum + " and " + flatSum);
+            System.exit(-2);
+        }
+
+        Benchmark.Rounds chainedRounds = new Benchmark.Rounds(rounds);
+        Benchmark.Rounds flatRounds = new Benchmark.Rounds(rounds);
+        while(chainedRounds.next() && flatRounds.next()) {
+            chainedRounds.start();
+            long sum = chained(declared, used);
+            chainedRounds.stop();
+
+            flatRounds.start();
+            sum += flat(declared, used);
+            flatRounds.stop();
+            benchmark.check(sum);
+        }
+        long chainedTime = chainedRounds.best();
+        long flatTime = flatRounds.best();
+
+        long lookups = (long) depth * uses;
+        System.out.println("Depth " + depth + ", " + locals + " locals and " + uses + " uses per scope, best of " + rounds + " rounds");
+        System.out.printf("Chained maps: %8.2f ns/lookup%n", (double) chainedTime / lookups);
+        System.out.printf("Flat table:   %8.2f ns/lookup%n", (double) flatTime / lookups);
+        System.out.printf("Speedup:      %8.2fx%n", (double) chainedTime / flatTime);
+        benchmark.printChecksum();
+    }
+
+    // Sum over every use of the level and index it resolved to
+    private static long chained(int[][] declared, int[][] used) {
+        long sum = 0;
+        Chain scope = null;
+        for(int level=0; level<declared.length; ++level) {
+            scope = new Chain(scope);
+            for(int l=0; l<declared[level].length; ++l) {
+                scope.variables.put(declared[level][l], level * declared[level].length + l);
+            }
+            for(int symbol: used[level]) {
+                sum += scope.get(symbol);
+            }
+        }
+        return sum;
+    }
+
+    private static long flat(int[][] declared, int[][] used) {
+        long sum = 0;
+        ScopedTable<Integer> table = new ScopedTable<>();
+        for(int level=0; level<declared.length; ++level) {
+            table.enterLevel();
+            for(int l=0; l<declared[level].length; ++l) {
+                table.put(declared[level][l], level * declared[level].length + l);
+            }
+            for(int symbol: used[level]) {
+                sum += table.get(symbol);
+            }
+        }
+        for(int level=0; level<declared.length; ++level) {
+            table.exitLevel();
+        }
+        return sum;
+    }
+
+    private static class Chain {
+        private Chain parent;
+        private Map<Integer, Integer> variables = new HashMap<>();
+
+        private Chain(Chain parent) {
+            this.parent = parent;
+        }
+
+        private int get(int symbol) {
+            Integer value = variables.get(symbol);
+            if(value != null) {
+                return value;
+            }
+            return parent.get(symbol);
+        }
+    }
+}
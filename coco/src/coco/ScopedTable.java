@@ -0,0 +1,124 @@
+package coco;
+
+import java.util.Arrays;
+
+// Every scope's bindings in one open-addressed table keyed on symbol id. A slot holds the
+// innermost binding of its symbol stamped with the depth of the scope it was made in, so a
+// lookup is a single probe however deep the scopes go. Binding over an outer scope's entry
+// pushes it onto an undo log that exitLevel pops back to, so scopes allocate nothing.
+public class ScopedTable<V> {
+
+	private int[] keys = new int[64];	// symbol + 1 of the slot, 0 when empty
+	private Object[] values = new Object[64];
+	private int[] depths = new int[64];	// depth the value was bound at, -1 once its scope is gone
+	private int size = 0;
+
+	private int depth = 0;
+	private int[] levels = new int[16];	// undo log length when each open scope was entered
+
+	// Bindings shadowed or added by the open scopes, newest last
+	private int[] undoSymbols = new int[64];
+	private Object[] undoValues = new Object[64];
+	private int[] undoDepths = new int[64];
+	private int undoLength = 0;
+
+	// Innermost binding of symbol, null if it isn't bound in any open scope
+	@SuppressWarnings("unchecked")
+	public V get(int symbol) {
+		int slot = find(symbol);
+		if(keys[slot] == 0 || depths[slot] < 0) {
+			return null;
+		}
+		return (V) values[slot];
+	}
+
+	public boolean has(int symbol) {
+		int slot = find(symbol);
+		return keys[slot] != 0 && depths[slot] >= 0;
+	}
+
+	// Whether symbol is bound in the innermost scope, rather than one it's nested in
+	public boolean hasLocal(int symbol) {
+		int slot = find(symbol);
+		return keys[slot] != 0 && depths[slot] == depth;
+	}
+
+	// Binds symbol in the innermost scope, replacing what it was bound to there
+	public void put(int symbol, V value) {
+		int slot = find(symbol);
+		if(keys[slot] == 0) {
+			keys[slot] = symbol + 1;
+			depths[slot] = -1;
+			if(++size * 2 > keys.length) {
+				rehash();
+				slot = find(symbol);
+			}
+		}
+		if(depths[slot] != depth) {
+			// nothing encloses the outermost scope, so its bindings never need undoing
+			if(depth > 0) log(symbol, values[slot], depths[slot]);
+			depths[slot] = depth;
+		}
+		values[slot] = value;
+	}
+
+	public void enterLevel() {
+		if(depth == levels.length) {
+			levels = Arrays.copyOf(levels, depth * 2);
+		}
+		levels[depth++] = undoLength;
+	}
+
+	public void exitLevel() {
+		int start = levels[--depth];
+		while(undoLength > start) {
+			--undoLength;
+			int slot = find(undoSymbols[undoLength]);
+			values[slot] = undoValues[undoLength];
+			depths[slot] = undoDepths[undoLength];
+			undoValues[undoLength] = null;
+		}
+	}
+
+	// Slot symbol is in, or the empty one it would go in. Slots are never emptied, a symbol
+	// whose scopes have all gone keeps its slot with depth -1, so probes don't need tombstones.
+	private int find(int symbol) {
+		int mask = keys.length - 1;
+		int hash = symbol * 0x9E3779B9;
+		int slot = (hash ^ hash >>> 16) & mask;
+		while(keys[slot] != 0 && keys[slot] != symbol + 1) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	private void log(int symbol, Object value, int depth) {
+		if(undoLength == undoSymbols.length) {
+			undoSymbols = Arrays.copyOf(undoSymbols, undoLength * 2);
+			undoValues = Arrays.copyOf(undoValues, undoLength * 2);
+			undoDepths = Arrays.copyOf(undoDepths, undoLength * 2);
+		}
+		undoSymbols[undoLength] = symbol;
+		undoValues[undoLength] = value;
+		undoDepths[undoLength] = depth;
+		++undoLength;
+	}
+
+	private void rehash() {
+		int[] oldKeys = keys;
+		Object[] oldValues = values;
+		int[] oldDepths = depths;
+		keys = new int[oldKeys.length * 2];
+		values = new Object[oldKeys.length * 2];
+		depths = new int[oldKeys.length * 2];
+		for(int old=0; old<oldKeys.length; ++old) {
+			if(oldKeys[old] != 0) {
+				int slot = find(oldKeys[old] - 1);
+				keys[slot] = oldKeys[old];
+				values[slot] = oldValues[old];
+				depths[slot] = oldDepths[old];
+			}
+		}
+	}
+
+}
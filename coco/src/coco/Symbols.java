@@ -0,0 +1,85 @@
+package coco;
+
+import java.util.Arrays;
+
+public class Symbols {
+	
+	private String[] names = new String[64];
+	private int[] hashes = new int[64];
+	private int size = 0;
+
+	// Open-addressed on the characters of a name so a lexeme can be looked up before it's a String
+	private int[] slots = new int[128];	// id + 1 of the name hashed there, 0 when empty
+	
+	// Returns the id of name, giving it the next dense id if it hasn't been seen
+	public int intern(String name) {
+		return intern(name.toCharArray(), 0, name.length(), name);
+	}
+
+	// Same as intern(String) but only allocates the name the first time it's seen
+	public int intern(char[] source, int offset, int length) {
+		return intern(source, offset, length, null);
+	}
+
+	public String name(int id) {
+		if(id < 0 || id >= size) {
+			throw new IndexOutOfBoundsException("No symbol " + id);
+		}
+		return names[id];
+	}
+
+	private int intern(char[] source, int offset, int length, String name) {
+		int hash = 0;
+		for(int i=offset; i<offset+length; ++i) {
+			hash = 31 * hash + source[i];
+		}
+
+		int mask = slots.length - 1;
+		int slot = hash & mask;
+		while(slots[slot] != 0) {
+			int id = slots[slot] - 1;
+			if(hashes[id] == hash && matches(names[id], source, offset, length)) {
+				return id;
+			}
+			slot = (slot + 1) & mask;
+		}
+
+		if(size == names.length) {
+			names = Arrays.copyOf(names, size * 2);
+			hashes = Arrays.copyOf(hashes, size * 2);
+		}
+		int id = size++;
+		names[id] = name != null ? name : new String(source, offset, length);
+		hashes[id] = hash;
+		slots[slot] = id + 1;
+		if(size * 2 > slots.length) {
+			rehash();
+		}
+		return id;
+	}
+	
+	private void rehash() {
+		slots = new int[slots.length * 2];
+		int mask = slots.length - 1;
+		for(int id=0; id<size; ++id) {
+			int slot = hashes[id] & mask;
+			while(slots[slot] != 0) {
+				slot = (slot + 1) & mask;
+			}
+			slots[slot] = id + 1;
+		}
+	}
+
+	private static boolean matches(String name, char[] source, int offset, int length) {
+		if(name.length() != length) {
+			return false;
+		}
+		for(int i=0; i<length; ++i) {
+			if(name.charAt(i) != source[offset + i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+}
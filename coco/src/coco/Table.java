@@ -1,43 +1,37 @@
 package coco;
 
-import java.util.Map;
+import types.Type;
 
 public class Table {
 	
-	private Table parent;
-	private Map<String, Variable> variables;
+	private ScopedTable<Variable> variables = new ScopedTable<>();
 	
-	public Table(Table parent, Map<String, Variable> variables) {
-		this.parent = parent;
-		this.variables = variables;
-	}
-	
-	public String get(Token ident) throws NonexistantVariableException {
-		if(variables.containsKey(ident.lexeme())) {
-			return variables.get(ident.lexeme()).type;
-		} else {
-			if(parent != null) {
-				return parent.get(ident);
-			} else {
-				throw new NonexistantVariableException(ident);
-			}
+	public Type get(Token ident) throws NonexistantVariableException {
+		Variable variable = variables.get(ident.symbol());
+		if(variable == null) {
+			throw new NonexistantVariableException(ident);
 		}
+		return variable.type;
 	}
 	
 	public boolean has(Token name) {
-		try {
-			get(name);
-			return true;
-		} catch(NonexistantVariableException e) {
-			return false;
-		}
+		return variables.has(name.symbol());
 	}
 	
-	public void add(Token name, String type) throws RedefinitionException {
-		if(variables.containsKey(name.lexeme())) {
+	// Names can shadow ones from outer scopes but not be declared twice in the same one
+	public void add(Token name, Type type) throws RedefinitionException {
+		if(variables.hasLocal(name.symbol())) {
 			throw new RedefinitionException(name);
 		}
-		variables.put(name.lexeme(), new Variable(type));
+		variables.put(name.symbol(), new Variable(type));
+	}
+	
+	public void enterLevel() {
+		variables.enterLevel();
+	}
+	
+	public void exitLevel() {
+		variables.exitLevel();
 	}
 	
 	/* public String addAlias(String name) {
@@ -49,20 +43,16 @@ public class Table {
 			}
 		}
 	} */
-	
-	protected Table getParent() {
-		return parent;
-	}
 
 }
 
 
 class Variable {
 	
-	public String type;
+	public Type type;
 	public int nextIndex = 0;
 	
-	public Variable(String type) {
+	public Variable(Type type) {
 		this.type = type;
 	}
 	
@@ -1,5 +1,6 @@
 package coco;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -109,6 +110,10 @@ public class Token implements Location {
             return defaultLexeme != null;
         }
 
+        public String defaultLexeme () {
+            return defaultLexeme;
+        }
+
         // OPTIONAL: convenience function - boolean matches (String lexeme)
         //           to report whether a Token.Kind has the given lexeme
         //           may be useful
@@ -118,6 +123,7 @@ public class Token implements Location {
     private int charPos;
     Kind kind;  // package-private
     private String lexeme = "";
+    private int symbol = -1;    // interned id of an IDENT lexeme
     private static Map<String, Kind> map = new HashMap<>();
     static {
         for(Kind kind: Kind.values()) {
@@ -127,6 +133,54 @@ public class Token implements Location {
         }
     }
 
+    // perfect hash over the static lexemes for classifying straight out of a char buffer;
+    // the multiplier is searched for once so that no two lexemes share a slot
+    private static Kind[] staticKinds = new Kind[256];
+    private static int multiplier;
+    private static int longestStatic;
+    static {
+        for(multiplier = 3; ; multiplier += 2) {
+        	Arrays.fill(staticKinds, null);
+        	boolean collision = false;
+        	for(Kind kind: map.values()) {
+        		char[] chars = kind.defaultLexeme.toCharArray();
+        		int slot = slot(chars, 0, chars.length);
+        		if(staticKinds[slot] != null) {
+        			collision = true;
+        			break;
+        		}
+        		staticKinds[slot] = kind;
+        		longestStatic = Math.max(longestStatic, chars.length);
+        	}
+        	if(!collision) break;
+        }
+    }
+
+    private static int slot (char[] source, int offset, int length) {
+        int hash = length;
+        for(int i=offset; i<offset+length; ++i) {
+        	hash = hash * multiplier + source[i];
+        }
+        return (hash ^ (hash >>> 16)) & (staticKinds.length - 1);
+    }
+
+    // kind of a keyword or operator, null if the chars aren't one
+    static Kind staticKind (char[] source, int offset, int length) {
+        if(length == 0 || length > longestStatic) {
+        	return null;
+        }
+        Kind kind = staticKinds[slot(source, offset, length)];
+        if(kind == null || kind.defaultLexeme.length() != length) {
+        	return null;
+        }
+        for(int i=0; i<length; ++i) {
+        	if(kind.defaultLexeme.charAt(i) != source[offset + i]) {
+        		return null;
+        	}
+        }
+        return kind;
+    }
+
 
     // TODO: implement remaining factory functions for handling special cases (EOF below)
 
@@ -173,6 +227,41 @@ public class Token implements Location {
         this.lexeme = "Unrecognized lexeme: " + lexeme;
     }
 
+    // lexeme is the length chars of source at offset; only literals and errors get a new String,
+    // identifiers are interned into symbols without one once they've been seen
+    Token (char[] source, int offset, int length, int lineNum, int charPos, Symbols symbols) {
+        this.lineNum = lineNum;
+        this.charPos = charPos;
+
+        Kind kind = staticKind(source, offset, length);
+        if(kind != null) {
+        	this.kind = kind;
+        	this.lexeme = kind.defaultLexeme;
+        } else if(isIntVal(source, offset, length)) {
+        	this.kind = Kind.INT_VAL;
+        	this.lexeme = new String(source, offset, length);
+        } else if(isFloatVal(source, offset, length)) {
+        	this.kind = Kind.FLOAT_VAL;
+        	this.lexeme = new String(source, offset, length);
+        } else if(isIdent(source, offset, length)) {
+        	this.kind = Kind.IDENT;
+        	this.symbol = symbols.intern(source, offset, length);
+        	this.lexeme = symbols.name(symbol);
+        } else {
+        	this.kind = Kind.ERROR;
+        	this.lexeme = "Unrecognized lexeme: " + new String(source, offset, length);
+        }
+    }
+
+    // a token exactly as it was scanned before, for replaying a TokenCache
+    Token (Kind kind, String lexeme, int symbol, int lineNum, int charPos) {
+        this.lineNum = lineNum;
+        this.charPos = charPos;
+        this.kind = kind;
+        this.lexeme = lexeme;
+        this.symbol = symbol;
+    }
+
     public int lineNumber () {
         return lineNum;
     }
@@ -189,6 +278,10 @@ public class Token implements Location {
         return this.kind;
     }
 
+    public int symbol () {
+        return this.symbol;
+    }
+
     // TODO: function to query a token about its kind - boolean is (Token.Kind kind)
     
     private boolean isIntVal(String lexeme) {
@@ -236,6 +329,61 @@ public class Token implements Location {
     	return true;
     }
 
+    private static boolean isIntVal(char[] source, int offset, int length) {
+    	if(length == 0) return false;
+    	
+    	int index = offset;
+    	if(source[index] == '-') {
+    		++index;
+    	}
+    	
+    	while(index < offset + length) {
+    		if(!Character.isDigit(source[index])) {
+    			return false;
+    		}
+    		++index;
+    	}
+    	return true;
+    }
+    
+    // same as splitting on '.' like isFloatVal(String), where trailing empty parts are dropped
+    private static boolean isFloatVal(char[] source, int offset, int length) {
+    	int end = offset + length;
+    	while(end > offset && source[end - 1] == '.') {
+    		--end;
+    	}
+    	
+    	int period = -1;
+    	for(int i=offset; i<end; ++i) {
+    		if(source[i] == '.') {
+    			if(period != -1) return false;
+    			period = i;
+    		}
+    	}
+    	if(period == -1) return false;
+    	
+    	if(!isIntVal(source, offset, period - offset)) return false;
+    	
+    	for(int i=period+1; i<end; ++i) {
+    		if(!Character.isDigit(source[i])) return false;
+    	}
+    	
+    	return true;
+    }
+    
+    private static boolean isIdent(char[] source, int offset, int length) {
+    	if((length == 0) || !Character.isLetter(source[offset])) {
+    		return false;
+    	}
+    	
+    	for(int i=offset+1; i<offset+length; ++i) {
+    		if(!Character.isLetterOrDigit(source[i]) && (source[i] != '_')) {
+    			return false;
+    		}
+    	}
+    	return true;
+    }
+
     // OPTIONAL: add any additional helper or convenience methods
     //           that you find make for a cleaner design
 
@@ -0,0 +1,99 @@
+package coco;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.commons.cli.Options;
+
+// Times classifying lexemes by building a String and looking it up (Token(String, ...))
+// against classifying them straight out of the char buffer (Token(char[], ...))
+public class TokenBenchmark {
+
+    public static void main (String[] args) {
+        Options options = new Options();
+        options.addOption("n", "tokens", true, "Number of lexemes in the generated corpus (default 1000000)");
+        options.addOption("r", "rounds", true, "Timed rounds over the corpus for each path (default 10)");
+        options.addOption("k", "keywords", true, "Percent of lexemes that are keywords or operators (default 80)");
+        Benchmark benchmark = new Benchmark(args, options);
+
+        int count = benchmark.getInt("tokens", 1000000);
+        int rounds = benchmark.getInt("rounds", 10);
+        int keywords = benchmark.getInt("keywords", 80);
+
+        List<String> lexemes = new ArrayList<>();
+        for(Token.Kind kind: Token.Kind.values()) {
+            if(kind.hasStaticLexeme() && !kind.defaultLexeme().isEmpty()) {
+                lexemes.add(kind.defaultLexeme());
+            }
+        }
+
+        // lexemes laid out one after another in a single buffer like a mapped source
+        Random random = new Random(0);
+        StringBuilder source = new StringBuilder();
+        int[] offsets = new int[count];
+        int[] lengths = new int[count];
+        for(int i=0; i<count; ++i) {
+            String lexeme;
+            int roll = random.nextInt(100);
+            if(roll < keywords) {
+                lexeme = lexemes.get(random.nextInt(lexemes.size()));
+            } else if(roll < keywords + (100 - keywords) * 3 / 4) {
+                lexeme = "var" + random.nextInt(64);
+            } else if(random.nextBoolean()) {
+                lexeme = Integer.toString(random.nextInt(1000));
+            } else {
+                lexeme = random.nextInt(1000) + "." + random.nextInt(1000);
+            }
+            offsets[i] = source.length();
+            lengths[i] = lexeme.length();
+            source.append(lexeme).append(' ');
+        }
+        char[] buffer = source.toString().toCharArray();
+
+        // both paths have to agree before their times mean anything
+        Symbols check = new Symbols();
+        for(int i=0; i<count; ++i) {
+            Token string = new Token(new String(buffer, offsets[i], lengths[i]), 0, 0);
+            Token chars = new Token(buffer, offsets[i], lengths[i], 0, 0, check);
+            if(string.kind() != chars.kind() || !string.lexeme().equals(chars.lexeme())) {
+                System.err.println("Paths disagree on \"" + new String(buffer, offsets[i], lengths[i]) + "\"");
+                System.exit(-2);
+            }
+        }
+
+        Benchmark.Rounds stringRounds = new Benchmark.Rounds(rounds);
+        Benchmark.Rounds charRounds = new Benchmark.Rounds(rounds);
+        while(stringRounds.next() && charRounds.next()) {
+            Symbols symbols = new Symbols();
+            long sum = 0;
+            stringRounds.start();
+            for(int i=0; i<count; ++i) {
+                Token token = new Token(new String(buffer, offsets[i], lengths[i]), 0, 0);
+                if(token.kind() == Token.Kind.IDENT) {
+                    sum += symbols.intern(token.lexeme());
+                }
+                sum += token.kind().ordinal();
+            }
+            stringRounds.stop();
+
+            symbols = new Symbols();
+            charRounds.start();
+            for(int i=0; i<count; ++i) {
+                Token token = new Token(buffer, offsets[i], lengths[i], 0, 0, symbols);
+                sum += token.symbol() + 1;
+                sum += token.kind().ordinal();
+            }
+            charRounds.stop();
+            benchmark.check(sum);
+        }
+        long stringTime = stringRounds.best();
+        long charTime = charRounds.best();
+
+        System.out.println("Lexemes: " + count + " (" + keywords + "% keywords/operators), best of " + rounds + " rounds");
+        System.out.printf("String lookup: %8.2f ns/token%n", (double) stringTime / count);
+        System.out.printf("Char buffer:   %8.2f ns/token%n", (double) charTime / count);
+        System.out.printf("Speedup:       %8.2fx%n", (double) stringTime / charTime);
+        benchmark.printChecksum();
+    }
+}
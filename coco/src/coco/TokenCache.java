@@ -0,0 +1,232 @@
+package coco;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Token stream of a source file saved next to it so later runs can skip lexing.
+//
+// Layout (big-endian ints):
+//   header:  magic, version, 32 byte SHA-256 of the source, token count, lexeme count
+//   tokens:  kind ordinal, lexeme id (-1 for the kind's own lexeme), line, char position
+//   lexemes: length, then that many UTF-16 chars
+// Tokens sit at a fixed offset so they're read straight out of the mapped file.
+public class TokenCache {
+
+	static final int MAGIC = 0x434F4354;	// "COCT"
+	static final int FORMAT = 1;
+	static final int VERSION = version();
+	static final int HASH_SIZE = 32;
+	static final int HEADER_SIZE = 4 + 4 + HASH_SIZE + 4 + 4;
+	static final int TOKEN_INTS = 4;
+
+	private static final Token.Kind[] kinds = Token.Kind.values();
+
+	// Kinds are saved by ordinal, so the version covers their names in order as well as the format
+	private static int version() {
+		int version = FORMAT;
+		for(Token.Kind kind: Token.Kind.values()) {
+			version = version * 31 + kind.name().hashCode();
+		}
+		return version;
+	}
+
+	private ByteBuffer contents;	// the whole cache as it's laid out in the file
+	private IntBuffer tokens;
+	private int count;
+	private String[] lexemes;
+	private int[] symbols;	// symbol id of each lexeme, -1 until an IDENT with it is replayed
+	private int index = 0;
+
+	private TokenCache(ByteBuffer contents, IntBuffer tokens, int count, String[] lexemes) {
+		this.contents = contents;
+		this.tokens = tokens;
+		this.count = count;
+		this.lexemes = lexemes;
+		symbols = new int[lexemes.length];
+		Arrays.fill(symbols, -1);
+	}
+
+	public static Path pathFor(Path source) {
+		return source.resolveSibling(source.getFileName() + ".tokens");
+	}
+
+	// Covers the charset too since the same bytes decode differently under another one
+	public static byte[] hash(ByteBuffer source, Charset charset) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			digest.update(source.duplicate());
+			digest.update(charset.name().getBytes(StandardCharsets.UTF_8));
+			return digest.digest();
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException("SHA-256 unavailable", e);
+		}
+	}
+
+	// Maps the cache, or returns null if there isn't one for a source with this hash or it can't be
+	// read, so the source gets lexed instead
+	public static TokenCache open(Path cache, byte[] hash) {
+		MappedByteBuffer mapped;
+		try (FileChannel channel = FileChannel.open(cache, StandardOpenOption.READ)) {
+			if(channel.size() > Integer.MAX_VALUE) {
+				return null;
+			}
+			mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		} catch (IOException e) {
+			return null;
+		}
+		return read(mapped, hash);
+	}
+
+	// Cache of tokens lexed from a source with this hash, the whole stream EOF included
+	public static TokenCache of(byte[] hash, List<Token> tokens) {
+		return read(encode(hash, tokens), hash);
+	}
+
+	private static TokenCache read(ByteBuffer mapped, byte[] hash) {
+		ByteBuffer contents = mapped.duplicate();
+		if(mapped.remaining() < HEADER_SIZE) {
+			return null;
+		}
+		if(mapped.getInt() != MAGIC || mapped.getInt() != VERSION) {
+			return null;
+		}
+		byte[] cached = new byte[HASH_SIZE];
+		mapped.get(cached);
+		if(!MessageDigest.isEqual(cached, hash)) {
+			return null;
+		}
+		int count = mapped.getInt();
+		int lexemeCount = mapped.getInt();
+		if(count < 0 || lexemeCount < 0 || (long) count * TOKEN_INTS * 4 > mapped.remaining()) {
+			return null;
+		}
+
+		ByteBuffer tokens = mapped.slice();
+		tokens.limit(count * TOKEN_INTS * 4);
+		mapped.position(mapped.position() + count * TOKEN_INTS * 4);
+		// A body that's been damaged since it was hashed still has to replay without going out of
+		// bounds, and ending in EOF stops the scanner before it runs off the end
+		IntBuffer saved = tokens.asIntBuffer();
+		for(int at=0; at<count*TOKEN_INTS; at+=TOKEN_INTS) {
+			int kind = saved.get(at);
+			int lexeme = saved.get(at + 1);
+			if(kind < 0 || kind >= kinds.length || lexeme < -1 || lexeme >= lexemeCount) return null;
+		}
+		if(count == 0 || saved.get((count - 1) * TOKEN_INTS) != Token.Kind.EOF.ordinal()) {
+			return null;
+		}
+
+		String[] lexemes = new String[lexemeCount];
+		for(int i=0; i<lexemeCount; ++i) {
+			if(mapped.remaining() < 4) return null;
+			int length = mapped.getInt();
+			if(length < 0 || (long) length * 2 > mapped.remaining()) return null;
+			char[] chars = new char[length];
+			mapped.asCharBuffer().get(chars);
+			mapped.position(mapped.position() + length * 2);
+			lexemes[i] = new String(chars);
+		}
+		if(mapped.hasRemaining()) {
+			return null;
+		}
+		return new TokenCache(contents, tokens.asIntBuffer(), count, lexemes);
+	}
+
+	// Identifiers are interned as they're replayed so their ids come out as if they'd been lexed
+	public Token next(Symbols table) {
+		int at = index++ * TOKEN_INTS;
+		Token.Kind kind = kinds[tokens.get(at)];
+		int lexeme = tokens.get(at + 1);
+		int lineNum = tokens.get(at + 2);
+		int charPos = tokens.get(at + 3);
+
+		if(lexeme == -1) {
+			return new Token(kind, kind.defaultLexeme(), -1, lineNum, charPos);
+		}
+		if(kind == Token.Kind.IDENT) {
+			if(symbols[lexeme] == -1) {
+				symbols[lexeme] = table.intern(lexemes[lexeme]);
+			}
+			int symbol = symbols[lexeme];
+			return new Token(kind, table.name(symbol), symbol, lineNum, charPos);
+		}
+		return new Token(kind, lexemes[lexeme], -1, lineNum, charPos);
+	}
+
+	private static ByteBuffer encode(byte[] hash, List<Token> tokens) {
+		Map<String, Integer> ids = new HashMap<>();
+		List<String> lexemes = new ArrayList<>();
+		int[] lexemeIds = new int[tokens.size()];
+		int lexemeBytes = 0;
+		for(int i=0; i<tokens.size(); ++i) {
+			Token token = tokens.get(i);
+			if(token.lexeme().equals(token.kind().defaultLexeme())) {
+				lexemeIds[i] = -1;
+				continue;
+			}
+			Integer id = ids.get(token.lexeme());
+			if(id == null) {
+				id = lexemes.size();
+				ids.put(token.lexeme(), id);
+				lexemes.add(token.lexeme());
+				lexemeBytes += 4 + token.lexeme().length() * 2;
+			}
+			lexemeIds[i] = id;
+		}
+
+		ByteBuffer out = ByteBuffer.allocate(HEADER_SIZE + tokens.size() * TOKEN_INTS * 4 + lexemeBytes);
+		out.putInt(MAGIC);
+		out.putInt(VERSION);
+		out.put(hash);
+		out.putInt(tokens.size());
+		out.putInt(lexemes.size());
+		for(int i=0; i<tokens.size(); ++i) {
+			Token token = tokens.get(i);
+			out.putInt(token.kind().ordinal());
+			out.putInt(lexemeIds[i]);
+			out.putInt(token.lineNumber());
+			out.putInt(token.charPosition());
+		}
+		for(String lexeme: lexemes) {
+			out.putInt(lexeme.length());
+			for(int i=0; i<lexeme.length(); ++i) {
+				out.putChar(lexeme.charAt(i));
+			}
+		}
+		out.flip();
+		return out;
+	}
+
+	// Written to a temporary file first so a reader never maps a half written cache
+	public void save(Path cache) throws IOException {
+		ByteBuffer out = contents.duplicate();
+		Path temp = Files.createTempFile(cache.toAbsolutePath().getParent(), cache.getFileName().toString(), ".tmp");
+		try {
+			try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+				while(out.hasRemaining()) {
+					channel.write(out);
+				}
+			}
+			Files.move(temp, cache, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+	}
+
+}
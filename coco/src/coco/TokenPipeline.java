@@ -0,0 +1,122 @@
+package coco;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+// Runs a Scanner on its own thread, handing tokens over in batches through a bounded ring
+// so lexing overlaps with parsing. Tokens come out in the same order the Scanner makes them.
+public class TokenPipeline implements Iterator<Token> {
+
+	static final int BATCH_SIZE = 256;
+	static final int BATCHES = 16;
+
+	private Scanner scanner;
+	private BlockingQueue<Token[]> ring = new ArrayBlockingQueue<>(BATCHES);
+	private Thread lexer;
+	private volatile RuntimeException failure;
+
+	private Token[] batch = new Token[0];
+	private int index = 0;
+	private boolean closed = false;
+	private long waitTime = 0;
+
+	public TokenPipeline(Scanner scanner) {
+		this.scanner = scanner;
+	}
+
+	// Like Scanner, there are more tokens until EOF has been handed out
+	@Override
+	public boolean hasNext() {
+		return !closed;
+	}
+
+	@Override
+	public Token next() {
+		if(closed) {
+			throw new NoSuchElementException();
+		}
+		if(index == batch.length) {
+			batch = take();
+			index = 0;
+		}
+		Token token = batch[index++];
+		if(token.kind() == Token.Kind.EOF) {
+			closed = true;
+		}
+		return token;
+	}
+
+	// The lexer interns identifiers as it goes, so nothing else may add symbols once it's started
+	public Symbols symbols() {
+		return scanner.symbols();
+	}
+
+	// Nanoseconds next() spent blocked on an empty ring
+	public long waitTime() {
+		return waitTime;
+	}
+
+	// Stops the lexer if the parser gave up before reaching EOF
+	public void close() {
+		if(lexer != null) {
+			lexer.interrupt();
+		}
+	}
+
+	private Token[] take() {
+		// started on the first token so anything set up before parsing sees the symbols as they were
+		if(lexer == null) {
+			lexer = new Thread(this::lex, "lexer");
+			lexer.setDaemon(true);
+			lexer.start();
+		}
+
+		Token[] next = ring.poll();
+		if(next == null) {
+			long start = System.nanoTime();
+			try {
+				next = ring.take();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException("Interrupted waiting on the lexer", e);
+			} finally {
+				waitTime += System.nanoTime() - start;
+			}
+		}
+		if(next.length == 0) {
+			throw failure;
+		}
+		return next;
+	}
+
+	private void lex() {
+		try {
+			Token[] batch = new Token[BATCH_SIZE];
+			int size = 0;
+			while(scanner.hasNext()) {
+				batch[size++] = scanner.next();
+				if(size == BATCH_SIZE) {
+					ring.put(batch);
+					batch = new Token[BATCH_SIZE];
+					size = 0;
+				}
+			}
+			if(size > 0) {
+				ring.put(Arrays.copyOf(batch, size));
+			}
+		} catch (InterruptedException e) {
+			return;
+		} catch (RuntimeException e) {
+			failure = e;
+			try {
+				ring.put(new Token[0]);
+			} catch (InterruptedException e1) {
+				return;
+			}
+		}
+	}
+
+}
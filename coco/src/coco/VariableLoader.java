@@ -7,6 +7,7 @@ import java.util.Set;
 
 import code.Code;
 import code.Op;
+import ir.Operand;
 
 public class VariableLoader {
 	
@@ -14,7 +15,6 @@ public class VariableLoader {
 	private Map<String, Integer> funcVarOffsets;
 	private Map<String, Integer> globalVarOffsets;
 	private Map<String, Integer> regAllocs;
-	private Set<Integer> crossAllocedRegs;
 	private int currentReg = 25;
 	
 	public VariableLoader(List<Code> code, Map<String, Integer> regAllocs, Map<String, Integer> funcVarOffsets, Map<String, Integer> globalVarOffsets) {
@@ -22,16 +22,11 @@ public class VariableLoader {
 		this.regAllocs = regAllocs;
 		this.funcVarOffsets = funcVarOffsets;
 		this.globalVarOffsets = globalVarOffsets;
-		
-		crossAllocedRegs = new HashSet<>();
-		for(String funcVar: funcVarOffsets.keySet()) {
-			for(String globalVar: globalVarOffsets.keySet()) {
-				if(regAllocs.get(funcVar) == regAllocs.get(globalVar)) {
-					crossAllocedRegs.add(regAllocs.get(globalVar));
-					break;
-				}
-			}
-		}
+	}
+	
+	// Operands are loaded by name, constants are never in a register or frame
+	public int load(Operand var) {
+		return load(var.toString());
 	}
 	
 	public int load(String var) {
@@ -41,16 +36,28 @@ public class VariableLoader {
 		return specialLoad(var, currentReg);
 	}
 	
+	public void push(int reg, Operand var) {
+		if(var != null) push(reg, var.toString());
+	}
+	
 	public void push(int reg, String var) {
 		if(reg == 25 || reg == 26) {
 			specialPush(reg, var);
 		}
 	}
 	
+	public boolean isSpilled(Operand var) {
+		return isSpilled(var.toString());
+	}
+	
 	public boolean isSpilled(String var) {
 		return !regAllocs.containsKey(var) || regAllocs.get(var) == 0;
 	}
 	
+	public int specialLoad(Operand var, int reg) {
+		return specialLoad(var.toString(), reg);
+	}
+	
 	public int specialLoad(String var, int reg) {
 		if(funcVarOffsets.containsKey(var)) {
 			code.add(new Code(Op.LDW, reg, Compiler.FRAME_REG, funcVarOffsets.get(var)));
@@ -63,6 +70,10 @@ public class VariableLoader {
 		}
 	}
 	
+	public void specialPush(int reg, Operand var) {
+		specialPush(reg, var.toString());
+	}
+	
 	public void specialPush(int reg, String var) {
 		int pointerReg;
 		int offset;
@@ -76,48 +87,63 @@ public class VariableLoader {
 		code.add(new Code(Op.STW, reg, pointerReg, offset));
 	}
 	
+	public void install(Operand var, int offset) {
+		install(var.toString(), offset);
+	}
+	
+	// Moves a value passed on the stack (a parameter or a call's result) to where var lives. A spilled
+	// var has an allocation of 0, so it's stored to its slot rather than loaded into R0.
 	public void install(String var, int offset) {
-		if(regAllocs.containsKey(var)) {
+		if(!isSpilled(var)) {
 			code.add(new Code(Op.LDW, regAllocs.get(var), Compiler.STACK_REG, offset));
-		} else if(funcVarOffsets.containsKey(var)) {
+		} else if(funcVarOffsets.containsKey(var) || globalVarOffsets.containsKey(var)) {
 			code.add(new Code(Op.LDW, Compiler.TEMP_REG, Compiler.STACK_REG, offset));
-			code.add(new Code(Op.STW, Compiler.TEMP_REG, Compiler.FRAME_REG, funcVarOffsets.get(var)));
+			specialPush(Compiler.TEMP_REG, var);
 		}
 		// else: unused parameter
 	}
 	
-	public void save() {
+	// Before calling a function that may overwrite the registers clobbered and read or assign the
+	// globals used, which need to be in memory for it. Only what's live across the call needs
+	// keeping, as a register shared with a dead variable may hold something else by now.
+	public void save(Set<Integer> clobbered, Set<String> used, Set<String> liveBefore, Set<String> liveAfter) {
 		for(String var: funcVarOffsets.keySet()) {
-			if(!isSpilled(var)) {
+			if(!isSpilled(var) && clobbered.contains(regAllocs.get(var)) && liveAfter.contains(var)) {
+				specialPush(regAllocs.get(var), var);
+			}
+		}
+		for(String var: globalVarOffsets.keySet()) {
+			if(isSpilled(var) || funcVarOffsets.containsKey(var)) continue;
+			if((clobbered.contains(regAllocs.get(var)) && liveAfter.contains(var)) || (used.contains(var) && liveBefore.contains(var))) {
 				specialPush(regAllocs.get(var), var);
 			}
 		}
-		saveGlobals();
 	}
 	
-	public void saveGlobals() {
+	// Before returning from a function that may have assigned the globals written
+	public void saveGlobals(Set<String> written) {
 		for(String var: globalVarOffsets.keySet()) {
-			if(!isSpilled(var) && !funcVarOffsets.containsKey(var)) {
+			if(!isSpilled(var) && !funcVarOffsets.containsKey(var) && written.contains(var)) {
 				specialPush(regAllocs.get(var), var);
 			}
 		}
 	}
 	
-	public void restore() {
+	// After the call, the globals it may have assigned are read back from memory too. Variables
+	// live after it each have a register of their own, and nothing else is read back.
+	public void restore(Set<Integer> clobbered, Set<String> written, Set<String> liveAfter) {
+		Set<Integer> restored = new HashSet<>();
 		for(String var: funcVarOffsets.keySet()) {
-			if(!isSpilled(var)) {
+			if(!isSpilled(var) && clobbered.contains(regAllocs.get(var)) && liveAfter.contains(var) && restored.add(regAllocs.get(var))) {
 				specialLoad(var, regAllocs.get(var));
 			}
 		}
 		for(String var: globalVarOffsets.keySet()) {
-			if(!isSpilled(var) && !funcVarOffsets.containsKey(var)) {
+			if(isSpilled(var) || funcVarOffsets.containsKey(var) || !liveAfter.contains(var)) continue;
+			if((clobbered.contains(regAllocs.get(var)) || written.contains(var)) && restored.add(regAllocs.get(var))) {
 				specialLoad(var, regAllocs.get(var));
 			}
 		}
 	}
 	
-	public boolean isCrossAlloced(String var) {
-		return globalVarOffsets.containsKey(var) && crossAllocedRegs.contains(regAllocs.get(var));
-	}
-	
 }
@@ -1,189 +1,129 @@
 package coco;
 
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.LinkedHashSet;
+import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.Set;
 
 import ast.AST;
+import types.ErrorType;
+import types.Signature;
+import types.Type;
+import types.TypeList;
+import types.TypeParameter;
 
 public class Variables {
 	
 	private Table table;
-	private Map<String, Set<Function>> functions = new HashMap<>();
+	// Overloads of each function by their parameters. TypeLists are canonical, so a call's
+	// argument types find the one it resolves to without comparing them against each overload,
+	// and arity is part of the list.
+	private Map<Integer, Map<TypeList, Signature>> functions = new HashMap<>();
 	private AST parent;
 	
-	public Variables(AST parent) {
-		table = new Table(null, new HashMap<>());
+	public Variables(AST parent, Symbols symbols) {
+		this(symbols);
 		this.parent = parent;
-		
-		Set<Function> defaultType = new LinkedHashSet<>();
-		defaultType.add(new Function("()", "int"));
-		functions.put("readInt", defaultType);
-		defaultType = new LinkedHashSet<>();
-		defaultType.add(new Function("()", "float"));
-		functions.put("readFloat", defaultType);
-		defaultType = new LinkedHashSet<>();
-		defaultType.add(new Function("()", "bool"));
-		functions.put("readBool", defaultType);
-		defaultType = new LinkedHashSet<>();
-		defaultType.add(new Function("(int)", "void"));
-		functions.put("printInt", defaultType);
-		defaultType = new LinkedHashSet<>();
-		defaultType.add(new Function("(float)", "void"));
-		functions.put("printFloat", defaultType);
-		defaultType = new LinkedHashSet<>();
-		defaultType.add(new Function("(bool)", "void"));
-		functions.put("printBool", defaultType);
-		defaultType = new LinkedHashSet<>();
-		defaultType.add(new Function("()", "void"));
-		functions.put("println", defaultType);
-		defaultType = new LinkedHashSet<>();
-		defaultType.add(new Function("(T[],T[],int)", "void"));
-		functions.put("arrcpy", defaultType);
 	}
 	
-	public Variables() {
-		table = new Table(null, new HashMap<>());
+	public Variables(Symbols symbols) {
+		table = new Table();
 		
-		Set<Function> defaultType = new LinkedHashSet<>();
-		defaultType.add(new Function("()", "int"));
-		functions.put("readInt", defaultType);
-		defaultType = new LinkedHashSet<>();
-		defaultType.add(new Function("()", "float"));
-		functions.put("readFloat", defaultType);
-		defaultType = new LinkedHashSet<>();
-		defaultType.add(new Function("()", "bool"));
-		functions.put("readBool", defaultType);
-		defaultType = new LinkedHashSet<>();
-		defaultType.add(new Function("(int)", "void"));
-		functions.put("printInt", defaultType);
-		defaultType = new LinkedHashSet<>();
-		defaultType.add(new Function("(float)", "void"));
-		functions.put("printFloat", defaultType);
-		defaultType = new LinkedHashSet<>();
-		defaultType.add(new Function("(bool)", "void"));
-		functions.put("printBool", defaultType);
-		defaultType = new LinkedHashSet<>();
-		defaultType.add(new Function("()", "void"));
-		functions.put("println", defaultType);
-		defaultType = new LinkedHashSet<>();
-		defaultType.add(new Function("(T[],T[],int)", "void"));
-		functions.put("arrcpy", defaultType);
+		addBuiltIn(symbols, "readInt", Type.INT);
+		addBuiltIn(symbols, "readFloat", Type.FLOAT);
+		addBuiltIn(symbols, "readBool", Type.BOOL);
+		addBuiltIn(symbols, "printInt", Type.VOID, Type.INT);
+		addBuiltIn(symbols, "printFloat", Type.VOID, Type.FLOAT);
+		addBuiltIn(symbols, "printBool", Type.VOID, Type.BOOL);
+		addBuiltIn(symbols, "println", Type.VOID);
+		Type array = new TypeParameter("T").arrayOf(null);
+		addBuiltIn(symbols, "arrcpy", Type.VOID, array, array, Type.INT);
+	}
+	
+	private void addBuiltIn(Symbols symbols, String name, Type returnType, Type... parameters) {
+		Map<TypeList, Signature> defaultType = new LinkedHashMap<>();
+		TypeList parameterList = TypeList.of(Arrays.asList(parameters));
+		defaultType.put(parameterList, Signature.of(parameterList, returnType));
+		functions.put(symbols.intern(name), defaultType);
 	}
 	
 	public boolean has(Token ident) {
-		try {
-			get(ident, true);
-			return true;
-		} catch(NonexistantVariableException e) {
-			return false;
-		}
+		return table.has(ident) || functions.containsKey(ident.symbol());
 	}
 	
-	public Set<String> get(Token ident) throws NonexistantVariableException {
-		return get(ident, false);
+	public Type getType(Token ident) {
+		return getType(ident, false);
 	}
 	
-	public Set<String> get(Token ident, boolean pseudo) throws NonexistantVariableException {
-		Set<String> type = new LinkedHashSet<>();
-		boolean gotSomething = false;
-		Exception error = null;
+	// Type of the variable ident names. Without one it's an error type, named for the function
+	// ident names if there is one.
+	public Type getType(Token ident, boolean pseudo) {
 		try {
-			type.add(table.get(ident));
-			gotSomething = true;
+			return table.get(ident);
 		} catch(NonexistantVariableException e) {
-			error = e;
-		}
-		if(functions.containsKey(ident.lexeme())) {
-			for(Function f: functions.get(ident.lexeme())) {
-				type.add(f.toString());
+			if(functions.containsKey(ident.symbol())) {
+				String signature = functions.get(ident.symbol()).values().iterator().next().toString();
+				return new ErrorType(ident, signature + " is not a type", signature);
 			}
-			gotSomething = true;
+			if(!pseudo) parent.reportError(e);
+			return new ErrorType(ident, "error is not a type", "error");
 		}
-		if(!gotSomething) {
-			if(!pseudo) parent.reportError(error);
-			type.add("error");
-			return type;
+	}
+	
+	// Every overload of the function ident names, in the order they were declared
+	public Collection<Signature> getFunctions(Token ident) {
+		if(functions.containsKey(ident.symbol())) {
+			return Collections.unmodifiableCollection(functions.get(ident.symbol()).values());
 		}
-		return type;
+		if(!table.has(ident)) {
+			parent.reportError(new NonexistantVariableException(ident));
+		}
+		return Collections.emptySet();
 	}
 	
-	public void add(Token name, String type) throws RedefinitionException {
+	// Overload of the function ident names taking exactly these arguments, null if there isn't one
+	public Signature resolve(Token ident, TypeList arguments) {
+		Map<TypeList, Signature> overloads = functions.get(ident.symbol());
+		if(overloads == null) {
+			return null;
+		}
+		return overloads.get(arguments);
+	}
+	
+	public void add(Token name, Type type) throws RedefinitionException {
 		try {
-			if(type.contains("->")) {
-				String[] typeParts = type.split("->");
-				String parameters = typeParts[0];
-				String returnType = typeParts[1];
-				Function newFunc = new Function(parameters, returnType);
-				if(has(name)) {
-					if(functions.containsKey(name.lexeme())) {
-						for(Function currType: functions.get(name.lexeme())) {
-							if(currType.equals(newFunc)) {
-								throw new RedefinitionException(name);
-							}
-						}
-					}
-				}
-				if(functions.containsKey(name.lexeme())) {
-					Set<Function> funcDefinitions = functions.get(name.lexeme());
-					if(funcDefinitions.contains(newFunc)) {
-						throw new RedefinitionException(name);
-					}
-					funcDefinitions.add(newFunc);
-				} else {
-					Set<Function> funcDefinitions = new LinkedHashSet<>();
-					funcDefinitions.add(newFunc);
-					functions.put(name.lexeme(), funcDefinitions);
-				}
-			} else {
-				table.add(name, type);
-			}
+			table.add(name, type);
 		} catch(RedefinitionException e) {
 			parent.reportError(e);
 		}
 	}
 	
+	// Overloads have to differ in their parameters
+	public void add(Token name, Signature signature) {
+		Map<TypeList, Signature> funcDefinitions = functions.get(name.symbol());
+		if(funcDefinitions == null) {
+			funcDefinitions = new LinkedHashMap<>();
+			functions.put(name.symbol(), funcDefinitions);
+		}
+		if(funcDefinitions.containsKey(signature.parameters())) {
+			parent.reportError(new RedefinitionException(name));
+			return;
+		}
+		funcDefinitions.put(signature.parameters(), signature);
+	}
+	
 	public void enterLevel() {
-		Table newTable = new Table(table, new HashMap<>());
-		table = newTable;
+		table.enterLevel();
 	}
 	
 	public void exitLevel() {
-		table = table.getParent();
+		table.exitLevel();
 	}
 	
 	public Table getTable() {
 		return table;
 	}
 
-}
-
-class Function {
-	String parameters;
-	String type;
-	
-	Function(String parameters, String type) {
-		this.parameters = parameters;
-		this.type = type;
-	}
-	
-	@Override
-	public int hashCode() {
-		return parameters.hashCode();
-	}
-	
-	@Override
-	public boolean equals(Object other) {
-		if(other.getClass() == Function.class) {
-			Function otherFunc = (Function)other;
-			return parameters.equals(otherFunc.parameters);
-		}
-		return false;
-	}
-	
-	@Override
-	public String toString() {
-		return parameters + "->" + type;
-	}
 }
\ No newline at end of file
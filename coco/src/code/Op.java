@@ -6,7 +6,7 @@ import ir.InstructType;
 
 public enum Op {
 	ADD(2, 0), SUB(2, 1), MUL(2, 2), DIV(2, 3), MOD(2, 4), POW(2, 5), CMP(2, 6), OR(2, 13), AND(2, 14), BIC(2, 15), 
-	ADDI(1, 20), SUBI(1, 21), MULI(1, 22), DIVI(1, 23), MODI(1, 24), POWI(1, 25), CMPI(1, 26), ORI(1, 33), ANDI(1, 34), BICI(1, 35), 
+	ADDI(1, 20), SUBI(1, 21), MULI(1, 22), DIVI(1, 23), MODI(1, 24), POWI(1, 25), CMPI(1, 26), ORI(1, 33), ANDI(1, 34), BICI(1, 35), LSHI(1, 37), 
 	LDW(1, 40), STW(1, 43), 
 	BEQ(1, 47), BNE(1, 48), BLT(1, 49), BGE(1, 50), BLE(1, 51), BGT(1, 52), 
 	JSR(3, 54), RET(2, 55), 
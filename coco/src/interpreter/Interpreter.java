@@ -129,7 +129,7 @@ public class Interpreter {
 		
 		try {
 			Variable variable = new Variable(type.kind());
-			variables.add(identifier.lexeme(), variable);
+			variables.add(identifier, variable);
 		} catch(ValueException e) {
 			System.err.println(type.lexeme() + " IS NOT A VALID TYPE");
 			System.exit(-1);
@@ -145,6 +145,7 @@ public class Interpreter {
 			} else if(token.kind() == Kind.CALL) {
 				runFunction();
 			} else if(token.kind() == Kind.IF) {
+				int at = source.mark() - 1;
 				mustBe(Kind.OPEN_PAREN, "OPENNING PARENTHESI");
 				
 				Variable runVar = calculateExpression();
@@ -164,53 +165,21 @@ public class Interpreter {
 					ErrorChecker.checkForMoreInput(source, "ELSE OR FI");
 					Token next = source.next();
 					if(next.kind() == Kind.ELSE) {
-						int numberIfs = 1;
-						
-						while(true) {
-							Token thenBodyToken = source.next();
-							if(thenBodyToken.kind() == Kind.IF) {
-								++numberIfs;
-							} else if(thenBodyToken.kind() == Kind.FI) {
-								--numberIfs;
-							}
-							
-							if(numberIfs <= 0) {
-								if(numberIfs < 0) {
-									throw new SyntaxException("OVERFLOW; TOO DEEPLY NESTED IF STATEMENTS", thenBodyToken);
-								}
-								
-								next = thenBodyToken;
-								break;
-							}
-						}
+						// The else branch isn't run, so it's skipped to its FI
+						skipTo(source.mark() - 1, token);
+						next = source.next();
 					}
 					
 					if(next.kind() != Kind.FI) {
 						throw new SyntaxException("Expected FI but got " + next.kind() + ".", next);
 					}
 				} else {
-					int numberIfs = 1;
-					
-					while(true) {
-						Token thenBodyToken = source.next();
-						if(thenBodyToken.kind() == Kind.IF) {
-							++numberIfs;
-						} else if(thenBodyToken.kind() == Kind.FI) {
-							--numberIfs;
-						}
-						
-						if(numberIfs <= 1) {
-							if(numberIfs < 0) {
-								throw new SyntaxException("OVERFLOW; TOO DEEPLY NESTED IF STATEMENTS", thenBodyToken);
-							} else if((numberIfs == 1) && (thenBodyToken.kind() == Kind.ELSE)) {
-								Variable returnValue = runStatements();
-								if(returnValue != null) return returnValue;
-								mustBe(Kind.FI, "FI");
-								break;
-							} else if(numberIfs == 0) {
-								break;
-							}
-						}
+					// The then branch isn't run, so it's skipped to its ELSE or FI
+					skipTo(at, token);
+					if(source.next().kind() == Kind.ELSE) {
+						Variable returnValue = runStatements();
+						if(returnValue != null) return returnValue;
+						mustBe(Kind.FI, "FI");
 					}
 				}
 			} else if(token.kind() == Kind.RETURN) {
@@ -513,6 +482,16 @@ public class Interpreter {
 		return null;
 	}
 	
+	// Seeks to the ELSE or FI closing the IF or ELSE at index, so the tokens of a branch not taken
+	// aren't read one by one
+	private void skipTo(int index, Token opening) throws SyntaxException {
+		int closer = source.closer(index);
+		if(closer < 0) {
+			throw new SyntaxException("PROGRAM ENDED UNEXPECTEDLY; EXPECTED FI", opening);
+		}
+		source.seek(closer);
+	}
+	
 	private Token mustBe(Kind kind, String expected) throws SyntaxException {
 		ErrorChecker.checkForMoreInput(source, expected);
 		Token token = source.next();
@@ -0,0 +1,52 @@
+package ir;
+
+// What's known about the shape of a function's control flow, worked out when first asked for and
+// kept until a block changes its successors or is removed
+class Analyses {
+
+	private Graph graph;
+	private Dominators dominators = null;
+	private PostDominators postDominators = null;
+	private Loops loops = null;
+	private int computed = 0;
+
+	Analyses(Graph graph) {
+		this.graph = graph;
+	}
+
+	Dominators getDominators() {
+		if(dominators == null) {
+			dominators = new Dominators(graph);
+			++computed;
+		}
+		return dominators;
+	}
+
+	PostDominators getPostDominators() {
+		if(postDominators == null) {
+			postDominators = new PostDominators(graph);
+			++computed;
+		}
+		return postDominators;
+	}
+
+	Loops getLoops() {
+		if(loops == null) {
+			loops = new Loops(getDominators());
+			++computed;
+		}
+		return loops;
+	}
+
+	void invalidate() {
+		dominators = null;
+		postDominators = null;
+		loops = null;
+	}
+
+	// Times one of them has been worked out
+	int getComputed() {
+		return computed;
+	}
+
+}
@@ -0,0 +1,41 @@
+package ir;
+
+// Element of an array at an offset held in index
+public final class ArrayElement extends Operand {
+	
+	private Var array;
+	private Operand index;
+	
+	private ArrayElement(Var array, Operand index) {
+		this.array = array;
+		this.index = index;
+	}
+	
+	public static ArrayElement of(Var array, Operand index) {
+		return new ArrayElement(array, index);
+	}
+	
+	public Var getArray() {
+		return array;
+	}
+	
+	public Operand getIndex() {
+		return index;
+	}
+	
+	@Override
+	public boolean equals(Object other) {
+		return (other instanceof ArrayElement) && ((ArrayElement) other).array.equals(array) && ((ArrayElement) other).index.equals(index);
+	}
+	
+	@Override
+	public int hashCode() {
+		return 31 * array.hashCode() + index.hashCode();
+	}
+	
+	@Override
+	public String toString() {
+		return array + "[" + index + "]";
+	}
+	
+}
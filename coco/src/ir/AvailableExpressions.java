@@ -0,0 +1,104 @@
+package ir;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Values variables are known to hold, flowing forward. A variable only reaches a block with
+// an expression if it holds the same one along every path there.
+class AvailableExpressions extends DataflowProblem<Map<Operand, Expression>> {
+
+	AvailableExpressions() {
+		super(true);
+	}
+
+	@Override
+	public Map<Operand, Expression> initial(Block block) {
+		return new HashMap<>();
+	}
+
+	@Override
+	public Map<Operand, Expression> meet(Block block, List<Map<Operand, Expression>> flowing) {
+		Map<Operand, Expression> expIn = new HashMap<>();
+		if(!block.entry) {
+			Map<Operand, Boolean> exprSeen = new HashMap<>();
+			boolean first = true;
+			for(Map<Operand, Expression> before: flowing) {
+				for(Operand assignment: before.keySet()) {
+					Expression value = before.get(assignment);
+					if(expIn.containsKey(assignment) && !value.equals(expIn.get(assignment))) {
+						expIn.put(assignment, Expression.ANY);
+					} else if(first) {
+						expIn.put(assignment, value);
+					} else {
+						exprSeen.put(assignment, true);
+					}
+				}
+
+				if(first) {
+					for(Operand expr: expIn.keySet()) {
+						exprSeen.put(expr, false);
+					}
+					first = false;
+				} else {
+					Set<Operand> exprs = new HashSet<>();
+					exprs.addAll(expIn.keySet());
+					for(Operand expr: exprs) {
+						if(exprSeen.get(expr)) {
+							exprSeen.put(expr, false);
+						} else {
+							expIn.remove(expr);
+						}
+					}
+				}
+			}
+		}
+		return expIn;
+	}
+
+	@Override
+	public Map<Operand, Expression> transfer(Block block, Map<Operand, Expression> flowing) {
+		Map<Operand, Expression> availExp = new HashMap<>();
+		for(Operand assignment: flowing.keySet()) {
+			availExp.put(assignment, flowing.get(assignment));
+		}
+		for(Instruction instr: block.instructions) {
+			if(instr.isAssignment()) {
+				// What was worked out from the variable's old value doesn't hold for it any more
+				Set<Operand> changed = new HashSet<>();
+				if(instr.isCall()) changed.add(instr.assignee);
+				for(Operand exp: availExp.keySet()) {
+					if(availExp.get(exp).uses(instr.assignee)) changed.add(exp);
+				}
+				availExp.keySet().removeAll(changed);
+			}
+			if(instr.isAssignment() && !instr.isCall()) {
+				Expression value = Expression.of(instr);
+				if(!value.uses(instr.assignee)) {
+					availExp.put(instr.assignee, value);
+				}
+			}
+			if(instr.isVoidCall() || instr.isCall()) {
+				if(!instr.isBuiltInFunction()) {
+					Set<String> written = block.graph.globalsWritten(instr);
+					Set<Operand> needsRemoving = new HashSet<>();
+					for(String var: written) {
+						needsRemoving.add(block.graph.getVar(var));
+					}
+					for(Operand exp: availExp.keySet()) {
+						if(availExp.get(exp).usesAny(written)) {
+							needsRemoving.add(exp);
+						}
+					}
+					for(Operand var: needsRemoving) {
+						availExp.remove(var);
+					}
+				}
+			}
+		}
+		return availExp;
+	}
+
+}
@@ -0,0 +1,61 @@
+package ir;
+
+// Sets of small numbers kept as the bits of long arrays, 64 to a word, which is how dataflow
+// over numbered variables holds its sets
+public final class Bits {
+
+	private Bits() {
+
+	}
+
+	// Empty set with room for numbers below size
+	public static long[] of(int size) {
+		return new long[(size + 63) >>> 6];
+	}
+
+	public static boolean get(long[] bits, int number) {
+		return (bits[number >>> 6] & (1L << number)) != 0;
+	}
+
+	public static void set(long[] bits, int number) {
+		bits[number >>> 6] |= 1L << number;
+	}
+
+	public static void clear(long[] bits, int number) {
+		bits[number >>> 6] &= ~(1L << number);
+	}
+
+	// Adds everything in from to into, returning whether into changed
+	public static boolean or(long[] into, long[] from) {
+		boolean change = false;
+		for(int word=0; word<into.length; ++word) {
+			long union = into[word] | from[word];
+			if(union != into[word]) {
+				into[word] = union;
+				change = true;
+			}
+		}
+		return change;
+	}
+
+	// Smallest number in the set at least from, -1 if there isn't one
+	public static int next(long[] bits, int from) {
+		int word = from >>> 6;
+		if(word >= bits.length) return -1;
+		long rest = bits[word] & (-1L << from);
+		while(rest == 0) {
+			if(++word >= bits.length) return -1;
+			rest = bits[word];
+		}
+		return (word << 6) + Long.numberOfTrailingZeros(rest);
+	}
+
+	public static int count(long[] bits) {
+		int count = 0;
+		for(long word: bits) {
+			count += Long.bitCount(word);
+		}
+		return count;
+	}
+
+}
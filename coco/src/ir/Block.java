@@ -1,7 +1,6 @@
 package ir;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -12,17 +11,20 @@ import java.util.Set;
 
 public class Block implements Iterable<Instruction> {
 
-	private static int index = 0;
 	List<Instruction> instructions = new ArrayList<>();
 	Set<Block> predeccessors = new HashSet<>();
 	Set<Block> successors = new HashSet<>();
-	String name = "B" + ++index;
+	private int number;	// within its function
+	String name;
 	boolean entry = false;
 	
-	Set<String> varIn = new HashSet<>();
-	Set<String> varOut = new HashSet<>();
-	Map<String, String> expIn = new HashMap<>();
-	Map<String, String> expOut = new HashMap<>();
+	VariableNumbering variables;
+	long[] liveGen;
+	long[] liveKill;
+	long[] liveIn;
+	long[] liveOut;
+	Map<Operand, Expression> expIn = new HashMap<>();
+	Map<Operand, Expression> expOut = new HashMap<>();
 	Set<String> setIn = new HashSet<>();
 	Set<String> setOut = new HashSet<>();
 	
@@ -33,6 +35,8 @@ public class Block implements Iterable<Instruction> {
 	public Block(Set<String> globalVariables, Graph graph) {
 		this.globalVariables = globalVariables;
 		this.graph = graph;
+		number = graph.numberBlock();
+		name = "B" + number;
 	}
 	
 	public Block(Set<String> globalVariables, Graph graph, boolean entry) {
@@ -60,6 +64,7 @@ public class Block implements Iterable<Instruction> {
 	
 	public void addSuccessor(Block successor) {
 		if(successors.add(successor)) {
+			graph.invalidateAnalyses();
 			successor.addPredeccessor(this);
 		}
 	}
@@ -67,13 +72,16 @@ public class Block implements Iterable<Instruction> {
 	public void addSuccessors(Collection<Block> successors) {
 		for(Block successor: successors) {
 			if(this.successors.add(successor)) {
+				graph.invalidateAnalyses();
 				successor.addPredeccessor(this);
 			}
 		}
 	}
 	
 	public void removeSuccessor(Block successor) {
-		if(successors.remove(successor) && (instructions.size() > 0)) {
+		if(!successors.remove(successor)) return;
+		graph.invalidateAnalyses();
+		if(instructions.size() > 0) {
 			Instruction last = instructions.get(instructions.size() - 1);
 			if((last != null && !last.isReturn()) && last.isJump() && (last.getJump().getBlock() == successor)) {
 				last.setJump(successor.getFirst());
@@ -110,7 +118,7 @@ public class Block implements Iterable<Instruction> {
 	}
 	
 	public void removePredeccessor(Block predeccessor) {
-		successors.remove(predeccessor);
+		if(successors.remove(predeccessor)) graph.invalidateAnalyses();
 	}
 	
 	public void disconnect(Block predeccessor) {
@@ -152,9 +160,16 @@ public class Block implements Iterable<Instruction> {
 		return name;
 	}
 	
-	protected void clearPropagationSets() {
-		varIn = new HashSet<>();
-		varOut = new HashSet<>();
+	// Numbered within its function rather than by identity, so sets of blocks go in the same order
+	// whichever thread built the function
+	@Override
+	public int hashCode() {
+		return number;
+	}
+	
+	// How many loops the block is in, which is looked up once the function's loops are found
+	public int getLoopDepth() {
+		return graph.getLoops().getDepth(this);
 	}
 	
 	public void pruneAtReturn() {
@@ -174,355 +189,143 @@ public class Block implements Iterable<Instruction> {
 		}
 	}
 	
-	public boolean updateLiveVariables() {
-		varOut = new HashSet<>();
-		for(Block after: successors) {
-			varOut.addAll(after.varIn);
-		}
-		if(successors.size() == 0 && !graph.getSignature().equals("main()")) {
-			varOut.addAll(globalVariables);
-		}
-		
-		Set<String> liveVariables = new HashSet<>();
-		liveVariables.addAll(varOut);
+	// Finds which of the numbered variables the block reads before writing and which it writes,
+	// so working out what's live going into it only takes a few operations on words of bits
+	void initLiveVariables(VariableNumbering variables) {
+		this.variables = variables;
+		liveGen = Bits.of(variables.size());
+		liveKill = Bits.of(variables.size());
 		for(int i = numInstructions()-1; i>=0; --i) {
 			Instruction instr = instructions.get(i);
-			if(instr.isCall() || instr.isVoidCall()) {
-				String function = instr.isCall() ? instr.value1 : instr.assignee;
-				liveVariables.addAll(functionParameters(function));
-				if(!instr.isBuiltInFunction()) liveVariables.addAll(globalVariables);
-			}
-			if(instr.assignee != null) {
-				liveVariables.remove(instr.assignee);
-			}
-			if(instr.value1 != null && Instruction.isVar(instr.value1)) {
-				liveVariables.add(instr.value1);
-			}
-			if(instr.value2 != null && Instruction.isVar(instr.value2)) {
-				liveVariables.add(instr.value2);
-			}
-		}
-		
-		if(liveVariables.size() != varIn.size()) {
-			varIn = liveVariables;
-			return true;
-		}
-		for(String var: liveVariables) {
-			if(!varIn.contains(var)) {
-				varIn = liveVariables;
-				return true;
+			int assigned = variables.number(instr.assignee);
+			// Calls read their arguments before their result is written
+			boolean call = instr.isCall() || instr.isVoidCall();
+			if(call) addUses(instr, liveGen);
+			if(assigned >= 0) {
+				Bits.clear(liveGen, assigned);
+				Bits.set(liveKill, assigned);
 			}
+			if(!call) addUses(instr, liveGen);
 		}
-		varIn = liveVariables;
-		return false;
-	}
-	
-	public boolean updateAvailableExpressions() {
-		expIn = new HashMap<>();
-		if(!entry) {
-			Map<String, Boolean> exprSeen = new HashMap<>();
-			boolean first = true;
-			for(Block before: predeccessors) {
-				for(String assignment: before.expOut.keySet()) {
-					String value = before.expOut.get(assignment);
-					if(expIn.containsKey(assignment) && !value.equals(expIn.get(assignment))) {
-						expIn.put(assignment, "#any");
-					} else if(first) {
-						expIn.put(assignment, value);
-					} else {
-						exprSeen.put(assignment, true);
-					}
-				}
-				
-				if(first) {
-					for(String expr: expIn.keySet()) {
-						exprSeen.put(expr, false);
-					}
-					first = false;
-				} else {
-					Set<String> exprs = new HashSet<>();
-					exprs.addAll(expIn.keySet());
-					for(String expr: exprs) {
-						if(exprSeen.get(expr)) {
-							exprSeen.put(expr, false);
-						} else {
-							expIn.remove(expr);
-						}
-					}
-				}
-			}
-		}
-		
-		Map<String, String> availExp = new HashMap<>();
-		copyMap(expIn, availExp);
-		for(Instruction instr: instructions) {
-			if(instr.isAssignment() && !instr.isCall()) {
-				String[] exp = instr.toString().split(" = ");
-				String var = exp[0].split(" ")[1];
-				String value = exp[1];
-				if(!exprContainsValue(value, var)) {
-					availExp.put(var, value);
-				}
-			} else if(instr.isVoidCall() || instr.isCall()) {
-				if(!instr.isBuiltInFunction()) {
-					Set<String> needsRemoving = new HashSet<>();
-					needsRemoving.addAll(globalVariables);
-					for(String exp: availExp.keySet()) {
-						String[] vars = availExp.get(exp).split(" ");
-						for(String var: vars) {
-							if(globalVariables.contains(var)) {
-								needsRemoving.add(exp);
-							}
-						}
-					}
-					for(String var: needsRemoving) {
-						availExp.remove(var);
-					}
-				}
-			}
-		}
-		
-		if(availExp.size() != expOut.size()) {
-			expOut = availExp;
-			return true;
-		}
-		for(String exp: availExp.keySet()) {
-			if(!expOut.containsKey(exp) || !expOut.get(exp).equals(availExp.get(exp))) {
-				expOut = availExp;
-				return true;
-			}
-		}
-		expOut = availExp;
-		return false;
-	}
-	
-	public boolean updateSetVariables() {
-		setIn = new HashSet<>();
-		for(Block predeccessor: predeccessors) {
-			setIn.addAll(predeccessor.setOut);
-		}
-		if(entry) {
-			setIn.addAll(Arrays.asList(graph.getParameters()));
-		}
-		
-		Set<String> setVars = new HashSet<>();
-		setVars.addAll(setIn);
-		for(int i = 0; i<numInstructions(); ++i) {
-			Instruction instr = instructions.get(i);
-			if(instr.assignee != null && !instr.isVoidCall()) {
-				setVars.add(instr.assignee);
-			}
-		}
-		
-		boolean change = !setOut.equals(setVars);
-		setOut = setVars;
-		return change;
 	}
 	
 	protected boolean eliminateDeadCode() {
 		boolean change = false;
-		Set<String> liveVariables = new HashSet<>();
-		liveVariables.addAll(varOut);
+		long[] liveVariables = liveOut.clone();
 		for(int i = numInstructions()-1; i>=0; --i) {
 			Instruction instr = instructions.get(i);
 			if(instr.isCall() || instr.isVoidCall()) {
-				if(instr.isCall() && !liveVariables.contains(instr.assignee)) {
-					instr.assignee = instr.value1;
-					instr.value1 = null;
+				if(instr.isCall() && !isLive(instr.assignee, liveVariables)) {
+					instr.makeVoid();
 				}
-				liveVariables.addAll(Arrays.asList(instr.getParameters()));
-				if(!instr.isBuiltInFunction()) liveVariables.addAll(globalVariables);
-			} else if(instr.isAssignment() && !liveVariables.contains(instr.assignee)) {
-				// Updates Jumps
-				for(Instruction target: instr.getTargetingJumps()) {
-					if(i < numInstructions()-1) {
-						target.setJump(instructions.get(i+1));
-					} else {
-						// Block has been emptied
-						for(Block predeccessor: predeccessors) {
-							predeccessor.addSuccessors(successors);
-							predeccessor.removeSuccessor(this);
-						}
-						for(Block successor: successors) {
-							successor.addPredeccessors(predeccessors);
-							successor.removePredeccessor(this);
-							target.setJump(successor.getFirst());
-						}
-						graph.removeBlock(this);
-					}
+				for(Operand argument: instr.arguments) {
+					setLive(argument, liveVariables);
 				}
+				if(!instr.isBuiltInFunction()) Bits.or(liveVariables, variables.getGlobals(graph.globalsRead(instr)));
+			} else if(instr.isAssignment() && !isLive(instr.assignee, liveVariables)) {
+				// Jumps to it go on to what follows it, in this block or the one it falls through to
+				Instruction next = i < numInstructions()-1 ? instructions.get(i+1) : fallThrough();
+				if(next != null) moveJumps(instr, next);
 				instructions.remove(i);
 				change = true;
 			} else {
-				if(instr.assignee != null) {
-					liveVariables.remove(instr.assignee);
-				}
-				if(instr.value1 != null) {
-					liveVariables.add(instr.value1);
-				}
-				if(instr.value2 != null) {
-					liveVariables.add(instr.value2);
+				if(instr.assignee != null && variables.number(instr.assignee) >= 0) {
+					Bits.clear(liveVariables, variables.number(instr.assignee));
 				}
+				setLive(instr.value1, liveVariables);
+				setLive(instr.value2, liveVariables);
 			}
 		}
+		// Jumps to an emptied block were moved on with its last instruction
+		if(instructions.isEmpty() && !entry) delete();
 		return change;
 	}
 	
+	// The first instruction of the block this one falls through to, if there's just the one
+	private Instruction fallThrough() {
+		if(successors.size() != 1) return null;
+		Block successor = successors.iterator().next();
+		return successor.instructions.isEmpty() ? null : successor.getFirst();
+	}
+	
+	// Points the jumps to instr at target instead
+	private static void moveJumps(Instruction instr, Instruction target) {
+		for(Instruction jump: instr.getTargetingJumps()) {
+			jump.setJump(target);
+			target.addTargetingJump(jump);
+		}
+		instr.getTargetingJumps().clear();
+	}
+	
 	public boolean foldConstants() {
 		boolean change = false;
 		for(Instruction instr: instructions) {
-			try {
-				int left = Integer.parseInt(instr.value1);
-				int right = Integer.parseInt(instr.value2);
-				int result = 0;
-				switch(instr.op) {
-				case ADD: 
-					result = left + right;
-					break;
-				case SUB: 
-					result = left - right;
-					break;
-				case MUL: 
-					result = left * right;
-					break;
-				case DIV: 
-					result = left / right;
-					break;
-				case MOD: 
-					result = left % right;
-					break;
-				case POW: 
-					result = (int)Math.pow(left, right);
-					break;
-				default: 
-					boolean boolResult;
-					switch(instr.op) {
-					case EQUAL: 
-						boolResult = left == right;
-						break;
-					case NOT_EQUAL: 
-						boolResult = left != right;
-						break;
-					case LESS_EQUAL: 
-						boolResult = left <= right;
-						break;
-					case GREATER_EQUAL: 
-						boolResult = left >= right;
-						break;
-					case LESS: 
-						boolResult = left < right;
-						break;
-					case GREATER: 
-						boolResult = left > right;
-						break;
-					default: 
-						throw new RuntimeException("Invalid operation");
-					}
-					instr.value1 = Boolean.toString(boolResult);
-					instr.op = null;
-					instr.value2 = null;
-					change = true;
-					continue;
-				}
-				instr.value1 = Integer.toString(result);
-				instr.op = null;
-				instr.value2 = null;
+			Operand result = Expression.fold(instr.value1, instr.op, instr.value2);
+			if(result != null) {
+				instr.makeCopy(result);
 				change = true;
-			} catch (Exception e) {
-				try {
-					boolean left = toBoolean(instr.value1);
-					boolean right = toBoolean(instr.value2);
-					boolean result;
-					switch(instr.op) {
-					case EQUAL: 
-						result = left == right;
-						break;
-					case NOT_EQUAL: 
-						result = left != right;
-						break;
-					case OR: 
-						result = left || right;
-						break;
-					case AND: 
-						result = left && right;
-						break;
-					default: 
-						throw new RuntimeException("Invalid operation");
-					}
-					instr.value1 = Boolean.toString(result);
-					instr.op = null;
-					instr.value2 = null;
-					change = true;
-				} catch(Exception e1) {
-					if(instr.op != null && instr.op == InstructType.NOT && (instr.value1.equals("true") || instr.value1.equals("false"))) {
-						boolean value = toBoolean(instr.value1);
-						instr.value1 = Boolean.toString(!value);
-						instr.op = null;
-						change = true;
-					}
-				}
 			}
 			
 			if(instr.op != null) {
 				switch(instr.op) {
 				case ADD: 
-					if(instr.value1.equals("0")) {
+					if(instr.value1.equals(IntConst.ZERO)) {
 						instr.value1 = instr.value2;
 						instr.op = null;
 						instr.value2 = null;
 						change = true;
-					} else if(instr.value2.equals("0")) {
+					} else if(instr.value2.equals(IntConst.ZERO)) {
 						instr.op = null;
 						instr.value2 = null;
 						change = true;
 					}
 					break;
 				case SUB: 
-					if(instr.value2.equals("0")) {
+					if(instr.value2.equals(IntConst.ZERO)) {
 						instr.op = null;
 						instr.value2 = null;
 						change = true;
 					}
 					break;
 				case MUL: 
-					if(instr.value1.equals("0") || instr.value2.equals("0")) {
-						instr.value1 = "0";
+					if(instr.value1.equals(IntConst.ZERO) || instr.value2.equals(IntConst.ZERO)) {
+						instr.value1 = IntConst.ZERO;
 						instr.op = null;
 						instr.value2 = null;
 						change = true;
-					} else if(instr.value1.equals("1")) {
+					} else if(instr.value1.equals(IntConst.ONE)) {
 						instr.value1 = instr.value2;
 						instr.op = null;
 						instr.value2 = null;
 						change = true;
-					} else if(instr.value2.equals("1")) {
+					} else if(instr.value2.equals(IntConst.ONE)) {
 						instr.op = null;
 						instr.value2 = null;
 						change = true;
 					}
 					break;
 				case DIV: 
-					if(instr.value2.equals("1")) {
+					if(instr.value2.equals(IntConst.ONE)) {
 						instr.op = null;
 						instr.value2 = null;
 						change = true;
 					}
 					break;
 				case MOD: 
-					if(instr.value2.equals("1")) {
-						instr.value1 = "0";
+					if(instr.value2.equals(IntConst.ONE)) {
+						instr.value1 = IntConst.ZERO;
 						instr.op = null;
 						instr.value2 = null;
 						change = true;
 					}
 					break;
 				case POW: 
-					if(instr.value2.equals("0")) {
-						instr.value1 = "1";
+					if(instr.value2.equals(IntConst.ZERO)) {
+						instr.value1 = IntConst.ONE;
 						instr.op = null;
 						instr.value2 = null;
 						change = true;
-					} else if(instr.value2.equals("1")) {
+					} else if(instr.value2.equals(IntConst.ONE)) {
 						instr.op = null;
 						instr.value2 = null;
 						change = true;
@@ -530,7 +333,7 @@ public class Block implements Iterable<Instruction> {
 					break;
 				case EQUAL: 
 					if(instr.value1.equals(instr.value2)) {
-						instr.value1 = "true";
+						instr.value1 = BoolConst.TRUE;
 						instr.op = null;
 						instr.value2 = null;
 						change = true;
@@ -538,7 +341,7 @@ public class Block implements Iterable<Instruction> {
 					break;
 				case NOT_EQUAL: 
 					if(instr.value1.equals(instr.value2)) {
-						instr.value1 = "false";
+						instr.value1 = BoolConst.FALSE;
 						instr.op = null;
 						instr.value2 = null;
 						change = true;
@@ -546,7 +349,7 @@ public class Block implements Iterable<Instruction> {
 					break;
 				case LESS_EQUAL: 
 					if(instr.value1.equals(instr.value2)) {
-						instr.value1 = "true";
+						instr.value1 = BoolConst.TRUE;
 						instr.op = null;
 						instr.value2 = null;
 						change = true;
@@ -554,7 +357,7 @@ public class Block implements Iterable<Instruction> {
 					break;
 				case GREATER_EQUAL: 
 					if(instr.value1.equals(instr.value2)) {
-						instr.value1 = "true";
+						instr.value1 = BoolConst.TRUE;
 						instr.op = null;
 						instr.value2 = null;
 						change = true;
@@ -562,7 +365,7 @@ public class Block implements Iterable<Instruction> {
 					break;
 				case LESS: 
 					if(instr.value1.equals(instr.value2)) {
-						instr.value1 = "false";
+						instr.value1 = BoolConst.FALSE;
 						instr.op = null;
 						instr.value2 = null;
 						change = true;
@@ -570,23 +373,23 @@ public class Block implements Iterable<Instruction> {
 					break;
 				case GREATER: 
 					if(instr.value1.equals(instr.value2)) {
-						instr.value1 = "false";
+						instr.value1 = BoolConst.FALSE;
 						instr.op = null;
 						instr.value2 = null;
 						change = true;
 					}
 					break;
 				case OR: 
-					if(instr.value1.equals("true") || instr.value2.equals("true")) {
-						instr.value1 = "true";
+					if(instr.value1.equals(BoolConst.TRUE) || instr.value2.equals(BoolConst.TRUE)) {
+						instr.value1 = BoolConst.TRUE;
 						instr.op = null;
 						instr.value2 = null;
 						change = true;
 					}
 					break;
 				case AND: 
-					if(instr.value1.equals("false") || instr.value2.equals("false")) {
-						instr.value1 = "false";
+					if(instr.value1.equals(BoolConst.FALSE) || instr.value2.equals(BoolConst.FALSE)) {
+						instr.value1 = BoolConst.FALSE;
 						instr.op = null;
 						instr.value2 = null;
 						change = true;
@@ -596,8 +399,8 @@ public class Block implements Iterable<Instruction> {
 			}
 			
 			if(instr.isConditionalJump()) {
-				boolean decision = instr.value1.equals("true");
-				if(decision || instr.value1.equals("false")) {
+				boolean decision = instr.value1.equals(BoolConst.TRUE);
+				if(decision || instr.value1.equals(BoolConst.FALSE)) {
 					// Finds next block
 					Block next = instr.getJump().getBlock();
 					if(!decision) {
@@ -617,7 +420,7 @@ public class Block implements Iterable<Instruction> {
 							unreachable.add(block);
 						}
 					}
-					successors.removeAll(unreachable);
+					if(successors.removeAll(unreachable)) graph.invalidateAnalyses();
 				}
 			}
 		}
@@ -625,64 +428,60 @@ public class Block implements Iterable<Instruction> {
 	}
 	
 	public boolean propagateAssignments(boolean consts) {
-		Map<String, String> availConsts = new HashMap<>();
-		copyMap(expIn, availConsts);
-		Set<String> nonConstantExpr = new HashSet<>();
-		for(String var: availConsts.keySet()) {
-			if(availConsts.get(var).equals("#any")) {
-				nonConstantExpr.add(var);
-			} else if(!isConst(availConsts.get(var))) {
-				nonConstantExpr.add(var);
-			} else if((consts && Instruction.isVar(var)) || (!consts && !Instruction.isVar(var))) {
-				nonConstantExpr.add(var);
+		Map<Operand, Expression> availExprs = new HashMap<>();
+		copyMap(expIn, availExprs);
+		Map<Operand, Operand> availConsts = new HashMap<>();
+		for(Operand var: availExprs.keySet()) {
+			Expression value = availExprs.get(var);
+			if(value != Expression.ANY && value.isCopy() && ((consts && !var.isVariable()) || (!consts && var.isVariable()))) {
+				availConsts.put(var, value.value1);
 			}
 		}
-		for(String expr: nonConstantExpr) {
-			availConsts.remove(expr);
-		}
 		
 		boolean change = false;
 		
 		for(Instruction instr: instructions) {
 			if(instr.isCall() || instr.isVoidCall()) {
-				String[] parameters = instr.getParameters();
-				for(int param=0; param<parameters.length; ++param) {
-					if(availConsts.containsKey(parameters[param])) {
-						String newValue = availConsts.get(parameters[param]);
-						change = change || !newValue.equals(parameters[param]);
-						instr.replaceParameter(param, newValue);
+				Operand[] arguments = instr.arguments;
+				for(int argument=0; argument<arguments.length; ++argument) {
+					if(availConsts.containsKey(arguments[argument])) {
+						Operand newValue = availConsts.get(arguments[argument]);
+						change = change || !newValue.equals(arguments[argument]);
+						arguments[argument] = newValue;
 					}
 				}
 				if(!instr.isBuiltInFunction()) {
-					for(String var: globalVariables) {
-						availConsts.remove(var);
+					for(String var: graph.globalsWritten(instr)) {
+						availConsts.remove(graph.getVar(var));
 					}
 				}
 			} else {
 				if(instr.value1 != null && availConsts.containsKey(instr.value1)) {
-					String newValue = availConsts.get(instr.value1);
+					Operand newValue = availConsts.get(instr.value1);
 					change = change || !newValue.equals(instr.value1);
 					instr.value1 = newValue;
 				}
 				if(instr.value2 != null && availConsts.containsKey(instr.value2)) {
-					String newValue = availConsts.get(instr.value2);
+					Operand newValue = availConsts.get(instr.value2);
 					change = change || !newValue.equals(instr.value2);
 					instr.value2 = newValue;
 				}
 			}
 			if(instr.assignee != null) {
-				List<String> litToRemove = new ArrayList<>();
-				for(String lit: availConsts.keySet()) {
-					String value = availConsts.get(lit);
+				List<Operand> litToRemove = new ArrayList<>();
+				for(Operand lit: availConsts.keySet()) {
+					Operand value = availConsts.get(lit);
 					if(instr.assignee.equals(value)) {
 						litToRemove.add(lit);
 					}
 				}
-				for(String lit: litToRemove) {
+				for(Operand lit: litToRemove) {
 					availConsts.remove(lit);
 				}
+				// Calls only kill the globals they may assign now, so the assignee's own copy has to go too
+				availConsts.remove(instr.assignee);
 			}
-			if(instr.isCopy() && !instr.isCall() && ((consts && !Instruction.isVar(instr.value1)) || (!consts && Instruction.isVar(instr.value1)))) {
+			if(instr.isCopy() && ((consts && !instr.value1.isVariable()) || (!consts && instr.value1.isVariable()))) {
 				availConsts.put(instr.assignee, instr.value1);
 			}
 		}
@@ -691,17 +490,17 @@ public class Block implements Iterable<Instruction> {
 	}
 	
 	public boolean eliminateCommonSubexpressions() {
-		Map<String, String> availExprVars = new HashMap<>();
+		Map<Operand, Expression> availExprVars = new HashMap<>();
 		copyMap(expIn, availExprVars);
-		Set<String> nonConstantExpr = new HashSet<>();
-		for(String var: availExprVars.keySet()) {
-			if(availExprVars.get(var).equals("#any")) {
+		Set<Operand> nonConstantExpr = new HashSet<>();
+		for(Operand var: availExprVars.keySet()) {
+			if(availExprVars.get(var) == Expression.ANY) {
 				nonConstantExpr.add(var);
-			} else if(isConst(availExprVars.get(var))) {
+			} else if(availExprVars.get(var).isCopy()) {
 				nonConstantExpr.add(var);
 			}
 		}
-		for(String expr: nonConstantExpr) {
+		for(Operand expr: nonConstantExpr) {
 			availExprVars.remove(expr);
 		}
 		
@@ -709,59 +508,25 @@ public class Block implements Iterable<Instruction> {
 		
 		for(Instruction instr: instructions) {
 			if(instr.isExpr()) {
-				// Gets Variables
-				String[] exp = instr.toString().split(" = ");
-				String var = exp[0].split(" ")[1];
-				String value = exp[1];
+				Expression value = Expression.of(instr);
 				
 				// Checks if expression can be eliminated
 				if(availExprVars.values().contains(value)) {
-					for(String potentialVar: availExprVars.keySet()) {
+					for(Operand potentialVar: availExprVars.keySet()) {
 						if(availExprVars.get(potentialVar).equals(value)) {
 							instr.makeCopy(potentialVar);
 							change = true;
 							break;
 						}
 					}
-					// Remove expressions with changed operands
-					Set<String> exprsToRemove = new HashSet<>();
-					for(String expr: availExprVars.keySet()) {
-						String[] ops = availExprVars.get(expr).split(" ");
-						for(String op: ops) {
-							if(op.equals(instr.assignee)) {
-								exprsToRemove.add(expr);
-							}
-						}
-					}
-					for(String expr: exprsToRemove) {
-						availExprVars.remove(expr);
-					}
+					removeUses(availExprVars, instr.assignee);
 				} else {
 					// Adds Expression to Map (assuming the variable isn't defined in terms of itself)
-					String[] ops = value.split(" ");
-					boolean safeToAdd = true;
-					for(String op: ops) {
-						if(op.equals(instr.assignee)) {
-							safeToAdd = false;
-							break;
-						}
-					}
-					if(safeToAdd) availExprVars.put(var, value);
+					if(!value.uses(instr.assignee)) availExprVars.put(instr.assignee, value);
 				}
-			} else if(instr.isCopy()) {
+			} else if(instr.isCopy() || instr.isCall()) {
 				// Remove expressions changed by copy
-				Set<String> exprsToRemove = new HashSet<>();
-				for(String expr: availExprVars.keySet()) {
-					String[] ops = availExprVars.get(expr).split(" ");
-					for(String op: ops) {
-						if(op.equals(instr.assignee)) {
-							exprsToRemove.add(expr);
-						}
-					}
-				}
-				for(String expr: exprsToRemove) {
-					availExprVars.remove(expr);
-				}
+				removeUses(availExprVars, instr.assignee);
 			}
 		}
 		
@@ -775,95 +540,99 @@ public class Block implements Iterable<Instruction> {
 		for(int i = 0; i<numInstructions(); ++i) {
 			Instruction instr = instructions.get(i);
 			if(instr.isVoidCall() || instr.isCall()) {
-				String[] params = instr.getParameters();
-				for(int param=0; param<params.length; ++param) {
-					if(Instruction.isVar(params[param]) && !setVariables.contains(params[param])) {
-						instr.replaceParameter(param, "0");
+				Operand[] arguments = instr.arguments;
+				for(int argument=0; argument<arguments.length; ++argument) {
+					if(arguments[argument].isVariable() && !setVariables.contains(arguments[argument].toString())) {
+						arguments[argument] = IntConst.ZERO;
 					}
 				}
 				if(!instr.isBuiltInFunction()) setVariables.addAll(globalVariables);
 			}
-			if(instr.assignee != null && !instr.isVoidCall()) {
-				setVariables.add(instr.assignee);
+			if(instr.assignee != null) {
+				setVariables.add(instr.assignee.toString());
 			}
-			if(instr.value1 != null && !instr.isCall() && Instruction.isVar(instr.value1) && !setVariables.contains(instr.value1)) {
-				instr.value1 = "0";
+			if(instr.value1 != null && instr.value1.isVariable() && !setVariables.contains(instr.value1.toString())) {
+				instr.value1 = IntConst.ZERO;
 			}
-			if(instr.value2 != null && Instruction.isVar(instr.value2) && !setVariables.contains(instr.value2)) {
-				instr.value2 = "0";
+			if(instr.value2 != null && instr.value2.isVariable() && !setVariables.contains(instr.value2.toString())) {
+				instr.value2 = IntConst.ZERO;
 			}
 		}
 	}
 	
-	public Collection<String> functionsCalled() {
-		Set<String> functions = new HashSet<>();
-		for(Instruction instr: this) {
-			if(instr.isCall() || instr.isVoidCall()) {
-				functions.add(instr.getSignature());
-			}
-		}
-		return functions;
-	}
-	
-	public List<Collection<String>> genLiveSets() {
-		varOut = new HashSet<>();
-		for(Block after: successors) {
-			varOut.addAll(after.varIn);
-		}
+	// Needs live variables worked out first (see Graph.computeLiveVariables)
+	public LiveSets genLiveSets() {
+		LiveSets liveSets = new LiveSets(variables, 2 * numInstructions() + 1);
+		// Not just what's live into successors: globals the function assigns stay live through its returns
+		long[] liveVariables = liveOut.clone();
 		
-		Set<String> liveVariables = new HashSet<>();
-		liveVariables.addAll(varOut);
-		List<Collection<String>> liveSets = new ArrayList<>();
+		long[] liveAfter = new long[liveVariables.length];
 		for(int i = numInstructions()-1; i>=0; --i) {
-			liveSets.add(0, new ArrayList<>(liveVariables));
+			System.arraycopy(liveVariables, 0, liveAfter, 0, liveVariables.length);
 			Instruction instr = instructions.get(i);
 			if(instr.isCall() || instr.isVoidCall()) {
-				String function = instr.isCall() ? instr.value1 : instr.assignee;
-				liveVariables.addAll(functionParameters(function));
-				if(!instr.isBuiltInFunction()) liveVariables.addAll(globalVariables);
+				addUses(instr, liveVariables);
+				// Globals the call may assign are reloaded after it, so can't share a register with what's live across it
+				if(!instr.isBuiltInFunction()) Bits.or(liveVariables, variables.getGlobals(graph.globalsWritten(instr)));
 			}
-			boolean assigneeNeedsAllocation = false;
+			int assigneeNeedsAllocation = -1;
 			if(instr.assignee != null) {
-				if(!liveVariables.remove(instr.assignee)) {
-					assigneeNeedsAllocation = true;
+				int assigned = variables.number(instr.assignee);
+				if(assigned >= 0) {
+					if(!Bits.get(liveVariables, assigned) && instr.assignee.isVariable()) {
+						assigneeNeedsAllocation = assigned;
+					}
+					Bits.clear(liveVariables, assigned);
 				}
 			}
-			if(instr.value1 != null && Instruction.isVar(instr.value1)) {
-				liveVariables.add(instr.value1);
-			}
-			if(instr.value2 != null && Instruction.isVar(instr.value2)) {
-				liveVariables.add(instr.value2);
+			if(!instr.isCall() && !instr.isVoidCall()) {
+				addUses(instr, liveVariables);
 			}
-			liveSets.add(0, new ArrayList<>(liveVariables));
-			if(assigneeNeedsAllocation && Instruction.isVar(instr.assignee)) {
-				liveSets.get(0).add(instr.assignee);
+			
+			// Just before the instruction is what's live going into it, plus an assignee nothing reads
+			if(assigneeNeedsAllocation >= 0 && !Bits.get(liveVariables, assigneeNeedsAllocation)) {
+				liveSets.addBirth(2*i + 1, assigneeNeedsAllocation);
+			}
+			for(int word=0; word<liveVariables.length; ++word) {
+				long before = liveVariables[word];
+				if(assigneeNeedsAllocation >= 0 && assigneeNeedsAllocation >>> 6 == word) before |= 1L << assigneeNeedsAllocation;
+				for(long born = liveAfter[word] & ~before; born != 0; born &= born - 1) {
+					liveSets.addBirth(2*i + 2, (word << 6) + Long.numberOfTrailingZeros(born));
+				}
+				for(long died = before & ~liveAfter[word]; died != 0; died &= died - 1) {
+					liveSets.addDeath(2*i + 2, (word << 6) + Long.numberOfTrailingZeros(died));
+				}
 			}
 		}
 		
-		liveSets.add(0, new ArrayList<>(liveVariables));
-		
+		liveSets.finish(liveVariables);
 		return liveSets;
 	}
 	
-	private List<String> functionParameters(String functionCall) {
-		String afterClosing = functionCall.split("\\(")[1];
-		String parametersString = afterClosing.substring(0, afterClosing.length()-1);
-		String[] paramsUntrimed = parametersString.split(",");
-		List<String> params = new ArrayList<>();
-		for(String parameter: paramsUntrimed) {
-			String param = parameter.trim();
-			if(!param.equals("")) {
-				params.add(param);
+	// Adds the variables instr reads to live
+	private void addUses(Instruction instr, long[] live) {
+		if(instr.isCall() || instr.isVoidCall()) {
+			for(Operand argument: instr.arguments) {
+				if(argument.isVariable()) Bits.set(live, variables.number(argument));
 			}
+			if(!instr.isBuiltInFunction()) Bits.or(live, variables.getGlobals(graph.globalsRead(instr)));
 		}
-		return params;
-		
+		if(instr.value1 != null && instr.value1.isVariable()) {
+			Bits.set(live, variables.number(instr.value1));
+		}
+		if(instr.value2 != null && instr.value2.isVariable()) {
+			Bits.set(live, variables.number(instr.value2));
+		}
+	}
+	
+	private boolean isLive(Operand operand, long[] live) {
+		int number = variables.number(operand);
+		return number >= 0 && Bits.get(live, number);
 	}
 	
-	private boolean toBoolean(String value) {
-		if(value.equals("true")) return true;
-		if(value.equals("false")) return false;
-		throw new RuntimeException("Not a boolean");
+	private void setLive(Operand operand, long[] live) {
+		int number = variables.number(operand);
+		if(number >= 0) Bits.set(live, number);
 	}
 	
 	private void copyMap(Map original, Map copy) {
@@ -872,18 +641,17 @@ public class Block implements Iterable<Instruction> {
 		}
 	}
 	
-	private boolean exprContainsValue(String expr, String value) {
-		String[] ops = expr.split(" ");
-		for(String op: ops) {
-			if(op.equals(value)) {
-				return true;
+	// Drops the expressions that read variable, which has just been changed
+	private void removeUses(Map<Operand, Expression> expressions, Operand variable) {
+		Set<Operand> exprsToRemove = new HashSet<>();
+		for(Operand expr: expressions.keySet()) {
+			if(expressions.get(expr).uses(variable)) {
+				exprsToRemove.add(expr);
 			}
 		}
-		return false;
-	}
-	
-	private boolean isConst(String expression) {
-		return !(expression.contains(" ") || expression.contains("("));
+		for(Operand expr: exprsToRemove) {
+			expressions.remove(expr);
+		}
 	}
 	
 	protected Instruction getFirst() {
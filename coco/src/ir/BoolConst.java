@@ -0,0 +1,43 @@
+package ir;
+
+public final class BoolConst extends Operand {
+	
+	public static final BoolConst TRUE = new BoolConst(true);
+	public static final BoolConst FALSE = new BoolConst(false);
+	
+	private boolean value;
+	
+	private BoolConst(boolean value) {
+		this.value = value;
+	}
+	
+	public static BoolConst of(boolean value) {
+		return value ? TRUE : FALSE;
+	}
+	
+	public boolean booleanValue() {
+		return value;
+	}
+	
+	@Override
+	public boolean isConstant() {
+		return true;
+	}
+	
+	@Override
+	public int intValue() {
+		return value ? 1 : 0;
+	}
+	
+	// There's only TRUE and FALSE, so they can hash by value and stay equal by identity
+	@Override
+	public int hashCode() {
+		return Boolean.hashCode(value);
+	}
+	
+	@Override
+	public String toString() {
+		return Boolean.toString(value);
+	}
+	
+}
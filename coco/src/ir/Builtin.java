@@ -0,0 +1,32 @@
+package ir;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// Functions the machine provides itself, by the signature a call to them resolves to
+public enum Builtin {
+	READ_INT("readInt()"), READ_BOOL("readBool()"), PRINT_INT("printInt(int)"), PRINT_BOOL("printBool(bool)"), PRINTLN("println()");
+	
+	private static final Map<String, Builtin> signatures = new HashMap<>();
+	static {
+		for(Builtin builtin: values()) {
+			signatures.put(builtin.signature, builtin);
+		}
+	}
+	
+	private final String signature;
+	
+	private Builtin(String signature) {
+		this.signature = signature;
+	}
+	
+	public String getSignature() {
+		return signature;
+	}
+	
+	// Builtin called by a call resolved to signature, null for functions the program defines
+	public static Builtin of(String signature) {
+		return signatures.get(signature);
+	}
+	
+}
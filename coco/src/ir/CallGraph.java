@@ -0,0 +1,118 @@
+package ir;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Which functions of a program call which. Building it resolves each call to the function with the
+// signature it was made to, so nothing after has to look the signature up again. Its strongly
+// connected components are found with Tarjan's algorithm, each after the components it
+// calls, so going through them in order works on functions bottom-up, callees before callers,
+// with functions that call each other together. Calls to builtins aren't edges.
+public class CallGraph {
+
+	private Map<String, Graph> functions = new HashMap<>();	// by signature
+	private Map<Graph, List<Graph>> callees = new HashMap<>();	// in the order they're first called
+	private Map<Graph, Integer> calls = new HashMap<>();	// to each function, throughout the program
+	private List<List<Graph>> components = new ArrayList<>();
+	private Map<Graph, List<Graph>> componentOf = new HashMap<>();
+
+	// Tarjan's, numbering functions in the order they're found
+	private Map<Graph, Integer> number = new HashMap<>();
+	private Map<Graph, Integer> lowest = new HashMap<>();
+	private Deque<Graph> stack = new ArrayDeque<>();
+	private Set<Graph> onStack = new HashSet<>();
+
+	public CallGraph(List<Graph> program) {
+		for(Graph function: program) {
+			functions.put(function.getSignature(), function);
+		}
+		for(Graph function: program) {
+			Set<Graph> called = new LinkedHashSet<>();
+			for(Block block: function) {
+				for(Instruction instr: block.instructions) {
+					if(!(instr.isCall() || instr.isVoidCall()) || instr.isBuiltInFunction()) continue;
+					instr.setCallee(functions.get(instr.getSignature()));
+					if(instr.getCallee() == null) continue;
+					calls.merge(instr.getCallee(), 1, Integer::sum);
+					called.add(instr.getCallee());
+				}
+			}
+			callees.put(function, new ArrayList<>(called));
+		}
+		for(Graph function: program) {
+			if(!number.containsKey(function)) visit(function);
+		}
+	}
+
+	// Null if the program doesn't define a function with the signature
+	public Graph getFunction(String signature) {
+		return functions.get(signature);
+	}
+
+	public List<Graph> getCallees(Graph function) {
+		return callees.get(function);
+	}
+
+	// Calls to the function throughout the program
+	public int getCalls(Graph function) {
+		return calls.getOrDefault(function, 0);
+	}
+
+	// Strongly connected components, each after those it calls
+	public List<List<Graph>> getComponents() {
+		return components;
+	}
+
+	// Whether the function can end up calling itself
+	public boolean isRecursive(Graph function) {
+		return componentOf.get(function).size() > 1 || callees.get(function).contains(function);
+	}
+
+	// Functions reachable from one through calls, including it
+	public Set<Graph> getReachable(Graph from) {
+		Set<Graph> reached = new HashSet<>();
+		Deque<Graph> exploring = new ArrayDeque<>();
+		reached.add(from);
+		exploring.add(from);
+		while(!exploring.isEmpty()) {
+			for(Graph callee: callees.get(exploring.remove())) {
+				if(reached.add(callee)) exploring.add(callee);
+			}
+		}
+		return reached;
+	}
+
+	private void visit(Graph function) {
+		number.put(function, number.size());
+		lowest.put(function, number.get(function));
+		stack.push(function);
+		onStack.add(function);
+		for(Graph callee: callees.get(function)) {
+			if(!number.containsKey(callee)) {
+				visit(callee);
+				lowest.put(function, Math.min(lowest.get(function), lowest.get(callee)));
+			} else if(onStack.contains(callee)) {
+				lowest.put(function, Math.min(lowest.get(function), number.get(callee)));
+			}
+		}
+		if(lowest.get(function).equals(number.get(function))) {
+			List<Graph> component = new ArrayList<>();
+			Graph member;
+			do {
+				member = stack.pop();
+				onStack.remove(member);
+				component.add(member);
+				componentOf.put(member, component);
+			} while(member != function);
+			components.add(component);
+		}
+	}
+
+}
@@ -0,0 +1,305 @@
+package ir;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Sparse conditional constant propagation (Wegman and Zadeck) over a function in SSA form. Only
+// edges a branch can take given what's known so far are followed, and a variable's readers are
+// only looked at again when what's known about it changes, so constants flow through branches
+// and loops in one pass. Each variable assigned once is unknown until its assignment is reached,
+// then a constant, then varying. Globals, which calls change, and variables assigned more than
+// once always vary.
+class ConditionalConstants {
+
+	private Graph graph;
+	private DefUse defUse;
+	private Set<String> globalVariables;
+	private Map<Operand, Operand> constants = new HashMap<>();
+	private Set<Operand> varying = new HashSet<>();
+	private Set<Block> executable = new HashSet<>();
+	private Map<Block, Set<Block>> executableEdges = new HashMap<>();
+	private Deque<Block[]> edgeWorklist = new ArrayDeque<>();	// from, to
+	private Deque<Instruction> instrWorklist = new ArrayDeque<>();
+
+	ConditionalConstants(Graph graph, Set<String> globalVariables) {
+		this.graph = graph;
+		this.globalVariables = globalVariables;
+		defUse = graph.getDefUse();
+		for(Block block: graph.getBlocks()) {
+			executableEdges.put(block, new HashSet<>());
+		}
+
+		edgeWorklist.add(new Block[] {null, graph.getEntryBlock()});
+		while(!edgeWorklist.isEmpty() || !instrWorklist.isEmpty()) {
+			while(!edgeWorklist.isEmpty()) {
+				Block[] edge = edgeWorklist.remove();
+				Block to = edge[1];
+				if(executable.add(to)) {
+					for(Instruction instr: to.instructions) {
+						visit(instr);
+					}
+					visitEnd(to);
+				} else {
+					for(Instruction instr: to.instructions) {
+						if(instr.isPhi()) visit(instr);
+					}
+				}
+			}
+			while(!instrWorklist.isEmpty()) {
+				Instruction instr = instrWorklist.remove();
+				if(executable.contains(instr.getBlock())) {
+					visit(instr);
+					if(isBranch(instr)) visitEnd(instr.getBlock());
+				}
+			}
+		}
+	}
+
+	// Replaces variables found to be constant with their values, removes their assignments,
+	// makes branches going only one way jumps or falls through, and removes the blocks never run
+	boolean rewrite() {
+		boolean change = false;
+		List<Block> unreachable = new ArrayList<>();
+		for(Block block: graph.getBlocks()) {
+			if(!executable.contains(block)) unreachable.add(block);
+		}
+		Set<Operand> readByPhis = readByPhis();
+
+		for(Block block: new ArrayList<>(graph.getBlocks())) {
+			if(!executable.contains(block)) continue;
+			for(int i=0; i<block.instructions.size(); ++i) {
+				Instruction instr = block.instructions.get(i);
+				change = substitute(instr) || change;
+				// Blocks are left with an instruction other than a phi, which leaving SSA form
+				// removes, for jumps to them to go to
+				boolean last = i == block.instructions.size() - 1;
+				if(constants.containsKey(instr.assignee) && !readByPhis.contains(instr.assignee) && (instr.isPhi() || block.instructions.size() - SSA.numPhis(block) > 1) && !(last && instr.targeted())) {
+					if(!last) {
+						Instruction next = block.instructions.get(i + 1);
+						for(Instruction jump: instr.getTargetingJumps()) {
+							jump.setJump(next);
+							next.addTargetingJump(jump);
+						}
+					}
+					block.instructions.remove(i--);
+					change = true;
+				}
+			}
+			change = foldBranch(block) || change;
+		}
+
+		for(Block block: unreachable) {
+			for(Block successor: new ArrayList<>(block.successors)) {
+				removeEdge(block, successor);
+			}
+			for(Instruction instr: block.instructions) {
+				if(instr.getJump() != null) instr.getJump().getTargetingJumps().remove(instr);
+			}
+			graph.removeBlock(block);
+			change = true;
+		}
+		return change;
+	}
+
+	private void visit(Instruction instr) {
+		if(instr.isPhi()) {
+			// Arguments from edges not yet taken don't count
+			Operand value = null;
+			for(int source=0; source<instr.sources.length; ++source) {
+				Block from = instr.sources[source];
+				if(from != null && !executableEdges.get(from).contains(instr.getBlock())) continue;
+				Operand argument = valueOf(instr.arguments[source]);
+				if(argument == null) continue;
+				if(!argument.isConstant() || (value != null && !value.equals(argument))) {
+					value = instr.assignee;
+					break;
+				}
+				value = argument;
+			}
+			setValue(instr.assignee, value);
+		} else if(instr.isCall()) {
+			setValue(instr.assignee, instr.assignee);
+		} else if(instr.isAssignment() && tracks(instr.assignee)) {
+			setValue(instr.assignee, evaluate(instr));
+		}
+	}
+
+	// Follows the edges out of block that can be taken given what's known about its branch
+	private void visitEnd(Block block) {
+		Instruction last = block.instructions.isEmpty() ? null : block.instructions.get(block.instructions.size() - 1);
+		if(last != null && isBranch(last)) {
+			Operand decision = valueOf(last.value1);
+			if(decision == null) return;
+			Block target = last.getJump().getBlock();
+			if(decision == BoolConst.TRUE) {
+				markEdge(block, target);
+				return;
+			} else if(decision == BoolConst.FALSE) {
+				Block fallThrough = fallThrough(block, target);
+				markEdge(block, fallThrough);
+				return;
+			}
+		}
+		for(Block successor: block.successors) {
+			markEdge(block, successor);
+		}
+	}
+
+	private void markEdge(Block from, Block to) {
+		if(executableEdges.get(from).add(to)) edgeWorklist.add(new Block[] {from, to});
+	}
+
+	// Null while unknown, the constant it holds, or itself if it varies
+	private Operand valueOf(Operand operand) {
+		if(operand instanceof IntConst || operand instanceof BoolConst) {
+			return operand;
+		} else if(!tracks(operand) || varying.contains(operand)) {
+			return operand;
+		}
+		return constants.get(operand);
+	}
+
+	private Operand evaluate(Instruction instr) {
+		Operand value1 = valueOf(instr.value1);
+		Operand value2 = instr.value2 == null ? null : valueOf(instr.value2);
+		if(instr.op == null) return value1;
+		if(value1 == null || (instr.value2 != null && value2 == null)) {
+			// Either being 0 or short circuiting decides some operations before the other's known
+			if(!absorbs(instr.op, value1) && !absorbs(instr.op, value2)) return null;
+		}
+		if(absorbs(instr.op, value1)) return value1;
+		if(absorbs(instr.op, value2)) return value2;
+		Operand folded = Expression.fold(value1, instr.op, value2);
+		return folded != null ? folded : instr.assignee;
+	}
+
+	private static boolean absorbs(InstructType op, Operand value) {
+		return (op == InstructType.MUL && IntConst.ZERO.equals(value)) || (op == InstructType.AND && value == BoolConst.FALSE) || (op == InstructType.OR && value == BoolConst.TRUE);
+	}
+
+	private void setValue(Operand variable, Operand value) {
+		if(value == null || !tracks(variable) || varying.contains(variable)) return;
+		Operand known = constants.get(variable);
+		if(value.isConstant() && (known == null || known.equals(value))) {
+			if(known != null) return;
+			constants.put(variable, value);
+		} else {
+			constants.remove(variable);
+			varying.add(variable);
+		}
+		instrWorklist.addAll(defUse.getUses(variable));
+	}
+
+	private boolean tracks(Operand operand) {
+		return operand instanceof Var && !globalVariables.contains(operand.toString()) && defUse.getDefinitions(operand).size() == 1;
+	}
+
+	// Leaving SSA form gives a phi's arguments its variable's name, so a phi that isn't removed keeps
+	// reading the variables it did rather than their values. That holds for a constant phi read by
+	// one that stays, or left as the last instruction of its block, so the ones kept are followed
+	// back through their arguments until no more are found.
+	private Set<Operand> readByPhis() {
+		Set<Operand> read = new HashSet<>();
+		Deque<Instruction> kept = new ArrayDeque<>();
+		for(Block block: executable) {
+			for(int phi=0; phi<SSA.numPhis(block); ++phi) {
+				Instruction instr = block.instructions.get(phi);
+				if(!constants.containsKey(instr.assignee) || phi == block.instructions.size() - 1) kept.add(instr);
+			}
+		}
+		while(!kept.isEmpty()) {
+			for(Operand argument: kept.remove().arguments) {
+				if(!read.add(argument) || !constants.containsKey(argument)) continue;
+				Instruction definition = defUse.getDefinition(argument);
+				if(definition.isPhi()) kept.add(definition);
+			}
+		}
+		return read;
+	}
+
+	private boolean substitute(Instruction instr) {
+		if(instr.isPhi()) return false;
+		Operand value1 = constantFor(instr.value1);
+		Operand value2 = constantFor(instr.value2);
+		boolean change = value1 != instr.value1 || value2 != instr.value2;
+		instr.value1 = value1;
+		instr.value2 = value2;
+		if(instr.arguments != null) {
+			for(int argument=0; argument<instr.arguments.length; ++argument) {
+				Operand value = constantFor(instr.arguments[argument]);
+				change = change || value != instr.arguments[argument];
+				instr.arguments[argument] = value;
+			}
+		}
+		if(instr.assignee instanceof ArrayElement) {
+			Operand assignee = constantFor(instr.assignee);
+			change = change || assignee != instr.assignee;
+			instr.assignee = assignee;
+		}
+		return change;
+	}
+
+	private Operand constantFor(Operand operand) {
+		if(operand instanceof ArrayElement) {
+			ArrayElement element = (ArrayElement) operand;
+			Operand index = constantFor(element.getIndex());
+			return index == element.getIndex() ? operand : ArrayElement.of(element.getArray(), index);
+		}
+		Operand constant = operand == null ? null : constants.get(operand);
+		return constant == null ? operand : constant;
+	}
+
+	// A branch on a constant becomes a jump if it's always taken, and is dropped if it never is
+	private boolean foldBranch(Block block) {
+		if(block.instructions.isEmpty()) return false;
+		Instruction last = block.instructions.get(block.instructions.size() - 1);
+		if(!isBranch(last) || !(last.value1 instanceof BoolConst)) return false;
+		Block target = last.getJump().getBlock();
+		Block fallThrough = fallThrough(block, target);
+		if(last.value1 == BoolConst.TRUE) {
+			last.value1 = null;
+			if(fallThrough != target) removeEdge(block, fallThrough);
+		} else {
+			if(fallThrough != target) removeEdge(block, target);
+			if(block.instructions.size() > 1) {
+				block.instructions.remove(last);
+				last.getJump().getTargetingJumps().remove(last);
+			} else {
+				// Jumps to the branch need somewhere to go, so it becomes a jump to where it fell through to
+				last.getJump().getTargetingJumps().remove(last);
+				last.setJump(fallThrough.getFirst());
+				fallThrough.getFirst().addTargetingJump(last);
+				last.value1 = null;
+			}
+		}
+		return true;
+	}
+
+	// Returns count as conditional jumps, having a value
+	private static boolean isBranch(Instruction instr) {
+		return instr.isConditionalJump() && !instr.isReturn();
+	}
+
+	private static Block fallThrough(Block block, Block target) {
+		for(Block successor: block.successors) {
+			if(successor != target) return successor;
+		}
+		return target;
+	}
+
+	private void removeEdge(Block from, Block to) {
+		if(!from.successors.remove(to)) return;
+		to.predeccessors.remove(from);
+		for(Instruction instr: to.instructions) {
+			if(instr.isPhi()) instr.removeSource(from);
+		}
+		graph.invalidateAnalyses();
+	}
+
+}
@@ -0,0 +1,101 @@
+package ir;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Queue;
+
+// Solves a dataflow problem over a function's blocks with a worklist. Blocks are visited in
+// reverse postorder (postorder for backward problems), so outside loops everything flowing into
+// a block is known by the time it's visited, and a block is only visited again when something
+// flowing into it changes.
+public class Dataflow<T> {
+
+	private Map<Block, T> before = new HashMap<>();
+	private Map<Block, T> after = new HashMap<>();
+	private int visits = 0;
+
+	public Dataflow(Graph graph, DataflowProblem<T> problem) {
+		List<Block> order = graph.getPostorder();
+		if(problem.isForward()) Collections.reverse(order);
+
+		// Edges come from successors, which are kept up to date when blocks are removed
+		Map<Block, Integer> position = new HashMap<>();
+		for(int block=0; block<order.size(); ++block) {
+			position.put(order.get(block), block);
+		}
+		List<List<Block>> flowingIn = new ArrayList<>();
+		List<List<Block>> flowingOut = new ArrayList<>();
+		for(int block=0; block<order.size(); ++block) {
+			flowingIn.add(new ArrayList<>());
+			flowingOut.add(new ArrayList<>());
+		}
+		for(Block block: order) {
+			for(Block successor: block.getSuccessors()) {
+				if(!position.containsKey(successor)) continue;
+				if(problem.isForward()) {
+					flowingIn.get(position.get(successor)).add(block);
+					flowingOut.get(position.get(block)).add(successor);
+				} else {
+					flowingIn.get(position.get(block)).add(successor);
+					flowingOut.get(position.get(successor)).add(block);
+				}
+			}
+		}
+
+		Map<Block, T> in = problem.isForward() ? before : after;
+		Map<Block, T> out = problem.isForward() ? after : before;
+		for(Block block: order) {
+			out.put(block, problem.initial(block));
+		}
+		Queue<Integer> worklist = new PriorityQueue<>();
+		boolean[] queued = new boolean[order.size()];
+		for(int block=0; block<order.size(); ++block) {
+			worklist.add(block);
+			queued[block] = true;
+		}
+		while(!worklist.isEmpty()) {
+			int next = worklist.remove();
+			queued[next] = false;
+			Block block = order.get(next);
+			++visits;
+
+			List<T> flowing = new ArrayList<>();
+			for(Block from: flowingIn.get(next)) {
+				flowing.add(out.get(from));
+			}
+			T blockIn = problem.meet(block, flowing);
+			in.put(block, blockIn);
+			T blockOut = problem.transfer(block, blockIn);
+			if(!problem.same(blockOut, out.get(block))) {
+				out.put(block, blockOut);
+				for(Block to: flowingOut.get(next)) {
+					int toPosition = position.get(to);
+					if(!queued[toPosition]) {
+						worklist.add(toPosition);
+						queued[toPosition] = true;
+					}
+				}
+			}
+		}
+	}
+
+	// What holds at the start of block
+	public T getBefore(Block block) {
+		return before.get(block);
+	}
+
+	// What holds at the end of block
+	public T getAfter(Block block) {
+		return after.get(block);
+	}
+
+	// Times a block was visited before nothing changed
+	public int getVisits() {
+		return visits;
+	}
+
+}
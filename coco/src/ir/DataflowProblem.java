@@ -0,0 +1,33 @@
+package ir;
+
+import java.util.List;
+
+// A dataflow analysis for Dataflow to solve: which way facts flow, how facts meeting at a block
+// combine, and how a block changes what flows through it
+public abstract class DataflowProblem<T> {
+
+	private boolean forward;
+
+	protected DataflowProblem(boolean forward) {
+		this.forward = forward;
+	}
+
+	// Forward problems flow from predecessors to successors, backward ones the other way
+	public boolean isForward() {
+		return forward;
+	}
+
+	// What flows out of block before it's been visited
+	public abstract T initial(Block block);
+
+	// What flows into block given what flows out of its predecessors (successors if backward)
+	public abstract T meet(Block block, List<T> flowing);
+
+	// What flows out of block given what flows in
+	public abstract T transfer(Block block, T flowing);
+
+	public boolean same(T first, T second) {
+		return first.equals(second);
+	}
+
+}
@@ -0,0 +1,53 @@
+package ir;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Where each variable is assigned and read. In SSA form (see Graph.toSSA) every variable is
+// assigned once, so these are the def-use chains sparse passes follow.
+public class DefUse {
+
+	private Map<Operand, List<Instruction>> definitions = new HashMap<>();
+	private Map<Operand, List<Instruction>> uses = new HashMap<>();
+
+	public DefUse(Graph graph) {
+		for(Block block: graph.getBlocks()) {
+			for(Instruction instr: block.instructions) {
+				if(instr.assignee instanceof Var) {
+					add(definitions, instr.assignee, instr);
+				}
+				for(Var read: instr.variablesRead()) {
+					add(uses, read, instr);
+				}
+			}
+		}
+	}
+
+	// The instruction assigning variable, the first if there are several, null if none
+	public Instruction getDefinition(Operand variable) {
+		List<Instruction> assigning = definitions.get(variable);
+		return assigning == null ? null : assigning.get(0);
+	}
+
+	public List<Instruction> getDefinitions(Operand variable) {
+		return definitions.getOrDefault(variable, Collections.emptyList());
+	}
+
+	// Instructions reading variable, once for each time they read it
+	public List<Instruction> getUses(Operand variable) {
+		return uses.getOrDefault(variable, Collections.emptyList());
+	}
+
+	private static void add(Map<Operand, List<Instruction>> chains, Operand variable, Instruction instr) {
+		List<Instruction> chain = chains.get(variable);
+		if(chain == null) {
+			chain = new ArrayList<>();
+			chains.put(variable, chain);
+		}
+		chain.add(instr);
+	}
+
+}
@@ -0,0 +1,167 @@
+package ir;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Dominator tree and dominance frontiers of the blocks reachable from a function's entry, found
+// with Cooper, Harvey and Kennedy's iteration over reverse postorder. Blocks that can't be
+// reached aren't in the tree.
+public class Dominators {
+
+	private List<Block> order;	// reverse postorder
+	private Map<Block, Integer> number = new HashMap<>();
+	private Map<Block, List<Block>> predecessors = new HashMap<>();
+	private Block[] idom;
+	private Map<Block, List<Block>> children = new HashMap<>();
+	private Map<Block, Set<Block>> frontiers = null;	// worked out the first time they're asked for
+
+	// Dominator tree interval of each block, so one block dominates another when its interval
+	// contains the other's
+	private int[] enter;
+	private int[] exit;
+
+	public Dominators(Graph graph) {
+		Map<Block, Integer> position = graph.getPositions();
+		// Unreachable blocks come after the entry in postorder
+		List<Block> postorder = graph.getPostorder();
+		order = new ArrayList<>(postorder.subList(0, postorder.indexOf(graph.getEntryBlock()) + 1));
+		Collections.reverse(order);
+		for(int block=0; block<order.size(); ++block) {
+			number.put(order.get(block), block);
+			predecessors.put(order.get(block), new ArrayList<>());
+		}
+		for(Block block: order) {
+			for(Block successor: Graph.inOrder(block.getSuccessors(), position)) {
+				if(number.containsKey(successor)) predecessors.get(successor).add(block);
+			}
+		}
+
+		idom = new Block[order.size()];
+		if(order.isEmpty()) return;
+		idom[0] = order.get(0);
+		boolean change = true;
+		while(change) {
+			change = false;
+			for(int block=1; block<order.size(); ++block) {
+				Block newIdom = null;
+				for(Block predeccessor: predecessors.get(order.get(block))) {
+					if(idom[number.get(predeccessor)] == null) continue;
+					newIdom = newIdom == null ? predeccessor : intersect(predeccessor, newIdom);
+				}
+				if(newIdom != idom[block]) {
+					idom[block] = newIdom;
+					change = true;
+				}
+			}
+		}
+		idom[0] = null;
+
+		for(Block block: order) {
+			children.put(block, new ArrayList<>());
+		}
+		for(int block=1; block<order.size(); ++block) {
+			children.get(idom[block]).add(order.get(block));
+		}
+		numberTree();
+	}
+
+	// Reachable blocks in reverse postorder, the entry first
+	public List<Block> getOrder() {
+		return order;
+	}
+
+	public boolean isReachable(Block block) {
+		return number.containsKey(block);
+	}
+
+	// Reachable blocks with an edge to block, in the order they're laid out
+	public List<Block> getPredecessors(Block block) {
+		return predecessors.get(block);
+	}
+
+	// Null for the entry
+	public Block getImmediateDominator(Block block) {
+		return idom[number.get(block)];
+	}
+
+	// Blocks block immediately dominates, in reverse postorder
+	public List<Block> getChildren(Block block) {
+		return children.get(block);
+	}
+
+	// Whether every path from the entry to other goes through block, which is true of block itself
+	public boolean dominates(Block block, Block other) {
+		int dominator = number.get(block);
+		int dominated = number.get(other);
+		return enter[dominator] <= enter[dominated] && exit[dominated] <= exit[dominator];
+	}
+
+	// Blocks block doesn't strictly dominate but does dominate a predecessor of
+	public Set<Block> getFrontier(Block block) {
+		if(frontiers == null) findFrontiers();
+		return frontiers.get(block);
+	}
+
+	private Block intersect(Block first, Block second) {
+		int finger1 = number.get(first);
+		int finger2 = number.get(second);
+		while(finger1 != finger2) {
+			while(finger1 > finger2) finger1 = number.get(idom[finger1]);
+			while(finger2 > finger1) finger2 = number.get(idom[finger2]);
+		}
+		return order.get(finger1);
+	}
+
+	// Join points are in the frontier of everything from each of their predecessors up to, but not
+	// including, their immediate dominator. The entry can be a join point too if a loop goes back to
+	// it, since it's also entered from outside the function.
+	private void findFrontiers() {
+		frontiers = new HashMap<>();
+		for(Block block: order) {
+			frontiers.put(block, new LinkedHashSet<>());
+		}
+		for(Block block: order) {
+			List<Block> from = predecessors.get(block);
+			if(from.size() < 2 && !(block == order.get(0) && from.size() > 0)) continue;
+			Block blockIdom = getImmediateDominator(block);
+			for(Block predeccessor: from) {
+				for(Block runner = predeccessor; runner != null && runner != blockIdom; runner = getImmediateDominator(runner)) {
+					frontiers.get(runner).add(block);
+				}
+			}
+		}
+	}
+
+	private void numberTree() {
+		enter = new int[order.size()];
+		exit = new int[order.size()];
+		int counter = 0;
+		Deque<Block> path = new ArrayDeque<>();
+		Deque<Integer> nextChild = new ArrayDeque<>();
+		path.push(order.get(0));
+		nextChild.push(0);
+		enter[0] = counter++;
+		while(!path.isEmpty()) {
+			Block block = path.peek();
+			int child = nextChild.pop();
+			if(child < children.get(block).size()) {
+				nextChild.push(child + 1);
+				Block next = children.get(block).get(child);
+				enter[number.get(next)] = counter++;
+				path.push(next);
+				nextChild.push(0);
+			} else {
+				exit[number.get(block)] = counter++;
+				path.pop();
+			}
+		}
+	}
+
+}
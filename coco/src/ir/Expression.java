@@ -0,0 +1,121 @@
+package ir;
+
+import java.util.Set;
+
+// Value assigned by an instruction, what available expressions are tracked by
+class Expression {
+	
+	// Stands in for a variable reaching a block with different values along different paths
+	static final Expression ANY = new Expression(null, null, null);
+	
+	final Operand value1;
+	final InstructType op;
+	final Operand value2;
+	
+	private Expression(Operand value1, InstructType op, Operand value2) {
+		this.value1 = value1;
+		this.op = op;
+		this.value2 = value2;
+	}
+	
+	static Expression of(Instruction instr) {
+		return new Expression(instr.value1, instr.op, instr.value2);
+	}
+	
+	static Expression of(Operand value1, InstructType op, Operand value2) {
+		return new Expression(value1, op, value2);
+	}
+	
+	// Constant an operation on constants works out to, null if its operands aren't both constants
+	// or it can't be worked out at compile time, like dividing by 0
+	static Operand fold(Operand value1, InstructType op, Operand value2) {
+		if(value1 instanceof IntConst && value2 instanceof IntConst) {
+			int left = value1.intValue();
+			int right = value2.intValue();
+			switch(op) {
+			case ADD: 
+				return IntConst.of(left + right);
+			case SUB: 
+				return IntConst.of(left - right);
+			case MUL: 
+				return IntConst.of(left * right);
+			case DIV: 
+				return right != 0 ? IntConst.of(left / right) : null;
+			case MOD: 
+				return right != 0 ? IntConst.of(left % right) : null;
+			case POW: 
+				return IntConst.of((int)Math.pow(left, right));
+			case EQUAL: 
+				return BoolConst.of(left == right);
+			case NOT_EQUAL: 
+				return BoolConst.of(left != right);
+			case LESS_EQUAL: 
+				return BoolConst.of(left <= right);
+			case GREATER_EQUAL: 
+				return BoolConst.of(left >= right);
+			case LESS: 
+				return BoolConst.of(left < right);
+			case GREATER: 
+				return BoolConst.of(left > right);
+			}
+		} else if(value1 instanceof BoolConst && value2 instanceof BoolConst) {
+			boolean left = ((BoolConst) value1).booleanValue();
+			boolean right = ((BoolConst) value2).booleanValue();
+			switch(op) {
+			case EQUAL: 
+				return BoolConst.of(left == right);
+			case NOT_EQUAL: 
+				return BoolConst.of(left != right);
+			case OR: 
+				return BoolConst.of(left || right);
+			case AND: 
+				return BoolConst.of(left && right);
+			}
+		} else if(op == InstructType.NOT && value1 instanceof BoolConst) {
+			return BoolConst.of(!((BoolConst) value1).booleanValue());
+		}
+		return null;
+	}
+	
+	// Whether it's just the value of an operand, with nothing to compute
+	boolean isCopy() {
+		return op == null;
+	}
+	
+	boolean uses(Operand operand) {
+		return operand.equals(value1) || operand.equals(value2);
+	}
+	
+	boolean usesAny(Set<String> variables) {
+		return (value1 != null && value1.isVariable() && variables.contains(value1.toString())) || (value2 != null && value2.isVariable() && variables.contains(value2.toString()));
+	}
+	
+	@Override
+	public boolean equals(Object other) {
+		if(!(other instanceof Expression) || this == ANY || other == ANY) {
+			return this == other;
+		}
+		Expression expression = (Expression) other;
+		return op == expression.op && value1.equals(expression.value1) && (value2 == null ? expression.value2 == null : value2.equals(expression.value2));
+	}
+	
+	@Override
+	public int hashCode() {
+		int hash = value1 == null ? 0 : value1.hashCode();
+		hash = 31 * hash + (op == null ? 0 : op.ordinal());
+		return 31 * hash + (value2 == null ? 0 : value2.hashCode());
+	}
+	
+	@Override
+	public String toString() {
+		if(this == ANY) {
+			return "#any";
+		} else if(op == InstructType.NOT) {
+			return op + " " + value1;
+		} else if(op != null) {
+			return value1 + " " + op + " " + value2;
+		}
+		return String.valueOf(value1);
+	}
+	
+}
@@ -0,0 +1,31 @@
+package ir;
+
+// Float literal. Nothing in the IR computes with floats, so it's carried along as written.
+public final class FloatConst extends Operand {
+	
+	private String literal;
+	
+	private FloatConst(String literal) {
+		this.literal = literal;
+	}
+	
+	public static FloatConst of(String literal) {
+		return new FloatConst(literal);
+	}
+	
+	@Override
+	public boolean equals(Object other) {
+		return (other instanceof FloatConst) && ((FloatConst) other).literal.equals(literal);
+	}
+	
+	@Override
+	public int hashCode() {
+		return literal.hashCode();
+	}
+	
+	@Override
+	public String toString() {
+		return literal;
+	}
+	
+}
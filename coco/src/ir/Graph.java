@@ -1,11 +1,15 @@
 package ir;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
 
@@ -16,13 +20,28 @@ public class Graph implements Iterable<Block> {
 	private String type;
 	private Block entry;
 	private List<Block> blocks = new ArrayList<>();
+	private Set<String> globalVariables;
+	private Variables variables;
+	private SSA ssa = null;	// while the function's in SSA form
+	private ModRef modRef = null;	// of the program, once it's been summarized
+	private Analyses analyses = new Analyses(this);
+	private int dataflowSolves = 0;
+	private int dataflowVisits = 0;
+	private int hoisted = 0;
+	private int inlined = 0;
+	private int blocksMade = 0;
 	
-	public Graph(String function, ValueCode code, String parameters[], String type, Set<String> globalVariables) {
+	public Graph(String function, List<Instruction> instructions, String parameters[], String type, Variables variables) {
 		name = function;
 		this.parameters = parameters;
 		this.type = type;
+		this.variables = variables;
+		globalVariables = variables.globalVariables;
+		build(instructions);
+	}
 		
-		List<Instruction> instructions = code.instructions;
+	// Lays instructions out in blocks, in order, each ending at a jump or before a jump's target
+	private void build(List<Instruction> instructions) {
 		assignIndicies(instructions);
 		moveJumpsOffNoOps(instructions);
 		removeNoOps(instructions);
@@ -52,6 +71,26 @@ public class Graph implements Iterable<Block> {
 		updateSuccessors(blocks);
 	}
 	
+	// Builds the function's blocks again from its instructions laid out in order, for passes that
+	// change it more than block by block. Jumps are found again from their targets.
+	void rebuild(List<Instruction> instructions) {
+		for(Instruction instr: instructions) {
+			instr.getTargetingJumps().clear();
+		}
+		blocks.clear();
+		build(instructions);
+		invalidateAnalyses();
+	}
+	
+	// Instructions in the order their blocks are laid out
+	List<Instruction> getInstructions() {
+		List<Instruction> instructions = new ArrayList<>();
+		for(Block block: blocks) {
+			instructions.addAll(block.instructions);
+		}
+		return instructions;
+	}
+	
 	public String getName() {
 		return name;
 	}
@@ -64,6 +103,35 @@ public class Graph implements Iterable<Block> {
 		return name + type;
 	}
 	
+	// The function's variable of the name, made if it hasn't one yet
+	Var getVar(String name) {
+		return variables.get(name);
+	}
+	
+	Set<String> getGlobalVariables() {
+		return globalVariables;
+	}
+	
+	// Lets passes keep track of only the globals each call may read or assign
+	public void setModRef(ModRef modRef) {
+		this.modRef = modRef;
+	}
+	
+	// Globals a call may read, every one until the program's been summarized
+	Set<String> globalsRead(Instruction call) {
+		return modRef == null ? globalVariables : modRef.getRead(call.getCallee());
+	}
+	
+	// Globals a call may assign
+	Set<String> globalsWritten(Instruction call) {
+		return modRef == null ? globalVariables : modRef.getWritten(call.getCallee());
+	}
+	
+	// Globals the function, or any it calls, may assign
+	Set<String> globalsWritten() {
+		return modRef == null ? globalVariables : modRef.getWritten(this);
+	}
+	
 	public int length() {
 		int len = 0;
 		for(Block block: blocks) {
@@ -117,22 +185,65 @@ public class Graph implements Iterable<Block> {
 		return dot.toString();
 	}
 	
+	// Splits variables into versions assigned once, with phis where versions meet (see SSA)
+	public void toSSA() {
+		if(ssa == null) ssa = new SSA(this, globalVariables);
+	}
+	
+	// Leaves SSA form, which register allocation and the passes working on variables by name need.
+	// Phis and what passes added in SSA form took their neighbours' numbers, so instructions are
+	// numbered again in the order they're laid out.
+	public void fromSSA() {
+		if(ssa != null) {
+			ssa.undo();
+			ssa = null;
+			assignIndicies(getInstructions());
+		}
+	}
+	
+	public boolean isSSA() {
+		return ssa != null;
+	}
+	
+	// For passes in SSA form that let a version be read where another version of the same
+	// variable is live, e.g. by replacing reads of one variable with another
+	void versionsOverlap() {
+		ssa.versionsOverlap();
+	}
+	
+	public Dominators getDominators() {
+		return analyses.getDominators();
+	}
+	
+	public PostDominators getPostDominators() {
+		return analyses.getPostDominators();
+	}
+	
+	public Loops getLoops() {
+		return analyses.getLoops();
+	}
+	
+	// Blocks call this when they change the control flow, which the cached analyses depend on
+	void invalidateAnalyses() {
+		analyses.invalidate();
+	}
+	
+	// Times dominators, post-dominators or loops have been worked out
+	public int getAnalysesComputed() {
+		return analyses.getComputed();
+	}
+	
+	public DefUse getDefUse() {
+		return new DefUse(this);
+	}
+	
 	public boolean eliminateDeadCode() {
 		boolean someChange = false;
 		boolean change = true;
 		while(change) {
 			change = false;
 
-			for(Block block: blocks) {
-				block.clearPropagationSets();
-			}
-			boolean lvChange = true;
-			while(lvChange) {
-				lvChange = false;
-				for(Block block: blocks) {
-					lvChange = block.updateLiveVariables() || lvChange;
-				}
-			}
+			computeLiveVariables();
 			
 			Queue<Block> queued = new LinkedList<>();
 			queued.addAll(blocks);
@@ -145,6 +256,53 @@ public class Graph implements Iterable<Block> {
 		return someChange;
 	}
 	
+	// Numbers the variables and finds which are live going into and out of each block
+	public VariableNumbering computeLiveVariables() {
+		VariableNumbering variables = new VariableNumbering(this, globalVariables);
+		for(Block block: blocks) {
+			block.initLiveVariables(variables);
+		}
+		Dataflow<long[]> live = solve(new LiveVariables(variables));
+		for(Block block: blocks) {
+			block.liveIn = live.getBefore(block);
+			block.liveOut = live.getAfter(block);
+		}
+		return variables;
+	}
+	
+	private void computeAvailableExpressions() {
+		Dataflow<Map<Operand, Expression>> available = solve(new AvailableExpressions());
+		for(Block block: blocks) {
+			block.expIn = available.getBefore(block);
+			block.expOut = available.getAfter(block);
+		}
+	}
+	
+	private void computeSetVariables() {
+		Dataflow<Set<String>> set = solve(new SetVariables());
+		for(Block block: blocks) {
+			block.setIn = set.getBefore(block);
+			block.setOut = set.getAfter(block);
+		}
+	}
+	
+	private <T> Dataflow<T> solve(DataflowProblem<T> problem) {
+		Dataflow<T> solution = new Dataflow<>(this, problem);
+		++dataflowSolves;
+		dataflowVisits += solution.getVisits();
+		return solution;
+	}
+	
+	// Times dataflow problems have been solved over the function
+	public int getDataflowSolves() {
+		return dataflowSolves;
+	}
+	
+	// Blocks visited solving them, all told
+	public int getDataflowVisits() {
+		return dataflowVisits;
+	}
+	
 	public boolean foldConstants() {
 		boolean change = false;
 		for(int block=0; block<blocks.size(); ++block) {
@@ -153,19 +311,59 @@ public class Graph implements Iterable<Block> {
 		return change;
 	}
 	
+	// Sparse conditional constant propagation, which puts the function in SSA form first
+	public boolean propagateConditionalConstants() {
+		toSSA();
+		return new ConditionalConstants(this, globalVariables).rewrite();
+	}
+	
+	// Global value numbering, which puts the function in SSA form first
+	public boolean numberValuesGlobally() {
+		toSSA();
+		return new ValueNumbering(this, ssa).getReplaced() > 0;
+	}
+	
+	// Loop-invariant code motion, which puts the function in SSA form first
+	public boolean hoistLoopInvariants() {
+		toSSA();
+		int moved = new LoopInvariants(this, ssa, globalVariables).getHoisted();
+		hoisted += moved;
+		return moved > 0;
+	}
+	
+	// Strength reduction of induction variables, which puts the function in SSA form first
+	public boolean reduceStrength() {
+		toSSA();
+		return new InductionVariables(this, ssa, globalVariables).getReduced() > 0;
+	}
+	
+	// Function inlining of the calls to functions of the program small enough for budget (see
+	// Inliner), which takes the function out of SSA form first
+	public boolean inlineCalls(CallGraph program, int budget) {
+		fromSSA();
+		int calls = new Inliner(this, program, budget, inlined, globalVariables).getInlined();
+		inlined += calls;
+		return calls > 0;
+	}
+	
+	// Instructions loop-invariant code motion has moved out of loops
+	public int getHoisted() {
+		return hoisted;
+	}
+	
+	// Blocks are numbered per function, so functions can be worked on in parallel and still be named
+	// the same way
+	int numberBlock() {
+		return ++blocksMade;
+	}
+	
 	public boolean propagateAssignments(boolean consts) {
 		boolean someChange = false;
 		boolean change = true;
 		while(change) {
 			change = false;
 
-			boolean paChange = true;
-			while(paChange) {
-				paChange = false;
-				for(Block block: blocks) {
-					paChange = block.updateAvailableExpressions() || paChange;
-				}
-			}
+			computeAvailableExpressions();
 			
 			for(Block block: blocks) {
 				change = block.propagateAssignments(consts) || change;
@@ -182,16 +380,7 @@ public class Graph implements Iterable<Block> {
 		while(change) {
 			change = false;
 
-			for(Block block: blocks) {
-				block.clearPropagationSets();
-			}
-			boolean paChange = true;
-			while(paChange) {
-				paChange = false;
-				for(Block block: blocks) {
-					paChange = block.updateAvailableExpressions() || paChange;
-				}
-			}
+			computeAvailableExpressions();
 			
 			for(Block block: blocks) {
 				change = block.eliminateCommonSubexpressions() || change;
@@ -203,37 +392,80 @@ public class Graph implements Iterable<Block> {
 	}
 	
 	public void otherOptimizations() {
-		boolean change = true;
-		while(change) {
-			change = false;
-			for(Block block: blocks) {
-				change = block.updateSetVariables() || change;
-			}
-		}
+		computeSetVariables();
 			
 		for(Block block: blocks) {
 			block.zeroUnsetVariables();
 		}
 	}
 	
-	public Collection<String> getFunctionCalls() {
-		List<String> functions = new ArrayList<>();
-		for(Block block: blocks) {
-			functions.addAll(block.functionsCalled());
-		}
-		return functions;
-	}
-	
 	public Block getEntryBlock() {
 		return entry;
 	}
 	
+	// Blocks reachable from the entry in the order a depth first search finishes them, followed
+	// by any that can't be reached. Successors are searched in the order their blocks are laid
+	// out, so the order is the same every run.
+	public List<Block> getPostorder() {
+		List<Block> order = new ArrayList<>();
+		Map<Block, Integer> position = getPositions();
+		Set<Block> visited = new HashSet<>();
+		Deque<Block> path = new ArrayDeque<>();
+		Deque<Iterator<Block>> unexplored = new ArrayDeque<>();
+		visited.add(entry);
+		path.push(entry);
+		unexplored.push(inOrder(entry.getSuccessors(), position).iterator());
+		while(!path.isEmpty()) {
+			if(unexplored.peek().hasNext()) {
+				Block next = unexplored.peek().next();
+				if(visited.add(next)) {
+					path.push(next);
+					unexplored.push(inOrder(next.getSuccessors(), position).iterator());
+				}
+			} else {
+				Block finished = path.pop();
+				unexplored.pop();
+				if(position.containsKey(finished)) order.add(finished);
+			}
+		}
+		for(Block block: blocks) {
+			if(!visited.contains(block)) order.add(block);
+		}
+		return order;
+	}
+	
 	public Collection<Block> getBlocks() {
 		return blocks;
 	}
 	
+	// Where each block is laid out
+	Map<Block, Integer> getPositions() {
+		Map<Block, Integer> position = new HashMap<>();
+		for(int block=0; block<blocks.size(); ++block) {
+			position.put(blocks.get(block), block);
+		}
+		return position;
+	}
+	
+	// Those of some blocks still in the graph, in the order they're laid out
+	static List<Block> inOrder(Collection<Block> some, Map<Block, Integer> position) {
+		List<Block> ordered = new ArrayList<>();
+		for(Block block: some) {
+			if(position.containsKey(block)) ordered.add(block);
+		}
+		ordered.sort((first, second) -> position.get(first) - position.get(second));
+		return ordered;
+	}
+	
+	// Lays block out just before another
+	void addBlockBefore(Block block, Block before) {
+		blocks.add(blocks.indexOf(before), block);
+		invalidateAnalyses();
+	}
+	
 	protected void removeBlock(Block block) {
 		blocks.remove(block);
+		invalidateAnalyses();
 	}
 	
 	private void assignIndicies(List<Instruction> instructions) {
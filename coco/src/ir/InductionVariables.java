@@ -0,0 +1,415 @@
+package ir;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Strength reduction of induction variables over a function in SSA form. A basic induction
+// variable is a phi in a loop's header stepped by a constant each time round, and variables
+// worked out from one by adding what the loop doesn't change or multiplying by constants are
+// derived from it, as array indexing makes of loop counters. Each derived variable that took a
+// multiply and is read by something besides more of the same gets a variable of its own, set
+// before the loop and stepped by a constant at the end of each time round. Comparing a basic
+// variable plus something with a constant to decide whether to leave the loop becomes comparing
+// one of those (linear function test replacement) where neither side can overflow, so what's
+// left of the basic variable is dead and goes with the rest of the old arithmetic.
+class InductionVariables {
+
+	private Graph graph;
+	private SSA ssa;
+	private Set<String> globalVariables;
+	private int reduced = 0;
+	private int made = 0;	// variables made for values worked out before loops, numbering their names
+
+	// The loop being looked at, what each basic variable is stepped by, and each induction
+	// variable's basic variable, what it's that times plus something the loop doesn't change,
+	// and whether it took a multiply
+	private Loop loop;
+	private DefUse defUse;
+	private Map<Instruction, Integer> steps = new HashMap<>();
+	private Map<Operand, Instruction> basics = new LinkedHashMap<>();
+	private Map<Operand, Integer> scales = new HashMap<>();
+	private Set<Operand> multiplied = new HashSet<>();
+
+	InductionVariables(Graph graph, SSA ssa, Set<String> globalVariables) {
+		this.graph = graph;
+		this.ssa = ssa;
+		this.globalVariables = globalVariables;
+		Loops.innerFirst(graph, loop -> {
+			this.loop = loop;
+			reduce();
+		});
+	}
+
+	// Derived variables given variables of their own
+	int getReduced() {
+		return reduced;
+	}
+
+	private void reduce() {
+		Block header = loop.getHeader();
+		if(header == graph.getEntryBlock() || loop.getLatches().size() != 1) return;
+		Block latch = loop.getLatches().get(0);
+		Instruction back = latch.instructions.isEmpty() ? null : latch.instructions.get(latch.instructions.size() - 1);
+		if(back == null || back.isReturn() || back.getJump() == null || back.getJump().getBlock() != header) return;
+
+		defUse = graph.getDefUse();
+		steps.clear();
+		basics.clear();
+		scales.clear();
+		multiplied.clear();
+		for(Instruction instr: header.instructions) {
+			if(!instr.isPhi()) break;
+			Integer step = step(instr, latch);
+			if(step != null) {
+				steps.put(instr, step);
+				basics.put(instr.assignee, instr);
+				scales.put(instr.assignee, 1);
+			}
+		}
+		if(steps.isEmpty()) return;
+		for(Block block: loop.getBlocks()) {
+			for(Instruction instr: block.instructions) {
+				derive(instr);
+			}
+		}
+
+		List<Operand> reducing = new ArrayList<>();
+		for(Operand variable: basics.keySet()) {
+			if(!multiplied.contains(variable) || !fits((long) steps.get(basics.get(variable)) * scales.get(variable))) continue;
+			for(Instruction use: defUse.getUses(variable)) {
+				if(use.isPhi() || !basics.containsKey(use.assignee)) {
+					reducing.add(variable);
+					break;
+				}
+			}
+		}
+		if(reducing.isEmpty()) return;
+
+		// Each reduced variable's versions: before the loop, in it, and stepped
+		List<Instruction> before = new ArrayList<>();
+		Map<Operand, Operand[]> versions = new LinkedHashMap<>();
+		for(Operand variable: reducing) {
+			Instruction basic = basics.get(variable);
+			Operand base = graph.getVar(variable + "'");
+			Operand[] version = {ssa.addVersion(base), ssa.addVersion(base), ssa.addVersion(base)};
+			versions.put(variable, version);
+			assign(version[0], workOut(variable, entering(basic), before), before);
+		}
+		for(Block block: loop.getBlocks()) {
+			for(Instruction instr: block.instructions) {
+				if(instr.isComparison()) replaceTest(instr, versions);
+			}
+		}
+
+		List<Block> entering = new ArrayList<>();
+		for(Block predeccessor: graph.getDominators().getPredecessors(header)) {
+			if(!loop.contains(predeccessor)) entering.add(predeccessor);
+		}
+		Block preheader;
+		if(entering.size() == 1 && entering.get(0).getSuccessors().size() == 1) {
+			preheader = entering.get(0);
+			for(Instruction instr: before) {
+				SSA.addBeforeLeaving(preheader, instr);
+			}
+		} else if(LoopInvariants.canAddPreheader(graph, loop)) {
+			preheader = new Block(globalVariables, graph);
+			for(Instruction instr: before) {
+				preheader.addInstruction(instr);
+			}
+			LoopInvariants.addPreheader(graph, loop, preheader);
+		} else {
+			return;
+		}
+
+		// Phis go after those already in the header, which jumps to the header go to
+		int phis = SSA.numPhis(header);
+		for(Operand variable: versions.keySet()) {
+			Operand[] version = versions.get(variable);
+			Instruction phi = new Instruction(version[1], new Operand[] {version[0], version[2]}, new Block[] {preheader, latch});
+			phi.setIndex(header.getFirst().getIndex());
+			phi.setBlock(header);
+			header.instructions.add(phis++, phi);
+			int step = steps.get(basics.get(variable)) * scales.get(variable);
+			SSA.addBeforeLeaving(latch, new Instruction(version[2], version[1], InstructType.ADD, IntConst.of(step)));
+			defUse.getDefinition(variable).makeCopy(version[1]);
+			++reduced;
+		}
+		removeDead();
+	}
+
+	// The constant a phi's variable is stepped by each time round, null if it isn't
+	private Integer step(Instruction phi, Block latch) {
+		if(phi.sources.length != 2) return null;
+		Operand next = null;
+		for(int source=0; source<phi.sources.length; ++source) {
+			if(phi.sources[source] == null) return null;
+			if(loop.contains(phi.sources[source])) {
+				if(phi.sources[source] != latch) return null;
+				next = phi.arguments[source];
+			}
+		}
+		Instruction step = next == null ? null : defUse.getDefinition(next);
+		while(step != null && step.isCopy() && loop.contains(step.getBlock()) && ssa.holdsOneValue(step.value1)) {
+			step = defUse.getDefinition(step.value1);
+		}
+		if(step == null || !loop.contains(step.getBlock()) || step.value2 == null) return null;
+		if(step.op == InstructType.ADD && step.value1.equals(phi.assignee) && step.value2 instanceof IntConst) {
+			return step.value2.intValue();
+		} else if(step.op == InstructType.ADD && step.value2.equals(phi.assignee) && step.value1 instanceof IntConst) {
+			return step.value1.intValue();
+		} else if(step.op == InstructType.SUB && step.value1.equals(phi.assignee) && step.value2 instanceof IntConst) {
+			return -step.value2.intValue();
+		}
+		return null;
+	}
+
+	private void derive(Instruction instr) {
+		Operand assignee = instr.assignee;
+		if(instr.isPhi() || !ssa.holdsOneValue(assignee) || basics.containsKey(assignee)) return;
+		if(instr.isCopy()) {
+			if(basics.containsKey(instr.value1)) derived(assignee, instr.value1, scales.get(instr.value1), false);
+			return;
+		} else if(!instr.isOp()) {
+			return;
+		}
+		boolean first = basics.containsKey(instr.value1);
+		Operand from = first ? instr.value1 : instr.value2;
+		Operand other = first ? instr.value2 : instr.value1;
+		if(!basics.containsKey(from) || !isInvariant(other)) return;
+		int scale = scales.get(from);
+		switch(instr.op) {
+		case ADD:
+			derived(assignee, from, scale, false);
+			break;
+		case SUB:
+			derived(assignee, from, first ? scale : -scale, false);
+			break;
+		case MUL:
+			if(other instanceof IntConst) derived(assignee, from, scale * other.intValue(), true);
+			break;
+		}
+	}
+
+	private void derived(Operand variable, Operand from, int scale, boolean multiplies) {
+		basics.put(variable, basics.get(from));
+		scales.put(variable, scale);
+		if(multiplies || multiplied.contains(from)) multiplied.add(variable);
+	}
+
+	private boolean isInvariant(Operand operand) {
+		if(operand instanceof IntConst) {
+			return true;
+		} else if(!ssa.holdsOneValue(operand)) {
+			return false;
+		}
+		Instruction definition = defUse.getDefinition(operand);
+		return definition == null || !loop.contains(definition.getBlock());
+	}
+
+	// What the basic variable starts as, from the edges into the loop
+	private Operand entering(Instruction basic) {
+		for(int source=0; source<basic.sources.length; ++source) {
+			if(!loop.contains(basic.sources[source])) return basic.arguments[source];
+		}
+		return null;
+	}
+
+	// Adds instructions working out variable before the loop given its basic variable's value,
+	// returning what holds it
+	private Operand workOut(Operand variable, Operand basic, List<Instruction> before) {
+		Instruction definition = defUse.getDefinition(variable);
+		if(basics.get(variable) == definition) {
+			return basic;
+		} else if(definition.isCopy()) {
+			return workOut(definition.value1, basic, before);
+		}
+		Operand value1 = basics.containsKey(definition.value1) ? workOut(definition.value1, basic, before) : definition.value1;
+		Operand value2 = basics.containsKey(definition.value2) ? workOut(definition.value2, basic, before) : definition.value2;
+		return operation(variable, value1, definition.op, value2, before);
+	}
+
+	// Variables only copied a constant are taken as it, adding or subtracting 0 and multiplying by 1
+	// are left out, and what's already been worked out before the loop is used again
+	private Operand operation(Operand variable, Operand value1, InstructType op, Operand value2, List<Instruction> before) {
+		Integer constant1 = constant(value1);
+		Integer constant2 = constant(value2);
+		if(constant1 != null) value1 = IntConst.of(constant1);
+		if(constant2 != null) value2 = IntConst.of(constant2);
+		Operand folded = Expression.fold(value1, op, value2);
+		if(folded != null && fits(folded.intValue())) return folded;
+		if((op == InstructType.ADD || op == InstructType.SUB) && IntConst.ZERO.equals(value2) || op == InstructType.MUL && IntConst.of(1).equals(value2)) {
+			return value1;
+		} else if(op == InstructType.ADD && IntConst.ZERO.equals(value1) || op == InstructType.MUL && IntConst.of(1).equals(value1)) {
+			return value2;
+		}
+		for(Instruction instr: before) {
+			if(instr.op == op && value1.equals(instr.value1) && value2.equals(instr.value2)) return instr.assignee;
+		}
+		Operand result = graph.getVar(variable + "'" + ++made);
+		before.add(new Instruction(result, value1, op, value2));
+		return result;
+	}
+
+	// Assigns value to variable before the loop, taking over the instruction working it out if there is one
+	private void assign(Operand variable, Operand value, List<Instruction> before) {
+		Instruction last = before.isEmpty() ? null : before.get(before.size() - 1);
+		if(last != null && last.assignee.equals(value)) {
+			last.assignee = variable;
+		} else {
+			before.add(new Instruction(variable, value));
+		}
+	}
+
+	// A basic variable plus something compared with a constant is compared as a variable reduced
+	// from it instead, if one was multiplied by something positive. Scaling both sides only keeps
+	// the comparison's result where neither overflows, so it's only done for tests deciding every
+	// time round whether to leave the loop, of a basic variable starting at a constant and stepped
+	// towards the bound: every value compared then lies between the start and one step past the
+	// bound, and those are checked to fit.
+	private void replaceTest(Instruction instr, Map<Operand, Operand[]> versions) {
+		boolean first = basics.containsKey(instr.value1);
+		Operand tested = first ? instr.value1 : instr.value2;
+		Operand bound = first ? instr.value2 : instr.value1;
+		if(!basics.containsKey(tested) || scales.get(tested) != 1 || !isInvariant(bound)) return;
+		if(instr.op == InstructType.EQUAL || instr.op == InstructType.NOT_EQUAL || !decidesLeaving(instr)) return;
+		Instruction basic = basics.get(tested);
+		Integer start = constant(entering(basic));
+		Integer limit = constant(bound);
+		Long offset = evaluate(tested, 0);
+		if(start == null || limit == null || offset == null) return;
+		// tested is basic + offset, so it's compared with bound where basic is compared with bound - offset
+		long basicBound = limit - offset;
+		long step = steps.get(basic);
+		if((basicBound - start) * step < 0) return;
+		long low = Math.min(start, basicBound + step);
+		long high = Math.max(start, basicBound + step);
+		if(evaluate(tested, low) == null || evaluate(tested, high) == null) return;
+		for(Operand variable: versions.keySet()) {
+			if(basics.get(variable) != basic || scales.get(variable) <= 0) continue;
+			if(evaluate(variable, low) == null || evaluate(variable, high) == null || !fits(evaluate(variable, basicBound))) continue;
+			Operand reducedBound = IntConst.of(evaluate(variable, basicBound).intValue());
+			if(first) {
+				instr.value1 = versions.get(variable)[1];
+				instr.value2 = reducedBound;
+			} else {
+				instr.value1 = reducedBound;
+				instr.value2 = versions.get(variable)[1];
+			}
+			return;
+		}
+	}
+
+	// Whether an instruction can hold a constant, which it only has 16 bits for
+	private static boolean fits(long constant) {
+		return constant >= Short.MIN_VALUE && constant <= Short.MAX_VALUE;
+	}
+
+	// Whether a comparison, run every time round, decides the jump out of the loop, directly or
+	// through a NOT
+	private boolean decidesLeaving(Instruction comparison) {
+		Block block = comparison.getBlock();
+		if(!graph.getDominators().dominates(block, loop.getLatches().get(0))) return false;
+		Instruction last = block.instructions.get(block.instructions.size() - 1);
+		if(!last.isConditionalJump() || last.isReturn()) return false;
+		boolean leaves = false;
+		for(Block successor: block.getSuccessors()) {
+			if(!loop.contains(successor)) leaves = true;
+		}
+		Operand decision = last.value1;
+		Instruction definition = defUse.getDefinition(decision);
+		if(definition != null && definition.isNot()) decision = definition.value1;
+		return leaves && decision.equals(comparison.assignee);
+	}
+
+	// The int a variable holds if it's only ever copied one, following copies, null otherwise
+	private Integer constant(Operand operand) {
+		while(ssa.holdsOneValue(operand)) {
+			Instruction definition = defUse.getDefinition(operand);
+			if(definition == null || !definition.isCopy()) return null;
+			operand = definition.value1;
+		}
+		return operand instanceof IntConst ? operand.intValue() : null;
+	}
+
+	// What a derived variable works out to given its basic variable's value, null if it takes
+	// something besides constants or anything along the way doesn't fit in an int
+	private Long evaluate(Operand variable, long basic) {
+		if(basic < Integer.MIN_VALUE || basic > Integer.MAX_VALUE) return null;
+		Instruction definition = defUse.getDefinition(variable);
+		if(basics.get(variable) == definition) {
+			return basic;
+		} else if(definition.isCopy()) {
+			return evaluate(definition.value1, basic);
+		}
+		Integer constant1 = constant(definition.value1);
+		Integer constant2 = constant(definition.value2);
+		Long value1 = basics.containsKey(definition.value1) ? evaluate(definition.value1, basic) : constant1 == null ? null : Long.valueOf(constant1);
+		Long value2 = basics.containsKey(definition.value2) ? evaluate(definition.value2, basic) : constant2 == null ? null : Long.valueOf(constant2);
+		if(value1 == null || value2 == null) return null;
+		long value;
+		switch(definition.op) {
+		case ADD:
+			value = value1 + value2;
+			break;
+		case SUB:
+			value = value1 - value2;
+			break;
+		case MUL:
+			value = value1 * value2;
+			break;
+		default:
+			return null;
+		}
+		return value < Integer.MIN_VALUE || value > Integer.MAX_VALUE ? null : value;
+	}
+
+	// Removes what the loop works out that nothing needs any more, which the old arithmetic and
+	// basic variables only read by themselves are
+	private void removeDead() {
+		defUse = graph.getDefUse();
+		Set<Instruction> live = new HashSet<>();
+		Deque<Instruction> worklist = new ArrayDeque<>();
+		for(Block block: graph.getBlocks()) {
+			for(Instruction instr: block.instructions) {
+				if(!loop.contains(block) || !ssa.holdsOneValue(instr.assignee) || instr.isCall()) {
+					live.add(instr);
+					worklist.add(instr);
+				}
+			}
+		}
+		while(!worklist.isEmpty()) {
+			for(Var read: worklist.remove().variablesRead()) {
+				for(Instruction definition: defUse.getDefinitions(read)) {
+					if(live.add(definition)) worklist.add(definition);
+				}
+			}
+		}
+
+		for(Block block: loop.getBlocks()) {
+			List<Instruction> kept = new ArrayList<>();
+			for(Instruction instr: block.instructions) {
+				if(live.contains(instr)) kept.add(instr);
+			}
+			// Blocks are left with an instruction for jumps to them to go to
+			if(kept.isEmpty()) kept.add(block.instructions.get(block.instructions.size() - 1));
+			Instruction first = kept.get(0);
+			for(Instruction instr: block.instructions) {
+				if(kept.contains(instr) || !instr.targeted()) continue;
+				for(Instruction jump: instr.getTargetingJumps()) {
+					jump.setJump(first);
+					first.addTargetingJump(jump);
+				}
+				instr.getTargetingJumps().clear();
+			}
+			block.instructions.retainAll(kept);
+		}
+	}
+
+}
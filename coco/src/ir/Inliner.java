@@ -0,0 +1,172 @@
+package ir;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Function inlining over a function out of SSA form. A call is replaced by a copy of its callee's
+// body, the callee's variables renamed for the call, so name@N for the Nth call inlined into the
+// function, its parameters copied the arguments first and its returns copying the value to the
+// call's result and jumping past. Callees that can call themselves, directly or not, aren't
+// inlined, nor those using arrays other than global ones, which are passed by reference. A callee
+// is inlined when it has at most budget instructions, twice that for each loop the call's in up
+// to three, and twice again when it's the only call to the callee, which is left for nothing else.
+class Inliner {
+
+	private static final int MAX_DEPTH = 3;
+
+	private Graph graph;
+	private Set<String> globalVariables;
+	private CallGraph calls;
+	private int site;
+	private int inlined = 0;
+
+	// Calls already inlined into the function are numbered up from site
+	Inliner(Graph graph, CallGraph calls, int budget, int site, Set<String> globalVariables) {
+		this.graph = graph;
+		this.calls = calls;
+		this.site = site;
+		this.globalVariables = globalVariables;
+
+		Loops loops = graph.getLoops();
+		Map<Instruction, Graph> inlining = new HashMap<>();
+		for(Block block: graph) {
+			int weight = 1 << Math.min(loops.getDepth(block), MAX_DEPTH);
+			for(Instruction instr: block.instructions) {
+				if(!(instr.isCall() || instr.isVoidCall()) || instr.isBuiltInFunction()) continue;
+				Graph callee = instr.getCallee();
+				if(callee == null || callee == graph || !canInline(callee)) continue;
+				int allowed = budget * weight * (calls.getCalls(callee) == 1 ? 2 : 1);
+				if(callee.length() <= allowed) inlining.put(instr, callee);
+			}
+		}
+		if(inlining.isEmpty()) return;
+
+		List<Instruction> instructions = new ArrayList<>();
+		List<Instruction> laidOut = graph.getInstructions();
+		Map<Instruction, Instruction> starts = new HashMap<>();	// of the body in place of each call
+		for(int at=0; at<laidOut.size(); ++at) {
+			Instruction instr = laidOut.get(at);
+			if(inlining.containsKey(instr)) {
+				List<Instruction> body = inline(instr, inlining.get(instr), laidOut.get(at + 1));
+				starts.put(instr, body.get(0));
+				instructions.addAll(body);
+			} else {
+				instructions.add(instr);
+			}
+		}
+		// Jumps to calls, including returns to a call just after another, go to their bodies
+		for(Instruction instr: instructions) {
+			if(starts.containsKey(instr.getJump())) instr.setJump(starts.get(instr.getJump()));
+		}
+		graph.rebuild(instructions);
+	}
+
+	// Calls inlined
+	int getInlined() {
+		return inlined;
+	}
+
+	private boolean canInline(Graph callee) {
+		for(Block block: callee) {
+			for(Instruction instr: block.instructions) {
+				List<Operand> operands = new ArrayList<>(Arrays.asList(instr.assignee, instr.value1, instr.value2));
+				if(instr.arguments != null) operands.addAll(Arrays.asList(instr.arguments));
+				for(Operand operand: operands) {
+					if(operand instanceof ArrayElement && !isGlobal(((ArrayElement) operand).getArray())) return false;
+				}
+			}
+		}
+		return !calls.isRecursive(callee);
+	}
+
+	// The callee's body in place of call, going on to next when it returns
+	private List<Instruction> inline(Instruction call, Graph callee, Instruction next) {
+		++site;
+		++inlined;
+		List<Instruction> body = new ArrayList<>();
+		String[] parameters = callee.getParameters();
+		for(int parameter=0; parameter<parameters.length; ++parameter) {
+			body.add(new Instruction(rename(callee.getVar(parameters[parameter])), call.arguments[parameter]));
+		}
+		// Each call starts the callee's variables at 0
+		for(Var unset: readUnset(callee)) {
+			body.add(new Instruction(rename(unset), IntConst.ZERO));
+		}
+
+		Map<Instruction, Instruction> copies = new HashMap<>();
+		List<Instruction> jumps = new ArrayList<>();
+		for(Instruction instr: callee.getInstructions()) {
+			Instruction copy;
+			if(instr.isReturn()) {
+				if(call.assignee != null && instr.value1 != null) {
+					copy = new Instruction(call.assignee, rename(instr.value1));
+					body.add(copy);
+					body.add(new Instruction(InstructType.JUMP, next));
+				} else {
+					copy = new Instruction(InstructType.JUMP, next);
+					body.add(copy);
+				}
+			} else {
+				copy = instr.copy();
+				copy.assignee = rename(copy.assignee);
+				copy.value1 = rename(copy.value1);
+				copy.value2 = rename(copy.value2);
+				if(copy.arguments != null) {
+					for(int argument=0; argument<copy.arguments.length; ++argument) {
+						copy.arguments[argument] = rename(copy.arguments[argument]);
+					}
+				}
+				if(copy.isJump()) jumps.add(copy);
+				body.add(copy);
+			}
+			copies.put(instr, copy);
+		}
+		for(Instruction jump: jumps) {
+			jump.setJump(copies.get(jump.getJump()));
+		}
+		return body;
+	}
+
+	// Local variables the callee may read before giving them a value, in the order they're read.
+	// Parameters always have one, and blocks that can't be reached never read anything.
+	private Set<Var> readUnset(Graph callee) {
+		Set<Var> unset = new LinkedHashSet<>();
+		Dataflow<Set<String>> set = new Dataflow<>(callee, new SetVariables());
+		Dominators dominators = callee.getDominators();
+		for(Block block: callee) {
+			if(!dominators.isReachable(block)) continue;
+			Set<String> setVariables = new HashSet<>(set.getBefore(block));
+			setVariables.addAll(Arrays.asList(callee.getParameters()));
+			for(Instruction instr: block.instructions) {
+				for(Var read: instr.variablesRead()) {
+					if(!isGlobal(read) && !setVariables.contains(read.getName())) unset.add(read);
+				}
+				if(instr.assignee != null) setVariables.add(instr.assignee.toString());
+			}
+		}
+		return unset;
+	}
+
+	private Operand rename(Operand operand) {
+		if(operand instanceof ArrayElement) {
+			ArrayElement element = (ArrayElement) operand;
+			return ArrayElement.of((Var) rename(element.getArray()), rename(element.getIndex()));
+		} else if(operand instanceof Var) {
+			// The callee's variables are its own, so even globals are given the caller's
+			String name = ((Var) operand).getName();
+			return graph.getVar(isGlobal((Var) operand) ? name : name + "@" + site);
+		}
+		return operand;
+	}
+
+	private boolean isGlobal(Var variable) {
+		return globalVariables.contains(variable.getName());
+	}
+
+}
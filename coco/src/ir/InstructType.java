@@ -1,5 +1,5 @@
 package ir;
 
 public enum InstructType {
-ADD, SUB, MUL, DIV, MOD, POW, EQUAL, NOT_EQUAL, LESS_EQUAL, GREATER_EQUAL, LESS, GREATER, OR, AND, JUMP, NOT, RETURN
+ADD, SUB, MUL, DIV, MOD, POW, EQUAL, NOT_EQUAL, LESS_EQUAL, GREATER_EQUAL, LESS, GREATER, OR, AND, JUMP, NOT, RETURN, CALL, PHI
 }
@@ -1,16 +1,23 @@
 package ir;
 
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 public class Instruction {
 	
-	public String assignee = null;
-	public String value1 = null;
+	public Operand assignee = null;
+	public Operand value1 = null;
 	public InstructType op = null;
-	public String value2 = null;
+	public Operand value2 = null;
 	Instruction location = null;
-	private String parameters;
+	Operand[] arguments = null;	// of a call, whose result goes to assignee unless it's a void call, or of a phi
+	Block[] sources = null;	// of a phi, the predecessor each argument comes from, null for the function's start
+	private String function;
+	private String callee;	// signature the call resolved to, e.g. f(int,bool)
+	private Graph target;	// function the program defines with that signature, once a CallGraph's resolved it
+	private Builtin builtin;
 	
 	private int index;
 	
@@ -22,31 +29,43 @@ public class Instruction {
 	}
 	
 	// Function
-	public Instruction(String assignee, String call, String parameters) {
+	public Instruction(Operand assignee, String function, Operand[] arguments, String parameters) {
+		this(function, arguments, parameters);
 		this.assignee = assignee;
-		this.value1 = call;
-		this.parameters = parameters;
+	}
+	
+	// Void Function
+	public Instruction(String function, Operand[] arguments, String parameters) {
+		this.op = InstructType.CALL;
+		this.function = function;
+		this.arguments = arguments;
+		callee = function + parameters;
+		builtin = Builtin.of(callee);
+	}
+	
+	// Phi, assigning whichever argument's source block was run last
+	public Instruction(Operand assignee, Operand[] arguments, Block[] sources) {
+		this.assignee = assignee;
+		this.op = InstructType.PHI;
+		this.arguments = arguments;
+		this.sources = sources;
 	}
 	
 	// Copy Assignment
-	public Instruction(String assignee, String value) {
+	public Instruction(Operand assignee, Operand value) {
 		this.assignee = assignee;
-		if(this.assignee.startsWith("call ")) {
-			parameters = value;
-		} else {
-			this.value1 = value;
-		}
+		this.value1 = value;
 	}
 	
 	// NOT Instruction
-	public Instruction(String assignee, InstructType op, String bool) {
+	public Instruction(Operand assignee, InstructType op, Operand bool) {
 		this.assignee = assignee;
 		this.op = op;
 		this.value1 = bool;
 	}
 	
 	// Operation
-	public Instruction(String assignee, String value1, InstructType op, String value2) {
+	public Instruction(Operand assignee, Operand value1, InstructType op, Operand value2) {
 		this.assignee = assignee;
 		this.value1 = value1;
 		this.op = op;
@@ -60,14 +79,14 @@ public class Instruction {
 	}
 	
 	// Conditional Jump
-	public Instruction(InstructType op, Instruction location, String decision) {
+	public Instruction(InstructType op, Instruction location, Operand decision) {
 		this.op = op;
 		this.location = location;
 		this.value1 = decision;
 	}
 	
 	// Return Instruction
-	public Instruction(InstructType op, String value) {
+	public Instruction(InstructType op, Operand value) {
 		this.op = op;
 		this.value1 = value;
 	}
@@ -86,7 +105,7 @@ public class Instruction {
 	}
 	
 	public boolean isAssignment() {
-		return value1 != null && (op == null || (op != InstructType.JUMP && op != InstructType.RETURN));
+		return (value1 != null || isCall()) && (op == null || (op != InstructType.JUMP && op != InstructType.RETURN));
 	}
 	
 	public boolean isJump() {
@@ -102,15 +121,19 @@ public class Instruction {
 	}
 	
 	public boolean isCall() {
-		return value1 != null && value1.startsWith("call ");
+		return op == InstructType.CALL && assignee != null;
 	}
 	
 	public boolean isVoidCall() {
-		return assignee != null && assignee.startsWith("call ");
+		return op == InstructType.CALL && assignee == null;
+	}
+	
+	public boolean isPhi() {
+		return op == InstructType.PHI;
 	}
 	
 	public boolean isBuiltInFunction() {
-		return getSignature().equals("readInt()") || getSignature().equals("readBool()") || getSignature().equals("printInt(int)") || getSignature().equals("printBool(bool)") || getSignature().equals("println()");
+		return builtin != null;
 	}
 	
 	public boolean isCopy() {
@@ -130,7 +153,7 @@ public class Instruction {
 	}
 	
 	public boolean isExit() {
-		return (op != InstructType.JUMP) && (op != InstructType.RETURN) && (assignee == null);
+		return (op != InstructType.JUMP) && (op != InstructType.RETURN) && (op != InstructType.CALL) && (assignee == null);
 	}
 	
 	public boolean isComparison() {
@@ -149,70 +172,108 @@ public class Instruction {
 	}
 	
 	public String getFunctionName() {
-		if(!isCall() && !isVoidCall()) {
+		if(op != InstructType.CALL) {
 			throw new RuntimeException("Can only get the function name of a function");
 		}
-		
-		String callString;
-		if(isCall()) {
-			callString = value1;
-		} else {
-			callString = assignee;
-		}
-		
-		return callString.substring(5, callString.indexOf('('));
+		return function;
 	}
 	
 	public String getSignature() {
-		return getFunctionName() + parameters;
+		if(op != InstructType.CALL) {
+			throw new RuntimeException("Can only get the signature of a function call");
+		}
+		return callee;
 	}
 	
-	public String[] getParameters() {
-		if(!isCall() && !isVoidCall()) {
-			throw new RuntimeException("Can only get the parameters of a function call");
-		}
-		if(isCall()) {
-			int start = value1.indexOf('(');
-			String parameters = value1.substring(start + 1, value1.length() - 1);
-			return parameters.split(",");
-		} else {
-			int start = assignee.indexOf('(');
-			String parameters = assignee.substring(start + 1, assignee.length() - 1);
-			return parameters.split(",");
+	// Function the call goes to, null for a builtin or until the program's call graph is built
+	public Graph getCallee() {
+		return target;
+	}
+	
+	void setCallee(Graph target) {
+		this.target = target;
+	}
+	
+	// Function the machine provides that's called, null if the program defines it
+	public Builtin getBuiltin() {
+		return builtin;
+	}
+	
+	public Operand[] getArguments() {
+		if(op != InstructType.CALL && op != InstructType.PHI) {
+			throw new RuntimeException("Can only get the arguments of a function call or phi");
 		}
+		return arguments;
 	}
 	
-	public void replaceParameter(int index, String newParameter) {
-		if(!isCall() && !isVoidCall()) {
-			throw new RuntimeException("Can only replace the parameters of a function call");
+	public Block[] getSources() {
+		if(op != InstructType.PHI) {
+			throw new RuntimeException("Can only get the sources of a phi");
 		}
-		String base;
-		String parametersString;
-		if(isCall()) {
-			int start = value1.indexOf('(');
-			base = value1.substring(0, start + 1);
-			parametersString = value1.substring(start + 1, value1.length() - 1);
-		} else {
-			int start = assignee.indexOf('(');
-			base = assignee.substring(0, start + 1);
-			parametersString = assignee.substring(start + 1, assignee.length() - 1);
+		return sources;
+	}
+	
+	// Drops a phi's argument from a block that no longer leads to it
+	void removeSource(Block source) {
+		List<Operand> keptArguments = new ArrayList<>();
+		List<Block> keptSources = new ArrayList<>();
+		for(int argument=0; argument<arguments.length; ++argument) {
+			if(sources[argument] != source) {
+				keptArguments.add(arguments[argument]);
+				keptSources.add(sources[argument]);
+			}
 		}
-		String[] parameters = parametersString.split(",");
-		for(int i=0; i<index; ++i) {
-			base += parameters[i] + ",";
+		arguments = keptArguments.toArray(new Operand[0]);
+		sources = keptSources.toArray(new Block[0]);
+	}
+	
+	// The same instruction, in no block and targeted by no jump
+	Instruction copy() {
+		Instruction copy = new Instruction();
+		copy.assignee = assignee;
+		copy.value1 = value1;
+		copy.op = op;
+		copy.value2 = value2;
+		copy.location = location;
+		copy.arguments = arguments == null ? null : arguments.clone();
+		copy.sources = sources == null ? null : sources.clone();
+		copy.function = function;
+		copy.callee = callee;
+		copy.target = target;
+		copy.builtin = builtin;
+		copy.index = index;
+		return copy;
+	}
+	
+	// Variables the instruction reads, including those indexing array elements
+	List<Var> variablesRead() {
+		List<Var> read = new ArrayList<>();
+		addRead(value1, read);
+		addRead(value2, read);
+		if(arguments != null) {
+			for(Operand argument: arguments) {
+				addRead(argument, read);
+			}
 		}
-		base += newParameter;
-		for(int i=index+1; i<parameters.length; ++i) {
-			base += "," + parameters[i];
+		if(assignee instanceof ArrayElement) {
+			addRead(((ArrayElement) assignee).getIndex(), read);
 		}
-		base += ")";
-		if(isCall()) {
-			value1 = base;
-		} else {
-			assignee = base;
+		return read;
+	}
+	
+	private static void addRead(Operand operand, List<Var> read) {
+		if(operand instanceof ArrayElement) {
+			addRead(((ArrayElement) operand).getIndex(), read);
+		} else if(operand instanceof Var) {
+			read.add((Var) operand);
 		}
 	}
 	
+	// Drops the result of a call, keeping the call for what else it does
+	public void makeVoid() {
+		assignee = null;
+	}
+	
 	public Instruction getJump() {
 		return location;
 	}
@@ -237,7 +298,7 @@ public class Instruction {
 		return targetingJumps;
 	}
 	
-	public void makeCopy(String variable) {
+	public void makeCopy(Operand variable) {
 		value1 = variable;
 		op = null;
 		value2 = null;
@@ -257,12 +318,20 @@ public class Instruction {
 		instr.append(index);
 		instr.append(": ");
 		if((op != InstructType.JUMP) && (op != InstructType.RETURN)) {
-			if(assignee == null) {
+			if(isVoidCall()) {
+				appendCall(instr);
+			} else if(assignee == null) {
 				instr.append("EXIT");
 			} else {
 				instr.append(assignee);
 			}
-			if(value1 != null) {
+			if(isCall()) {
+				instr.append(" = ");
+				appendCall(instr);
+			} else if(isPhi()) {
+				instr.append(" = phi");
+				appendArguments(instr);
+			} else if(value1 != null) {
 				instr.append(" = ");
 				if(op == InstructType.NOT) {
 					instr.append(op);
@@ -293,22 +362,20 @@ public class Instruction {
 		return instr.toString();
 	}
 	
-	public static boolean isVar(String var) {
-    	if((var.length() == 0) || !Character.isLetter(var.charAt(0))) {
-    		return false;
-    	}
-    	
-    	for(int i=1; i<var.length(); ++i) {
-    		if(!Character.isLetterOrDigit(var.charAt(i)) && (var.charAt(i) != '_')) {
-    			return false;
-    		}
-    	}
-    	
-    	if(var.equals("true") || var.equals("false")) {
-    		return false;
-    	}
-    	
-    	return true;
+	// As it's written in the source, e.g. call f(a, 3)
+	private void appendCall(StringBuilder instr) {
+		instr.append("call ");
+		instr.append(function);
+		appendArguments(instr);
+	}
+	
+	private void appendArguments(StringBuilder instr) {
+		instr.append("(");
+		for(int argument=0; argument<arguments.length; ++argument) {
+			if(argument > 0) instr.append(", ");
+			instr.append(arguments[argument]);
+		}
+		instr.append(")");
 	}
 	
 }
@@ -0,0 +1,45 @@
+package ir;
+
+public final class IntConst extends Operand {
+	
+	public static final IntConst ZERO = new IntConst(0);
+	public static final IntConst ONE = new IntConst(1);
+	
+	private int value;
+	
+	private IntConst(int value) {
+		this.value = value;
+	}
+	
+	public static IntConst of(int value) {
+		if(value == 0) return ZERO;
+		if(value == 1) return ONE;
+		return new IntConst(value);
+	}
+	
+	@Override
+	public boolean isConstant() {
+		return true;
+	}
+	
+	@Override
+	public int intValue() {
+		return value;
+	}
+	
+	@Override
+	public boolean equals(Object other) {
+		return (other instanceof IntConst) && ((IntConst) other).value == value;
+	}
+	
+	@Override
+	public int hashCode() {
+		return value;
+	}
+	
+	@Override
+	public String toString() {
+		return Integer.toString(value);
+	}
+	
+}
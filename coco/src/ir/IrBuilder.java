@@ -0,0 +1,56 @@
+package ir;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Instructions of one function in the order they're generated. Each node appends its code
+// here and hands back only the operand its value ends up in, so nothing gets copied on the
+// way back up the tree.
+public class IrBuilder {
+
+	private Variables variables;
+	private List<Instruction> instructions = new ArrayList<>();
+
+	public IrBuilder(Variables variables) {
+		this.variables = variables;
+	}
+
+	public void add(Instruction instruction) {
+		instructions.add(instruction);
+	}
+
+	// Adds code built separately, for when code has to come out in a different order than it's generated
+	public void append(IrBuilder code) {
+		instructions.addAll(code.instructions);
+	}
+
+	// Empty buffer sharing this one's variables, for code that's generated before where it goes
+	public IrBuilder fork() {
+		return new IrBuilder(variables);
+	}
+
+	public int size() {
+		return instructions.size();
+	}
+
+	public Instruction get(int index) {
+		return instructions.get(index);
+	}
+
+	public Temp getTemp() {
+		return variables.getTemp();
+	}
+
+	public Var getVar(String name) {
+		return variables.get(name);
+	}
+
+	public Variables getVariables() {
+		return variables;
+	}
+
+	public List<Instruction> getInstructions() {
+		return instructions;
+	}
+
+}
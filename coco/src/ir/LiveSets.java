@@ -0,0 +1,184 @@
+package ir;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+// Variables live at each point of a block: its start, then before and after each instruction,
+// so 2 * instructions + 1 points. A variable assigned but never read counts as live just before
+// its instruction so it still gets somewhere to go. Rather than a set for every point, this
+// keeps what's live at the start and which variables start and stop being live at each point
+// after it, so its size follows how often liveness changes, not points times variables.
+public class LiveSets {
+
+	private VariableNumbering variables;
+	private int points;
+	private long[] start;
+
+	// Variables live at point p but not p - 1 are born[bornStarts[p]] up to born[bornStarts[p + 1]],
+	// and the same for died with those live at p - 1 but not p
+	private int[] born;
+	private int[] bornStarts;
+	private int[] died;
+	private int[] diedStarts;
+
+	private int[][] conflicts = null;	// worked out the first time they're asked for
+
+	// Changes recorded while the block is walked, in any order
+	private int[] changePoints = new int[16];
+	private int[] changeVariables = new int[16];
+	private boolean[] changeBirths = new boolean[16];
+	private int changes = 0;
+
+	LiveSets(VariableNumbering variables, int points) {
+		this.variables = variables;
+		this.points = points;
+	}
+
+	public VariableNumbering getVariables() {
+		return variables;
+	}
+
+	public int numPoints() {
+		return points;
+	}
+
+	public boolean isLiveAtStart(int variable) {
+		return Bits.get(start, variable);
+	}
+
+	// Smallest variable live at the start of the block that's at least from, -1 if there isn't one
+	public int nextLiveAtStart(int from) {
+		return Bits.next(start, from);
+	}
+
+	// Names of the variables live at point, worked forward from the start of the block
+	public Set<String> getLive(int point) {
+		long[] live = start.clone();
+		for(int at=1; at<=point; ++at) {
+			for(int death=diedStarts[at]; death<diedStarts[at+1]; ++death) {
+				Bits.clear(live, died[death]);
+			}
+			for(int birth=bornStarts[at]; birth<bornStarts[at+1]; ++birth) {
+				Bits.set(live, born[birth]);
+			}
+		}
+		Set<String> names = new HashSet<>();
+		for(int variable=Bits.next(live, 0); variable>=0; variable=Bits.next(live, variable+1)) {
+			names.add(variables.getName(variable));
+		}
+		return names;
+	}
+
+	public int numBorn(int point) {
+		return bornStarts[point + 1] - bornStarts[point];
+	}
+
+	public int getBorn(int point, int index) {
+		return born[bornStarts[point] + index];
+	}
+
+	public int numDied(int point) {
+		return diedStarts[point + 1] - diedStarts[point];
+	}
+
+	public int getDied(int point, int index) {
+		return died[diedStarts[point] + index];
+	}
+
+	// Variables live at the same point as variable somewhere in the block, including variable
+	// itself if it's live anywhere
+	public int[] getConflicts(int variable) {
+		if(conflicts == null) findConflicts();
+		int[] with = conflicts[variable];
+		return with == null ? new int[0] : with;
+	}
+
+	void addBirth(int point, int variable) {
+		addChange(point, variable, true);
+	}
+
+	void addDeath(int point, int variable) {
+		addChange(point, variable, false);
+	}
+
+	// Called once every change is in, with what's live at the start of the block
+	void finish(long[] start) {
+		this.start = start;
+		bornStarts = new int[points + 1];
+		diedStarts = new int[points + 1];
+		for(int change=0; change<changes; ++change) {
+			if(changeBirths[change]) ++bornStarts[changePoints[change] + 1];
+			else ++diedStarts[changePoints[change] + 1];
+		}
+		for(int point=0; point<points; ++point) {
+			bornStarts[point + 1] += bornStarts[point];
+			diedStarts[point + 1] += diedStarts[point];
+		}
+		born = new int[bornStarts[points]];
+		died = new int[diedStarts[points]];
+		int[] bornNext = Arrays.copyOf(bornStarts, points);
+		int[] diedNext = Arrays.copyOf(diedStarts, points);
+		for(int change=0; change<changes; ++change) {
+			if(changeBirths[change]) born[bornNext[changePoints[change]]++] = changeVariables[change];
+			else died[diedNext[changePoints[change]]++] = changeVariables[change];
+		}
+		changePoints = null;
+		changeVariables = null;
+		changeBirths = null;
+	}
+
+	private void addChange(int point, int variable, boolean birth) {
+		if(changes == changePoints.length) {
+			changePoints = Arrays.copyOf(changePoints, changes * 2);
+			changeVariables = Arrays.copyOf(changeVariables, changes * 2);
+			changeBirths = Arrays.copyOf(changeBirths, changes * 2);
+		}
+		changePoints[changes] = point;
+		changeVariables[changes] = variable;
+		changeBirths[changes] = birth;
+		++changes;
+	}
+
+	// Two variables are live together somewhere exactly when one is born while the other is
+	// live, or both are live at the start, so only births need looking at. Each variable gets a
+	// row of bits for what it's been seen live with, filled one way round then made symmetric.
+	private void findConflicts() {
+		long[][] rows = new long[variables.size()][];
+		long[] live = start.clone();
+		for(int variable=Bits.next(live, 0); variable>=0; variable=Bits.next(live, variable+1)) {
+			rows[variable] = live.clone();
+		}
+		for(int point=1; point<points; ++point) {
+			for(int death=diedStarts[point]; death<diedStarts[point+1]; ++death) {
+				Bits.clear(live, died[death]);
+			}
+			for(int birth=bornStarts[point]; birth<bornStarts[point+1]; ++birth) {
+				Bits.set(live, born[birth]);
+			}
+			for(int birth=bornStarts[point]; birth<bornStarts[point+1]; ++birth) {
+				if(rows[born[birth]] == null) rows[born[birth]] = Bits.of(variables.size());
+				Bits.or(rows[born[birth]], live);
+			}
+		}
+		// everything in a row was live at some point, so has a row of its own
+		for(int variable=0; variable<rows.length; ++variable) {
+			if(rows[variable] == null) continue;
+			for(int other=Bits.next(rows[variable], 0); other>=0; other=Bits.next(rows[variable], other+1)) {
+				Bits.set(rows[other], variable);
+			}
+		}
+
+		conflicts = new int[rows.length][];
+		for(int variable=0; variable<rows.length; ++variable) {
+			if(rows[variable] == null) continue;
+			int[] others = new int[Bits.count(rows[variable])];
+			int next = 0;
+			for(int other=Bits.next(rows[variable], 0); other>=0; other=Bits.next(rows[variable], other+1)) {
+				others[next++] = other;
+			}
+			conflicts[variable] = others;
+		}
+	}
+
+}
@@ -0,0 +1,49 @@
+package ir;
+
+import java.util.Arrays;
+import java.util.List;
+
+// Variables that may be read before they're next written, flowing backward as bit vectors over
+// the function's numbered variables. Blocks must have their GEN and KILL sets worked out first.
+class LiveVariables extends DataflowProblem<long[]> {
+
+	private VariableNumbering variables;
+
+	LiveVariables(VariableNumbering variables) {
+		super(false);
+		this.variables = variables;
+	}
+
+	@Override
+	public long[] initial(Block block) {
+		return Bits.of(variables.size());
+	}
+
+	@Override
+	public long[] meet(Block block, List<long[]> flowing) {
+		long[] live = Bits.of(variables.size());
+		for(long[] after: flowing) {
+			Bits.or(live, after);
+		}
+		// Other functions can read the globals this one assigns once it returns
+		if(block.successors.size() == 0 && !block.graph.getSignature().equals("main()")) {
+			Bits.or(live, variables.getGlobals(block.graph.globalsWritten()));
+		}
+		return live;
+	}
+
+	@Override
+	public long[] transfer(Block block, long[] flowing) {
+		long[] live = new long[flowing.length];
+		for(int word=0; word<live.length; ++word) {
+			live[word] = block.liveGen[word] | (flowing[word] & ~block.liveKill[word]);
+		}
+		return live;
+	}
+
+	@Override
+	public boolean same(long[] first, long[] second) {
+		return Arrays.equals(first, second);
+	}
+
+}
@@ -0,0 +1,65 @@
+package ir;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+// A natural loop: a header dominating the blocks with edges back to it, and every block that can
+// reach one of those without going through the header
+public class Loop {
+
+	private Block header;
+	private Set<Block> blocks = new LinkedHashSet<>();	// reverse postorder, the header first
+	private List<Block> latches = new ArrayList<>();
+	private Loop parent;
+	private List<Loop> children = new ArrayList<>();
+	private int depth;
+
+	Loop(Block header, Loop parent) {
+		this.header = header;
+		this.parent = parent;
+		depth = parent == null ? 1 : parent.depth + 1;
+		if(parent != null) parent.children.add(this);
+	}
+
+	public Block getHeader() {
+		return header;
+	}
+
+	public Set<Block> getBlocks() {
+		return blocks;
+	}
+
+	public boolean contains(Block block) {
+		return blocks.contains(block);
+	}
+
+	// Blocks in the loop with an edge back to the header
+	public List<Block> getLatches() {
+		return latches;
+	}
+
+	// Null if the loop isn't inside another
+	public Loop getParent() {
+		return parent;
+	}
+
+	public List<Loop> getChildren() {
+		return children;
+	}
+
+	// 1 for outermost loops
+	public int getDepth() {
+		return depth;
+	}
+
+	void addLatch(Block latch) {
+		latches.add(latch);
+	}
+
+	void addBlock(Block block) {
+		blocks.add(block);
+	}
+
+}
@@ -0,0 +1,238 @@
+package ir;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Loop-invariant code motion over a function in SSA form. Inner loops go first, each getting a
+// preheader laid out just before its header that every edge into the loop goes through, and
+// copies and operations whose operands are assigned outside the loop are moved there, so outer
+// loops can move them further out. Globals are invariant in loops that don't assign them nor call
+// a function that may, and array elements in loops that store to no array nor call a function
+// that may store to theirs, which any function may for arrays that aren't global. Operations that
+// can fail, loading an element or dividing by a variable, only move from blocks run on every way
+// out of the loop.
+class LoopInvariants {
+
+	private Graph graph;
+	private SSA ssa;
+	private Set<String> globalVariables;
+	private int hoisted = 0;
+
+	// What the loop being looked at does
+	private Loop loop;
+	private Dominators dominators;
+	private DefUse defUse;
+	private boolean calls;
+	private boolean stores;
+	private Set<String> assigned = new HashSet<>();	// globals, and global arrays calls may store to
+	private List<Block> exiting = new ArrayList<>();
+	private Set<Instruction> invariant = new HashSet<>();
+
+	LoopInvariants(Graph graph, SSA ssa, Set<String> globalVariables) {
+		this.graph = graph;
+		this.ssa = ssa;
+		this.globalVariables = globalVariables;
+		Loops.innerFirst(graph, loop -> {
+			this.loop = loop;
+			hoist();
+		});
+	}
+
+	// Instructions moved out of loops
+	int getHoisted() {
+		return hoisted;
+	}
+
+	private void hoist() {
+		dominators = graph.getDominators();
+		if(!canAddPreheader(graph, loop)) return;
+		defUse = graph.getDefUse();
+		calls = false;
+		stores = false;
+		assigned.clear();
+		exiting.clear();
+		invariant.clear();
+		for(Block block: loop.getBlocks()) {
+			for(Instruction instr: block.instructions) {
+				if((instr.isCall() || instr.isVoidCall()) && !instr.isBuiltInFunction()) {
+					calls = true;
+					assigned.addAll(graph.globalsWritten(instr));
+				}
+				if(instr.assignee instanceof ArrayElement) stores = true;
+				if(instr.assignee instanceof Var && !ssa.holdsOneValue(instr.assignee)) assigned.add(instr.assignee.toString());
+			}
+			for(Block successor: block.getSuccessors()) {
+				if(!loop.contains(successor)) {
+					exiting.add(block);
+					break;
+				}
+			}
+		}
+
+		Set<Operand> staying = new HashSet<>();
+		List<Instruction> moving = findInvariants(staying);
+		for(Operand clash=findClash(moving); clash!=null; clash=findClash(moving)) {
+			staying.add(clash);
+			moving = findInvariants(staying);
+		}
+		if(moving.isEmpty()) return;
+
+		Block preheader = new Block(globalVariables, graph);
+		for(Instruction instr: moving) {
+			Block block = instr.getBlock();
+			int at = block.instructions.indexOf(instr);
+			block.instructions.remove(at);
+			Instruction next = block.instructions.get(Math.min(at, block.instructions.size() - 1));
+			for(Instruction jump: instr.getTargetingJumps()) {
+				jump.setJump(next);
+				next.addTargetingJump(jump);
+			}
+			instr.getTargetingJumps().clear();
+			preheader.addInstruction(instr);
+		}
+		addPreheader(graph, loop, preheader);
+		hoisted += moving.size();
+	}
+
+	// Instructions that can move out of the loop, in the order they'll go in the preheader, leaving
+	// those assigning versions of the staying variables
+	private List<Instruction> findInvariants(Set<Operand> staying) {
+		invariant.clear();
+		List<Instruction> moving = new ArrayList<>();
+		for(Block block: loop.getBlocks()) {
+			int left = block.instructions.size();
+			for(Instruction instr: block.instructions) {
+				// Blocks are left with an instruction for jumps to them to go to
+				if(left > 1 && canHoist(instr) && !staying.contains(ssa.variableOf(instr.assignee))) {
+					invariant.add(instr);
+					moving.add(instr);
+					--left;
+				}
+			}
+		}
+		return moving;
+	}
+
+	// Leaving SSA form gives each version its variable's name back, so moving versions mustn't
+	// leave one read where another's been assigned since. Returns a variable that would, if any.
+	private Operand findClash(List<Instruction> moving) {
+		Map<Operand, Operand> last = new HashMap<>();	// version of each variable the preheader assigned last
+		for(Instruction instr: moving) {
+			Operand clash = findClash(instr, false, last);
+			if(clash != null) return clash;
+			last.put(ssa.variableOf(instr.assignee), instr.assignee);
+		}
+		for(Block block: loop.getBlocks()) {
+			for(Instruction instr: block.instructions) {
+				Operand clash = invariant.contains(instr) ? null : findClash(instr, true, last);
+				if(clash != null) return clash;
+			}
+		}
+		return null;
+	}
+
+	private Operand findClash(Instruction instr, boolean assigning, Map<Operand, Operand> last) {
+		List<Operand> versions = new ArrayList<>(instr.variablesRead());
+		if(assigning) versions.add(instr.assignee);
+		for(Operand version: versions) {
+			Operand variable = ssa.variableOf(version);
+			if(ssa.holdsOneValue(version) && last.containsKey(variable) && !last.get(variable).equals(version)) return variable;
+		}
+		return null;
+	}
+
+	private boolean canHoist(Instruction instr) {
+		if(!(instr.isCopy() || instr.isExpr()) || !ssa.holdsOneValue(instr.assignee)) return false;
+		if(!isInvariant(instr.value1) || !isInvariant(instr.value2)) return false;
+		boolean divides = (instr.op == InstructType.DIV || instr.op == InstructType.MOD) && !(instr.value2 instanceof IntConst && !IntConst.ZERO.equals(instr.value2));
+		boolean loads = instr.value1 instanceof ArrayElement || instr.value2 instanceof ArrayElement;
+		return !(divides || loads) || leavesThrough(instr.getBlock());
+	}
+
+	private boolean isInvariant(Operand operand) {
+		if(operand == null || operand.isConstant()) {
+			return true;
+		} else if(operand instanceof ArrayElement) {
+			String array = ((ArrayElement) operand).getArray().getName();
+			boolean stored = globalVariables.contains(array) ? assigned.contains(array) : calls;
+			return !stores && !stored && isInvariant(((ArrayElement) operand).getIndex());
+		} else if(ssa.holdsOneValue(operand)) {
+			Instruction definition = defUse.getDefinition(operand);
+			return definition == null || !loop.contains(definition.getBlock()) || invariant.contains(definition);
+		}
+		return !assigned.contains(operand.toString());
+	}
+
+	// Whether every way out of the loop goes through block
+	private boolean leavesThrough(Block block) {
+		for(Block exit: exiting) {
+			if(!dominators.dominates(block, exit)) return false;
+		}
+		return true;
+	}
+
+	// A preheader goes just before the header, so the header mustn't be fallen into from inside
+	// the loop, and phis in the header need the same argument from each edge into the loop. The
+	// function's entry has no edge into it to go through.
+	static boolean canAddPreheader(Graph graph, Loop loop) {
+		Block header = loop.getHeader();
+		if(header == graph.getEntryBlock()) return false;
+		List<Block> order = new ArrayList<>(graph.getBlocks());
+		int at = order.indexOf(header);
+		if(at > 0 && loop.contains(order.get(at - 1)) && fallsThrough(order.get(at - 1))) return false;
+		for(Instruction instr: header.instructions) {
+			if(!instr.isPhi()) break;
+			Operand entering = null;
+			for(int source=0; source<instr.sources.length; ++source) {
+				if(instr.sources[source] == null || loop.contains(instr.sources[source])) continue;
+				if(entering != null && !entering.equals(instr.arguments[source])) return false;
+				entering = instr.arguments[source];
+			}
+		}
+		return true;
+	}
+
+	private static boolean fallsThrough(Block block) {
+		if(block.instructions.isEmpty()) return true;
+		Instruction last = block.instructions.get(block.instructions.size() - 1);
+		return !last.isJump() || last.isConditionalJump() && !last.isReturn();
+	}
+
+	// Lays preheader out before the loop's header and sends the edges into the loop through it
+	static void addPreheader(Graph graph, Loop loop, Block preheader) {
+		Block header = loop.getHeader();
+		List<Block> entering = new ArrayList<>();
+		for(Block predeccessor: graph.getDominators().getPredecessors(header)) {
+			if(!loop.contains(predeccessor)) entering.add(predeccessor);
+		}
+		for(Instruction instr: header.instructions) {
+			if(!instr.isPhi()) break;
+			for(int source=1; source<entering.size(); ++source) {
+				instr.removeSource(entering.get(source));
+			}
+			for(int source=0; source<instr.sources.length; ++source) {
+				if(instr.sources[source] == entering.get(0)) instr.sources[source] = preheader;
+			}
+		}
+
+		Instruction first = header.getFirst();
+		for(Block predeccessor: entering) {
+			predeccessor.successors.remove(header);
+			header.predeccessors.remove(predeccessor);
+			predeccessor.addSuccessor(preheader);
+			Instruction last = predeccessor.instructions.isEmpty() ? null : predeccessor.instructions.get(predeccessor.instructions.size() - 1);
+			if(last != null && last.getJump() == first) {
+				first.getTargetingJumps().remove(last);
+				last.setJump(preheader.getFirst());
+				preheader.getFirst().addTargetingJump(last);
+			}
+		}
+		preheader.addSuccessor(header);
+		graph.addBlockBefore(preheader, header);
+	}
+
+}
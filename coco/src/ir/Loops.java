@@ -0,0 +1,97 @@
+package ir;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+// The natural loops of a function as a forest, each loop's parent being the innermost loop around
+// it. Loops sharing a header are one loop. Cycles not entered through a block dominating them (which
+// the front end never builds) aren't loops here.
+public class Loops {
+
+	private List<Loop> loops = new ArrayList<>();	// outer loops before those inside them
+	private List<Loop> outermost = new ArrayList<>();
+	private Map<Block, Loop> innermost = new HashMap<>();
+
+	public Loops(Dominators dominators) {
+		List<Block> order = dominators.getOrder();
+		Map<Block, Integer> number = new HashMap<>();
+		for(int block=0; block<order.size(); ++block) {
+			number.put(order.get(block), block);
+		}
+
+		// A loop's header dominates the headers of loops inside it, so comes first in reverse postorder
+		for(Block header: order) {
+			List<Block> latches = new ArrayList<>();
+			for(Block predeccessor: dominators.getPredecessors(header)) {
+				if(dominators.dominates(header, predeccessor)) latches.add(predeccessor);
+			}
+			if(latches.isEmpty()) continue;
+
+			Loop loop = new Loop(header, innermost.get(header));
+			Set<Block> body = new HashSet<>();
+			body.add(header);
+			Deque<Block> worklist = new ArrayDeque<>();
+			for(Block latch: latches) {
+				loop.addLatch(latch);
+				if(body.add(latch)) worklist.add(latch);
+			}
+			while(!worklist.isEmpty()) {
+				for(Block predeccessor: dominators.getPredecessors(worklist.remove())) {
+					if(body.add(predeccessor)) worklist.add(predeccessor);
+				}
+			}
+			List<Block> blocks = new ArrayList<>(body);
+			blocks.sort((first, second) -> number.get(first) - number.get(second));
+			for(Block block: blocks) {
+				loop.addBlock(block);
+				innermost.put(block, loop);
+			}
+			loops.add(loop);
+			if(loop.getParent() == null) outermost.add(loop);
+		}
+	}
+
+	// Every loop, outer loops before those inside them
+	public List<Loop> getLoops() {
+		return loops;
+	}
+
+	public List<Loop> getOutermost() {
+		return outermost;
+	}
+
+	// The innermost loop block is in, null if it's in none
+	public Loop getLoop(Block block) {
+		return innermost.get(block);
+	}
+
+	// How many loops block is in, 0 outside any
+	public int getDepth(Block block) {
+		Loop loop = innermost.get(block);
+		return loop == null ? 0 : loop.getDepth();
+	}
+
+	// Visits each loop of graph once, loops inside others first. Visiting may change the loops
+	// (adding a preheader does), so they're found again after each
+	static void innerFirst(Graph graph, Consumer<Loop> visit) {
+		Set<Block> done = new HashSet<>();
+		while(true) {
+			List<Loop> loops = graph.getLoops().getLoops();
+			Loop loop = null;
+			for(int inner=loops.size()-1; inner>=0 && loop == null; --inner) {
+				if(!done.contains(loops.get(inner).getHeader())) loop = loops.get(inner);
+			}
+			if(loop == null) break;
+			done.add(loop.getHeader());
+			visit.accept(loop);
+		}
+	}
+
+}
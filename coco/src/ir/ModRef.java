@@ -0,0 +1,101 @@
+package ir;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Which globals each function of a program may read (ref) and assign (mod), counting what the
+// functions it calls do. The call graph's strongly connected components are summarized callees'
+// before callers', so functions calling each other share one summary built once the components
+// they call are done. A function reading or storing to an array it was passed could be using any
+// global array, so it's taken to read and assign every global, as is one calling a function the
+// program doesn't define.
+public class ModRef {
+
+	private CallGraph calls;
+	private Set<String> globalVariables;
+	// Updated as components are optimized, while functions elsewhere may be looking their callees up
+	private Map<Graph, Set<String>> read = new ConcurrentHashMap<>();
+	private Map<Graph, Set<String>> written = new ConcurrentHashMap<>();
+
+	public ModRef(CallGraph calls) {
+		this.calls = calls;
+		List<List<Graph>> components = calls.getComponents();
+		globalVariables = components.isEmpty() ? new HashSet<>() : components.get(0).get(0).getGlobalVariables();
+		for(List<Graph> component: components) {
+			update(component);
+		}
+	}
+
+	// Globals the function may read, every one for null, the callee of a call to a function the program doesn't define
+	public Set<String> getRead(Graph function) {
+		return function == null ? globalVariables : read.get(function);
+	}
+
+	// Globals the function may assign
+	public Set<String> getWritten(Graph function) {
+		return function == null ? globalVariables : written.get(function);
+	}
+
+	// Summarizes a component of the call graph again, after optimizing it may have left it using
+	// fewer globals. The components it calls are summarized as they are.
+	public void update(List<Graph> component) {
+		Set<String> reads = new HashSet<>();
+		Set<String> writes = new HashSet<>();
+		boolean everything = false;
+		for(Graph function: component) {
+			everything = summarize(function, reads, writes) || everything;
+			for(Graph callee: calls.getCallees(function)) {
+				if(component.contains(callee)) continue;
+				reads.addAll(read.get(callee));
+				writes.addAll(written.get(callee));
+			}
+		}
+		if(everything) {
+			reads = globalVariables;
+			writes = globalVariables;
+		}
+		for(Graph function: component) {
+			read.put(function, reads);
+			written.put(function, writes);
+		}
+	}
+
+	// Adds the globals function reads and assigns itself, returning whether it could use any of them
+	private boolean summarize(Graph function, Set<String> reads, Set<String> writes) {
+		Set<String> parameters = new HashSet<>(Arrays.asList(function.getParameters()));
+		boolean everything = false;
+		for(Block block: function) {
+			for(Instruction instr: block.instructions) {
+				for(Var variable: instr.variablesRead()) {
+					if(globalVariables.contains(variable.getName())) reads.add(variable.getName());
+				}
+				List<Operand> elements = new ArrayList<>(Arrays.asList(instr.value1, instr.value2));
+				if(instr.arguments != null) elements.addAll(Arrays.asList(instr.arguments));
+				for(Operand element: elements) {
+					if(element instanceof ArrayElement) everything = addArray((ArrayElement) element, parameters, reads) || everything;
+				}
+				if(instr.assignee instanceof ArrayElement) {
+					everything = addArray((ArrayElement) instr.assignee, parameters, writes) || everything;
+				} else if(instr.assignee != null && globalVariables.contains(instr.assignee.toString())) {
+					writes.add(instr.assignee.toString());
+				}
+				if((instr.isCall() || instr.isVoidCall()) && !instr.isBuiltInFunction() && instr.getCallee() == null) everything = true;
+			}
+		}
+		return everything;
+	}
+
+	// Adds the global array an element is of, returning whether it's of an array passed in instead
+	private boolean addArray(ArrayElement element, Set<String> parameters, Set<String> arrays) {
+		String array = element.getArray().getName();
+		if(parameters.contains(array)) return true;
+		if(globalVariables.contains(array)) arrays.add(array);
+		return false;
+	}
+
+}
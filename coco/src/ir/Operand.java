@@ -0,0 +1,31 @@
+package ir;
+
+// What an instruction reads or assigns. The kinds in this package are the only ones, so passes
+// can ask what an operand is rather than working it out from its text. Operands print as they're
+// written in the IR. Constants hash by their value and variables by their number, so neither
+// needs its text made to be looked up.
+public abstract class Operand {
+
+	Operand() {
+		
+	}
+	
+	// Whether it's a variable or temp, something that holds a value between instructions
+	public boolean isVariable() {
+		return false;
+	}
+	
+	// Whether it's an int or bool known before the program runs
+	public boolean isConstant() {
+		return false;
+	}
+	
+	// Value of a constant as it's held in a register, bools being 1 or 0
+	public int intValue() {
+		throw new RuntimeException(this + " is not a constant");
+	}
+	
+	@Override
+	public abstract int hashCode();
+	
+}
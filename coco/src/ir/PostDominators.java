@@ -0,0 +1,126 @@
+package ir;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+// Post-dominator tree of the blocks that can reach an exit, found the same way as the dominator
+// tree but over the edges reversed. Functions can return from several blocks, so the root is a
+// virtual exit after all of them, which is no block.
+public class PostDominators {
+
+	private List<Block> order = new ArrayList<>();	// reverse postorder of the reversed edges, the virtual exit first
+	private Map<Block, Integer> number = new HashMap<>();
+	private List<List<Integer>> successors = new ArrayList<>();
+	private int[] ipdom;
+
+	public PostDominators(Graph graph) {
+		Map<Block, List<Block>> predecessors = new HashMap<>();
+		List<Block> exits = new ArrayList<>();
+		for(Block block: graph.getBlocks()) {
+			predecessors.put(block, new ArrayList<>());
+		}
+		Map<Block, Integer> position = graph.getPositions();
+		for(Block block: graph.getBlocks()) {
+			List<Block> next = Graph.inOrder(block.getSuccessors(), position);
+			if(next.isEmpty()) exits.add(block);
+			for(Block successor: next) {
+				predecessors.get(successor).add(block);
+			}
+		}
+
+		// Depth first from the virtual exit, along edges backwards
+		List<Block> postorder = new ArrayList<>();
+		Deque<Block> path = new ArrayDeque<>();
+		Deque<Iterator<Block>> unexplored = new ArrayDeque<>();
+		for(Block exit: exits) {
+			if(number.containsKey(exit)) continue;
+			number.put(exit, -1);
+			path.push(exit);
+			unexplored.push(predecessors.get(exit).iterator());
+			while(!path.isEmpty()) {
+				if(unexplored.peek().hasNext()) {
+					Block next = unexplored.peek().next();
+					if(!number.containsKey(next)) {
+						number.put(next, -1);
+						path.push(next);
+						unexplored.push(predecessors.get(next).iterator());
+					}
+				} else {
+					postorder.add(path.pop());
+					unexplored.pop();
+				}
+			}
+		}
+		order.add(null);
+		Collections.reverse(postorder);
+		order.addAll(postorder);
+		for(int block=1; block<order.size(); ++block) {
+			number.put(order.get(block), block);
+		}
+		for(int block=0; block<order.size(); ++block) {
+			successors.add(new ArrayList<>());
+		}
+		for(Block exit: exits) {
+			successors.get(number.get(exit)).add(0);
+		}
+		for(int block=1; block<order.size(); ++block) {
+			for(Block successor: Graph.inOrder(order.get(block).getSuccessors(), position)) {
+				if(number.containsKey(successor)) successors.get(block).add(number.get(successor));
+			}
+		}
+
+		ipdom = new int[order.size()];
+		Arrays.fill(ipdom, -1);
+		ipdom[0] = 0;
+		boolean change = true;
+		while(change) {
+			change = false;
+			for(int block=1; block<order.size(); ++block) {
+				int newIpdom = -1;
+				for(int successor: successors.get(block)) {
+					if(ipdom[successor] < 0) continue;
+					newIpdom = newIpdom < 0 ? successor : intersect(successor, newIpdom);
+				}
+				if(newIpdom != ipdom[block]) {
+					ipdom[block] = newIpdom;
+					change = true;
+				}
+			}
+		}
+	}
+
+	// Whether there's a path from block to a return, which isn't so inside a loop that never ends
+	public boolean reachesExit(Block block) {
+		return number.containsKey(block);
+	}
+
+	// Null if block leaves the function or its paths don't meet again before they do
+	public Block getImmediatePostDominator(Block block) {
+		return order.get(ipdom[number.get(block)]);
+	}
+
+	// Whether every path from other to a return goes through block, which is true of block itself
+	public boolean postDominates(Block block, Block other) {
+		int postDominator = number.get(block);
+		for(int runner = number.get(other); runner != 0; runner = ipdom[runner]) {
+			if(runner == postDominator) return true;
+		}
+		return false;
+	}
+
+	private int intersect(int finger1, int finger2) {
+		while(finger1 != finger2) {
+			while(finger1 > finger2) finger1 = ipdom[finger1];
+			while(finger2 > finger1) finger2 = ipdom[finger2];
+		}
+		return finger1;
+	}
+
+}
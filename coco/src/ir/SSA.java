@@ -0,0 +1,493 @@
+package ir;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Puts a function into SSA form, where each variable is split into versions assigned once, with
+// phis at join points choosing the version that reaches them (Cytron et al.). Phis are only
+// placed for variables read in some block before that block assigns them. Arrays aren't split.
+// A global the function uses itself is split through a variable of its own, named after it with a
+// ', which is stored to the global before each call that may read or assign it, loaded from it
+// again after each call that may assign it, and stored before leaving a function other than main,
+// so a call is a use and a def as its ModRef summary says. A version is named after its variable
+// with a dot and its number, the variable's own name standing for its value when the function starts.
+class SSA {
+
+	private Graph graph;
+	private Dominators dominators;
+	private Set<String> unsplit = new HashSet<>();
+	private Map<Operand, Operand> bases = new HashMap<>();	// version to the variable it's a version of
+	private Map<Operand, Integer> versions = new HashMap<>();
+	private Map<Operand, Deque<Operand>> current = new HashMap<>();
+	private Map<Instruction, Operand> phiVariables = new HashMap<>();
+	private Set<String> arrays = new HashSet<>();
+	private Map<Operand, Operand> promoted = new HashMap<>();	// variable of a global to the global
+	private Set<Instruction> boundaries = new HashSet<>();	// copies between the two at calls and exits
+
+	// Whether no version of a variable is live where another is, so leaving SSA form can just
+	// give them all their variable's name back. Passes that move reads of a version past an
+	// assignment of another version of the same variable have to say so.
+	private boolean conventional = true;
+
+	SSA(Graph graph, Set<String> globalVariables) {
+		this.graph = graph;
+		dominators = graph.getDominators();
+		unsplit.addAll(globalVariables);
+		for(Block block: dominators.getOrder()) {
+			for(Instruction instr: block.instructions) {
+				addArrays(instr.assignee);
+				addArrays(instr.value1);
+				addArrays(instr.value2);
+				if(instr.arguments != null) {
+					for(Operand argument: instr.arguments) {
+						addArrays(argument);
+					}
+				}
+			}
+		}
+		if(dominators.getOrder().isEmpty()) return;
+
+		promoteGlobals(globalVariables);
+		placePhis();
+		rename();
+	}
+
+	void versionsOverlap() {
+		conventional = false;
+	}
+
+	// Whether operand is a variable holding one value wherever it's read, as versions and the
+	// variables they split do, unlike globals and arrays
+	boolean holdsOneValue(Operand operand) {
+		return operand instanceof Var && !unsplit.contains(operand.toString());
+	}
+
+	// Whether variable is the only version of its variable, so reading it anywhere its assignment
+	// dominates can't clash with another version once they're all given the variable's name back.
+	// A variable never assigned is its only version, assigned when the function starts.
+	boolean isOnlyVersion(Operand variable) {
+		if(!holdsOneValue(variable)) return false;
+		Operand base = bases.get(variable);
+		return base == null ? !versions.containsKey(variable) : versions.get(base) == 1;
+	}
+
+	// The variable operand is a version of, operand itself if it isn't a version
+	Operand variableOf(Operand operand) {
+		return bases.getOrDefault(operand, operand);
+	}
+
+	// Takes the function back out of SSA form. If versions of a variable might be live at once,
+	// each phi becomes a copy from a new variable that its sources copy their arguments into
+	// just before leaving (Sreedhar et al.'s first method), which needs no edges split.
+	void undo() {
+		if(conventional) {
+			// A block holding only phis is left empty, so it's taken out and jumps to it go on to
+			// the block it falls through to
+			Set<Block> emptied = new HashSet<>();
+			for(Block block: graph.getBlocks()) {
+				int phis = numPhis(block);
+				if(phis > 0 && phis == block.instructions.size() && block != graph.getEntryBlock() && block.getSuccessors().size() == 1) {
+					emptied.add(block);
+				}
+			}
+			Map<Instruction, Instruction> retargets = new HashMap<>();
+			for(Block block: graph.getBlocks()) {
+				int phis = numPhis(block);
+				if(phis == 0) continue;
+				Block next = block;
+				while(emptied.contains(next)) {
+					next = next.getSuccessors().iterator().next();
+				}
+				if(numPhis(next) < next.instructions.size()) {
+					retargets.put(block.instructions.get(0), next.instructions.get(numPhis(next)));
+				}
+			}
+			for(Block block: graph.getBlocks()) {
+				block.instructions.subList(0, numPhis(block)).clear();
+				for(Instruction instr: block.instructions) {
+					instr.assignee = restore(instr.assignee);
+					instr.value1 = restore(instr.value1);
+					instr.value2 = restore(instr.value2);
+					if(instr.arguments != null) {
+						for(int argument=0; argument<instr.arguments.length; ++argument) {
+							instr.arguments[argument] = restore(instr.arguments[argument]);
+						}
+					}
+				}
+			}
+			retarget(retargets);
+			for(Block block: emptied) {
+				block.delete();
+			}
+			demoteGlobals();
+		} else {
+			for(Block block: graph.getBlocks()) {
+				int phis = numPhis(block);
+				for(int phi=0; phi<phis; ++phi) {
+					Instruction instr = block.instructions.get(phi);
+					// The entry's phis take the variable itself from the start of the function,
+					// so it can carry the value in from the other sources too
+					Operand copy = block == graph.getEntryBlock() ? phiVariables.get(instr) : graph.getVar(instr.assignee + "'");
+					for(int source=0; source<instr.sources.length; ++source) {
+						if(instr.sources[source] != null) {
+							addBeforeLeaving(instr.sources[source], new Instruction(copy, instr.arguments[source]));
+						}
+					}
+					instr.op = null;
+					instr.value1 = copy;
+					instr.arguments = null;
+					instr.sources = null;
+				}
+			}
+			demoteGlobals();
+		}
+	}
+
+	// Gives the globals split through variables of their own to work on them directly, in
+	// instructions that aren't copies round calls and exits, and the variables in place of the
+	// global at the calls that may read or assign it and before leaving
+	private void promoteGlobals(Set<String> globalVariables) {
+		Set<String> staying = new HashSet<>(arrays);
+		staying.addAll(Arrays.asList(graph.getParameters()));
+		Set<String> used = new LinkedHashSet<>();
+		for(Block block: graph.getBlocks()) {
+			for(Instruction instr: block.instructions) {
+				for(Var read: instr.variablesRead()) {
+					used.add(read.getName());
+				}
+				if(instr.assignee instanceof Var) used.add(instr.assignee.toString());
+				// Passed to a function, a global may be an array passed by where it is
+				if(isCall(instr) && instr.arguments != null) {
+					for(Operand argument: instr.arguments) {
+						if(argument instanceof Var) staying.add(argument.toString());
+					}
+				}
+			}
+		}
+		for(String name: used) {
+			if(globalVariables.contains(name) && !staying.contains(name)) promoted.put(graph.getVar(name + "'"), graph.getVar(name));
+		}
+		if(promoted.isEmpty()) return;
+
+		Map<Operand, Operand> locals = new HashMap<>();
+		for(Map.Entry<Operand, Operand> promotion: promoted.entrySet()) {
+			locals.put(promotion.getValue(), promotion.getKey());
+		}
+		boolean main = graph.getSignature().equals("main()");
+		for(Block block: graph.getBlocks()) {
+			for(Instruction instr: new ArrayList<>(block.instructions)) {
+				instr.assignee = rename(instr.assignee, locals);
+				instr.value1 = rename(instr.value1, locals);
+				instr.value2 = rename(instr.value2, locals);
+				if(instr.arguments != null) {
+					for(int argument=0; argument<instr.arguments.length; ++argument) {
+						instr.arguments[argument] = rename(instr.arguments[argument], locals);
+					}
+				}
+				if(isCall(instr)) {
+					Set<String> read = graph.globalsRead(instr);
+					Set<String> written = graph.globalsWritten(instr);
+					int after = block.instructions.indexOf(instr) + 1;
+					for(Map.Entry<Operand, Operand> promotion: promoted.entrySet()) {
+						String global = promotion.getValue().toString();
+						if(read.contains(global) || written.contains(global)) {
+							addBefore(instr, boundary(promotion.getValue(), promotion.getKey()));
+							++after;
+						}
+						if(written.contains(global)) {
+							Instruction load = boundary(promotion.getKey(), promotion.getValue());
+							load.setBlock(block);
+							load.setIndex(instr.getIndex());
+							block.instructions.add(after, load);
+						}
+					}
+				} else if(!main && (instr.isReturn() || instr.noOp())) {
+					for(Map.Entry<Operand, Operand> promotion: promoted.entrySet()) {
+						addBefore(instr, boundary(promotion.getValue(), promotion.getKey()));
+					}
+				}
+			}
+		}
+	}
+
+	// Gives globals their names back, dropping the copies between them and their variables that
+	// are left copying a global to itself
+	private void demoteGlobals() {
+		if(promoted.isEmpty()) return;
+		for(Block block: graph.getBlocks()) {
+			for(Instruction instr: block.instructions) {
+				instr.assignee = rename(instr.assignee, promoted);
+				instr.value1 = rename(instr.value1, promoted);
+				instr.value2 = rename(instr.value2, promoted);
+				if(instr.arguments != null) {
+					for(int argument=0; argument<instr.arguments.length; ++argument) {
+						instr.arguments[argument] = rename(instr.arguments[argument], promoted);
+					}
+				}
+			}
+		}
+		for(Block block: graph.getBlocks()) {
+			for(int i=block.instructions.size()-1; i>=0; --i) {
+				Instruction instr = block.instructions.get(i);
+				if(!boundaries.contains(instr) || !instr.assignee.equals(instr.value1)) continue;
+				// Stores come before a call or exit and loads after a call, so only stores are jumped to
+				Instruction next = i < block.instructions.size()-1 ? block.instructions.get(i + 1) : null;
+				if(next == null && instr.targeted()) continue;
+				for(Instruction jump: instr.getTargetingJumps()) {
+					jump.setJump(next);
+					next.addTargetingJump(jump);
+				}
+				block.instructions.remove(i);
+			}
+		}
+	}
+
+	private Instruction boundary(Operand assignee, Operand value) {
+		Instruction copy = new Instruction(assignee, value);
+		boundaries.add(copy);
+		return copy;
+	}
+
+	private static boolean isCall(Instruction instr) {
+		return (instr.isCall() || instr.isVoidCall()) && !instr.isBuiltInFunction();
+	}
+
+	private static Operand rename(Operand operand, Map<Operand, Operand> names) {
+		if(operand instanceof ArrayElement) {
+			ArrayElement element = (ArrayElement) operand;
+			Operand index = rename(element.getIndex(), names);
+			return index == element.getIndex() ? operand : ArrayElement.of(element.getArray(), index);
+		}
+		return operand == null ? null : names.getOrDefault(operand, operand);
+	}
+
+	// Adds an instruction just before another, the jumps to which go to it instead
+	private static void addBefore(Instruction instr, Instruction added) {
+		Block block = instr.getBlock();
+		added.setBlock(block);
+		added.setIndex(instr.getIndex());
+		block.instructions.add(block.instructions.indexOf(instr), added);
+		for(Instruction jump: instr.getTargetingJumps()) {
+			jump.setJump(added);
+			added.addTargetingJump(jump);
+		}
+		instr.getTargetingJumps().clear();
+	}
+
+	private void placePhis() {
+		Set<Operand> readElsewhere = new LinkedHashSet<>();
+		Map<Operand, Set<Block>> assignedIn = new LinkedHashMap<>();
+		for(Block block: dominators.getOrder()) {
+			Set<Operand> assignedHere = new HashSet<>();
+			for(Instruction instr: block.instructions) {
+				for(Var read: instr.variablesRead()) {
+					if(splits(read) && !assignedHere.contains(read)) readElsewhere.add(read);
+				}
+				if(splits(instr.assignee)) {
+					assignedHere.add(instr.assignee);
+					if(!assignedIn.containsKey(instr.assignee)) assignedIn.put(instr.assignee, new LinkedHashSet<>());
+					assignedIn.get(instr.assignee).add(block);
+				}
+			}
+		}
+
+		Map<Block, List<Instruction>> phis = new HashMap<>();
+		for(Operand variable: readElsewhere) {
+			if(!assignedIn.containsKey(variable)) continue;
+			Set<Block> hasPhi = new HashSet<>();
+			Set<Block> assigning = new HashSet<>(assignedIn.get(variable));
+			Deque<Block> worklist = new ArrayDeque<>(assigning);
+			while(!worklist.isEmpty()) {
+				for(Block join: dominators.getFrontier(worklist.remove())) {
+					if(hasPhi.add(join)) {
+						if(!phis.containsKey(join)) phis.put(join, new ArrayList<>());
+						phis.get(join).add(newPhi(variable, join));
+						if(assigning.add(join)) worklist.add(join);
+					}
+				}
+			}
+		}
+
+		Map<Instruction, Instruction> retargets = new HashMap<>();
+		for(Block block: dominators.getOrder()) {
+			if(!phis.containsKey(block)) continue;
+			List<Instruction> blockPhis = phis.get(block);
+			if(!block.instructions.isEmpty()) {
+				Instruction first = block.instructions.get(0);
+				for(Instruction phi: blockPhis) {
+					phi.setIndex(first.getIndex());
+				}
+				retargets.put(first, blockPhis.get(0));
+			}
+			for(Instruction phi: blockPhis) {
+				phi.setBlock(block);
+			}
+			block.instructions.addAll(0, blockPhis);
+		}
+		retarget(retargets);
+	}
+
+	private Instruction newPhi(Operand variable, Block join) {
+		List<Block> sources = new ArrayList<>(dominators.getPredecessors(join));
+		if(join == graph.getEntryBlock()) sources.add(null);
+		Operand[] arguments = new Operand[sources.size()];
+		Arrays.fill(arguments, variable);
+		Instruction phi = new Instruction(variable, arguments, sources.toArray(new Block[0]));
+		phiVariables.put(phi, variable);
+		return phi;
+	}
+
+	// Walks the dominator tree, so the versions current in a block are those its dominators last assigned
+	private void rename() {
+		Deque<Block> path = new ArrayDeque<>();
+		Deque<Integer> nextChild = new ArrayDeque<>();
+		Deque<List<Operand>> assigned = new ArrayDeque<>();
+		Block entry = dominators.getOrder().get(0);
+		path.push(entry);
+		nextChild.push(0);
+		assigned.push(rename(entry));
+		while(!path.isEmpty()) {
+			Block block = path.peek();
+			int child = nextChild.pop();
+			if(child < dominators.getChildren(block).size()) {
+				nextChild.push(child + 1);
+				Block next = dominators.getChildren(block).get(child);
+				path.push(next);
+				nextChild.push(0);
+				assigned.push(rename(next));
+			} else {
+				path.pop();
+				for(Operand variable: assigned.pop()) {
+					current.get(variable).pop();
+				}
+			}
+		}
+	}
+
+	// Renames what block reads and assigns, returning the variables it assigned
+	private List<Operand> rename(Block block) {
+		List<Operand> assigned = new ArrayList<>();
+		for(Instruction instr: block.instructions) {
+			if(!instr.isPhi()) {
+				instr.value1 = use(instr.value1);
+				instr.value2 = use(instr.value2);
+				if(instr.arguments != null) {
+					for(int argument=0; argument<instr.arguments.length; ++argument) {
+						instr.arguments[argument] = use(instr.arguments[argument]);
+					}
+				}
+				if(instr.assignee instanceof ArrayElement) instr.assignee = use(instr.assignee);
+			}
+			if(splits(instr.assignee)) {
+				Operand variable = instr.assignee;
+				instr.assignee = newVersion(variable);
+				assigned.add(variable);
+			}
+		}
+		for(Block successor: block.getSuccessors()) {
+			if(!dominators.isReachable(successor)) continue;
+			for(int phi=0; phi<numPhis(successor); ++phi) {
+				Instruction instr = successor.instructions.get(phi);
+				for(int source=0; source<instr.sources.length; ++source) {
+					if(instr.sources[source] == block) instr.arguments[source] = use(phiVariables.get(instr));
+				}
+			}
+		}
+		return assigned;
+	}
+
+	private Operand use(Operand operand) {
+		if(operand instanceof ArrayElement) {
+			ArrayElement element = (ArrayElement) operand;
+			Operand index = use(element.getIndex());
+			return index == element.getIndex() ? operand : ArrayElement.of(element.getArray(), index);
+		} else if(splits(operand) && current.containsKey(operand) && !current.get(operand).isEmpty()) {
+			return current.get(operand).peek();
+		}
+		return operand;
+	}
+
+	private Operand newVersion(Operand variable) {
+		Operand renamed = addVersion(variable);
+		if(!current.containsKey(variable)) current.put(variable, new ArrayDeque<>());
+		current.get(variable).push(renamed);
+		return renamed;
+	}
+
+	// Another version of variable, for passes adding assignments
+	Operand addVersion(Operand variable) {
+		int version = versions.getOrDefault(variable, 0) + 1;
+		versions.put(variable, version);
+		Var renamed = graph.getVar(variable + "." + version);
+		bases.put(renamed, variable);
+		return renamed;
+	}
+
+	private Operand restore(Operand operand) {
+		if(operand instanceof ArrayElement) {
+			ArrayElement element = (ArrayElement) operand;
+			Operand index = restore(element.getIndex());
+			return index == element.getIndex() ? operand : ArrayElement.of(element.getArray(), index);
+		}
+		Operand base = operand == null ? null : bases.get(operand);
+		return base == null ? operand : base;
+	}
+
+	private boolean splits(Operand operand) {
+		return operand instanceof Var && !unsplit.contains(operand.toString()) && !bases.containsKey(operand);
+	}
+
+	private void addArrays(Operand operand) {
+		if(operand instanceof ArrayElement) {
+			unsplit.add(((ArrayElement) operand).getArray().toString());
+			arrays.add(((ArrayElement) operand).getArray().toString());
+			addArrays(((ArrayElement) operand).getIndex());
+		}
+	}
+
+	static int numPhis(Block block) {
+		int phis = 0;
+		while(phis < block.instructions.size() && block.instructions.get(phis).isPhi()) {
+			++phis;
+		}
+		return phis;
+	}
+
+	// Adds instr to the end of block, but before any jump leaving it
+	static void addBeforeLeaving(Block block, Instruction instr) {
+		int end = block.instructions.size();
+		if(end > 0 && block.instructions.get(end - 1).isJump()) --end;
+		instr.setBlock(block);
+		if(end < block.instructions.size()) {
+			instr.setIndex(block.instructions.get(end).getIndex());
+		} else if(end > 0) {
+			instr.setIndex(block.instructions.get(end - 1).getIndex());
+		}
+		block.instructions.add(end, instr);
+	}
+
+	// Points jumps to the first instruction of each pair at the second
+	private void retarget(Map<Instruction, Instruction> retargets) {
+		if(retargets.isEmpty()) return;
+		for(Block block: graph.getBlocks()) {
+			for(Instruction instr: block.instructions) {
+				Instruction target = retargets.get(instr.getJump());
+				if(target != null) {
+					instr.getJump().getTargetingJumps().remove(instr);
+					instr.setJump(target);
+					target.addTargetingJump(instr);
+				}
+			}
+		}
+	}
+
+}
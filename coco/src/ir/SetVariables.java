@@ -0,0 +1,46 @@
+package ir;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+// Variables that may have been given a value, flowing forward from the parameters and, but for
+// main's, which start at 0, the globals, which hold whatever the caller left in them
+class SetVariables extends DataflowProblem<Set<String>> {
+
+	SetVariables() {
+		super(true);
+	}
+
+	@Override
+	public Set<String> initial(Block block) {
+		return new HashSet<>();
+	}
+
+	@Override
+	public Set<String> meet(Block block, List<Set<String>> flowing) {
+		Set<String> setVars = new HashSet<>();
+		for(Set<String> before: flowing) {
+			setVars.addAll(before);
+		}
+		if(block.entry) {
+			setVars.addAll(Arrays.asList(block.graph.getParameters()));
+			if(!block.graph.getSignature().equals("main()")) setVars.addAll(block.globalVariables);
+		}
+		return setVars;
+	}
+
+	@Override
+	public Set<String> transfer(Block block, Set<String> flowing) {
+		Set<String> setVars = new HashSet<>();
+		setVars.addAll(flowing);
+		for(Instruction instr: block.instructions) {
+			if(instr.assignee != null) {
+				setVars.add(instr.assignee.toString());
+			}
+		}
+		return setVars;
+	}
+
+}
@@ -0,0 +1,17 @@
+package ir;
+
+// Variable made to hold an intermediate value, named t followed by its number
+public final class Temp extends Var {
+	
+	private int number;
+	
+	Temp(int number, int id) {
+		super("t" + number, id);
+		this.number = number;
+	}
+	
+	public int getNumber() {
+		return number;
+	}
+	
+}
@@ -0,0 +1,141 @@
+package ir;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Dominator-based global value numbering over a function in SSA form. Each variable's value
+// number is the operand first found to hold its value, copies and phis whose arguments are all
+// the same taking their source's. Operations are looked up in a hash table by their operator and
+// operands' value numbers, the operands of commutative operations ordered, and scoped to the
+// dominator tree, so an operation is replaced by a copy of one computing the same value in a
+// block dominating it, which leaves copy propagation and dead code elimination the rest. Globals
+// are numbered as the versions SSA form splits them into, which calls that may assign them end.
+class ValueNumbering {
+
+	private SSA ssa;
+	private Dominators dominators;
+	private Map<Operand, Operand> numbers = new HashMap<>();
+	private Map<Operand, Integer> order = new HashMap<>();	// when each value number was first seen
+	private Map<Expression, Operand> available = new HashMap<>();
+	private int replaced = 0;
+
+	ValueNumbering(Graph graph, SSA ssa) {
+		this.ssa = ssa;
+		dominators = graph.getDominators();
+		if(dominators.getOrder().isEmpty()) return;
+
+		Deque<Block> path = new ArrayDeque<>();
+		Deque<Integer> nextChild = new ArrayDeque<>();
+		Deque<List<Expression>> added = new ArrayDeque<>();
+		Block entry = dominators.getOrder().get(0);
+		path.push(entry);
+		nextChild.push(0);
+		added.push(number(entry));
+		while(!path.isEmpty()) {
+			Block block = path.peek();
+			int child = nextChild.pop();
+			if(child < dominators.getChildren(block).size()) {
+				nextChild.push(child + 1);
+				Block next = dominators.getChildren(block).get(child);
+				path.push(next);
+				nextChild.push(0);
+				added.push(number(next));
+			} else {
+				path.pop();
+				for(Expression expression: added.pop()) {
+					available.remove(expression);
+				}
+			}
+		}
+	}
+
+	// Operations replaced by copies
+	int getReplaced() {
+		return replaced;
+	}
+
+	// Numbers what block assigns, returning the operations it made available to blocks it dominates
+	private List<Expression> number(Block block) {
+		List<Expression> added = new ArrayList<>();
+		for(Instruction instr: block.instructions) {
+			if(!ssa.holdsOneValue(instr.assignee)) continue;
+			Operand assignee = instr.assignee;
+			if(instr.isPhi()) {
+				Operand same = valueNumber(instr.arguments[0]);
+				for(Operand argument: instr.arguments) {
+					if(same == null || !same.equals(valueNumber(argument))) same = null;
+				}
+				numbers.put(assignee, same == null ? assignee : same);
+			} else if(instr.isCopy()) {
+				Operand value = valueNumber(instr.value1);
+				numbers.put(assignee, value == null ? assignee : value);
+			} else if(instr.isExpr()) {
+				Expression expression = key(instr);
+				Operand holder = expression == null ? null : available.get(expression);
+				if(holder != null) {
+					instr.makeCopy(holder);
+					numbers.put(assignee, valueNumber(holder));
+					++replaced;
+				} else {
+					numbers.put(assignee, assignee);
+					// Once out of SSA form, another version of the same variable could be assigned between here and a copy
+					if(expression != null && ssa.isOnlyVersion(assignee)) {
+						available.put(expression, assignee);
+						added.add(expression);
+					}
+				}
+			} else {
+				numbers.put(assignee, assignee);
+			}
+			order.putIfAbsent(numbers.get(assignee), order.size());
+		}
+		return added;
+	}
+
+	// Null if an operand can change between instructions, like an array element or a global SSA
+	// form leaves whole
+	private Operand valueNumber(Operand operand) {
+		if(operand instanceof IntConst || operand instanceof BoolConst) {
+			order.putIfAbsent(operand, order.size());
+			return operand;
+		} else if(ssa.holdsOneValue(operand)) {
+			// Variables are read before they're numbered coming into the function and round loops
+			Operand number = numbers.getOrDefault(operand, operand);
+			order.putIfAbsent(number, order.size());
+			return number;
+		}
+		return null;
+	}
+
+	private Expression key(Instruction instr) {
+		Operand value1 = valueNumber(instr.value1);
+		Operand value2 = instr.value2 == null ? null : valueNumber(instr.value2);
+		if(value1 == null || (instr.value2 != null && value2 == null)) return null;
+		InstructType op = instr.op;
+		if(value2 != null && order.get(value1) > order.get(value2)) {
+			switch(op) {
+			case ADD:
+			case MUL:
+			case EQUAL:
+			case NOT_EQUAL:
+			case AND:
+			case OR:
+				return Expression.of(value2, op, value1);
+			case LESS:
+				return Expression.of(value2, InstructType.GREATER, value1);
+			case GREATER:
+				return Expression.of(value2, InstructType.LESS, value1);
+			case LESS_EQUAL:
+				return Expression.of(value2, InstructType.GREATER_EQUAL, value1);
+			case GREATER_EQUAL:
+				return Expression.of(value2, InstructType.LESS_EQUAL, value1);
+			}
+		}
+		return Expression.of(value1, op, value2);
+	}
+
+}
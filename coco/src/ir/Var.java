@@ -0,0 +1,45 @@
+package ir;
+
+// A variable, named as it is in the source. Each function's variables come from its Variables,
+// which makes one for each name and numbers them densely, so they're compared and hashed by
+// that number. Temps are variables too.
+public class Var extends Operand {
+	
+	private String name;
+	private int id;
+	
+	Var(String name, int id) {
+		this.name = name;
+		this.id = id;
+	}
+	
+	public String getName() {
+		return name;
+	}
+	
+	// Number of the variable among those of its function
+	public int getId() {
+		return id;
+	}
+	
+	@Override
+	public boolean isVariable() {
+		return true;
+	}
+	
+	@Override
+	public boolean equals(Object other) {
+		return (other instanceof Var) && ((Var) other).id == id;
+	}
+	
+	@Override
+	public int hashCode() {
+		return id;
+	}
+	
+	@Override
+	public String toString() {
+		return name;
+	}
+	
+}
@@ -0,0 +1,105 @@
+package ir;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Numbers the variables of a function 0, 1, 2, ... so sets of them can be bit vectors (see
+// Bits). Globals come first, then everything instructions assign or read in the order it's
+// met. Array elements get numbers too, by name, since dead code elimination tracks them.
+public class VariableNumbering {
+
+	private Map<String, Integer> numbers = new HashMap<>();
+	private List<String> names = new ArrayList<>();
+	private int[] globalNumbers;
+	private long[] globals;
+	private Map<Set<String>, long[]> someGlobals = new IdentityHashMap<>();	// sets of them asked for before
+
+	VariableNumbering(Graph graph, Set<String> globalVariables) {
+		for(String global: globalVariables) {
+			add(global);
+		}
+		globalNumbers = new int[names.size()];
+		for(int global=0; global<globalNumbers.length; ++global) {
+			globalNumbers[global] = global;
+		}
+		for(Block block: graph.getBlocks()) {
+			for(Instruction instr: block.instructions) {
+				add(instr.assignee);
+				add(instr.value1);
+				add(instr.value2);
+				if(instr.op == InstructType.CALL) {
+					for(Operand argument: instr.arguments) {
+						add(argument);
+					}
+				}
+			}
+		}
+		globals = Bits.of(size());
+		for(int global: globalNumbers) {
+			Bits.set(globals, global);
+		}
+	}
+
+	// Number of name, -1 if it isn't one of the function's variables
+	public int number(String name) {
+		Integer number = numbers.get(name);
+		return number == null ? -1 : number;
+	}
+
+	// Number of the variable or array element operand names, -1 for constants
+	public int number(Operand operand) {
+		if(!names(operand)) return -1;
+		return number(operand.toString());
+	}
+
+	public String getName(int number) {
+		return names.get(number);
+	}
+
+	public int size() {
+		return names.size();
+	}
+
+	// Numbers of the global variables
+	public int[] getGlobalNumbers() {
+		return globalNumbers;
+	}
+
+	// Global variables as a set, not to be changed
+	public long[] getGlobals() {
+		return globals;
+	}
+
+	// Some of the global variables as a set, not to be changed
+	public long[] getGlobals(Set<String> some) {
+		long[] globals = someGlobals.get(some);
+		if(globals == null) {
+			globals = Bits.of(size());
+			for(String global: some) {
+				if(numbers.containsKey(global)) Bits.set(globals, numbers.get(global));
+			}
+			someGlobals.put(some, globals);
+		}
+		return globals;
+	}
+
+	private void add(Operand operand) {
+		if(names(operand)) add(operand.toString());
+	}
+
+	private void add(String name) {
+		if(!numbers.containsKey(name)) {
+			numbers.put(name, names.size());
+			names.add(name);
+		}
+	}
+
+	private static boolean names(Operand operand) {
+		return operand instanceof Var || operand instanceof ArrayElement;
+	}
+
+}
@@ -1,14 +1,20 @@
 package ir;
 
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 
+// The variables of one function: the names it declares, so temps don't take them, and a Var
+// for each name its code uses, numbered 0, 1, 2, ... as they're first asked for. Passes making
+// variables get them here too, so each name is one Var for the whole of the function.
 public class Variables {
 
 	Set<String> globalVariables;
 	Set<String> variables = new HashSet<>();
-	static int tempIndex = 0;
+	private Map<String, Var> vars = new HashMap<>();
+	private int tempIndex = 0;	// temps are numbered per function
 	
 	public Variables(Set<String> globalVariables) {
 		this.globalVariables = globalVariables;
@@ -22,12 +28,28 @@ public class Variables {
 		return globalVariables.contains(variable) || variables.contains(variable);
 	}
 	
-	public String getTemp() {
-		while(has("t" + tempIndex)) {
+	public Var get(String name) {
+		Var var = vars.get(name);
+		if(var == null) {
+			var = new Var(name, vars.size());
+			vars.put(name, var);
+		}
+		return var;
+	}
+	
+	// Number of variables made so far, each numbered below it
+	public int size() {
+		return vars.size();
+	}
+	
+	public Temp getTemp() {
+		// A pass may have made a variable of the name already
+		while(has("t" + tempIndex) || vars.containsKey("t" + tempIndex)) {
 			++tempIndex;
 		}
-		String temp = "t" + tempIndex;
-		variables.add(temp);
+		Temp temp = new Temp(tempIndex, vars.size());
+		vars.put(temp.getName(), temp);
+		variables.add(temp.getName());
 		return temp;
 	}
 
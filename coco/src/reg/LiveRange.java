@@ -3,22 +3,26 @@ package reg;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
-import java.util.List;
+import java.util.Map;
 
 import ir.Block;
+import ir.LiveSets;
 
 public class LiveRange {
 	
 	private String name;
+	private int number;
 	private Collection<BlockLocation> starts;
 	private Collection<Block> blocks;
 	private Collection<BlockLocation> ends;
 	private Collection<LiveRange> conflicts;
 	private Collection<LiveRange> stack;
 	private int regAlloc = 0;
+	private double spillCost = 0;
 	
-	public LiveRange(String name) {
+	public LiveRange(String name, int number) {
 		this.name = name;
+		this.number = number;
 		this.conflicts = new ArrayList<>();
 		this.starts = new ArrayList<>();
 		this.blocks = new HashSet<>();
@@ -39,15 +43,14 @@ public class LiveRange {
 		blocks.add(block);
 	}
 	
-	public void link(Collection<LiveRange> graph) {
-		for(LiveRange var: graph) {
-			for(Block block: blocks) {
-				List<Collection<String>> liveVars = block.genLiveSets();
-				for(Collection<String> varSet: liveVars) {
-					if(varSet.contains(name) && varSet.contains(var.name)) {
-						conflicts.add(var);
-						break;
-					}
+	// Conflicts once for each block this and another range are live together in, ranges being
+	// indexed by variable number
+	public void link(Map<Block, LiveSets> liveSets, LiveRange[] ranges) {
+		for(Block block: blocks) {
+			spillCost += Math.pow(10, block.getLoopDepth());
+			for(int var: liveSets.get(block).getConflicts(number)) {
+				if(ranges[var] != null) {
+					conflicts.add(ranges[var]);
 				}
 			}
 		}
@@ -57,6 +60,12 @@ public class LiveRange {
 		this.stack = stack;
 	}
 	
+	// Roughly how often the range's value would have to be loaded and stored if it were kept in
+	// memory, blocks counting ten times more for each loop they're in
+	public double spillCost() {
+		return spillCost;
+	}
+	
 	public int numConflicts() {
 		int num = 0;
 		for(LiveRange lv: conflicts) {
@@ -90,6 +99,10 @@ public class LiveRange {
 		}
 	}
 	
+	public String getName() {
+		return name;
+	}
+	
 	public int getReg() {
 		return regAlloc;
 	}
@@ -2,19 +2,18 @@ package types;
 
 public class BoolType extends Type {
 	
+	BoolType(Type element, String size) {
+		super(element, size);
+	}
+	
 	@Override
-	public String toString() {
-		return "bool";
+	protected Type newArray(String size) {
+		return new BoolType(this, size);
 	}
 	
 	@Override
-	public boolean equals(Object other) {
-		if(other instanceof BoolType) {
-			Type otherType = (Type) other;
-			return otherType.numDimensions() == numDimensions();
-		} else {
-			return false;
-		}
+	public String toString() {
+		return "bool";
 	}
 	
 	public static boolean is(Type type) {
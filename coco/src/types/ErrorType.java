@@ -4,18 +4,30 @@ import coco.Location;
 
 public class ErrorType extends Type {
 
-	private String message;
-	private String plainMessage;
+	private final String message;
+	private final String plainMessage;
+	private final String name;	// what was written where a type was expected, if anything
 	
-	public void setError(Location location, String message) {
+	public ErrorType(Location location, String message) {
+		this(location, message, null);
+	}
+	
+	public ErrorType(Location location, String message, String name) {
+		super(null, null);
 		plainMessage = message;
 		this.message = "TypeError(" + location.lineNumber() + "," + location.charPosition() + ")[" + message + "]";
+		this.name = name;
 	}
 	
 	public String getMessage() {
 		return message;
 	}
 	
+	@Override
+	public String name() {
+		return name != null ? name : toString();
+	}
+	
 	@Override
 	public String toString() {
 		return "ErrorType(" + plainMessage + ")";
@@ -2,21 +2,20 @@ package types;
 
 public class FloatType extends NumberType {
 	
+	FloatType(Type element, String size) {
+		super(element, size);
+	}
+	
 	@Override
-	public String toString() {
-		return "float";
+	protected Type newArray(String size) {
+		return new FloatType(this, size);
 	}
 	
 	@Override
-	public boolean equals(Object other) {
-		if(other instanceof FloatType) {
-			Type otherType = (Type) other;
-			return otherType.numDimensions() == numDimensions();
-		} else {
-			return false;
-		}
+	public String toString() {
+		return "float";
 	}
-
+	
 	public static boolean is(Type type) {
 		return type instanceof FloatType;
 	}
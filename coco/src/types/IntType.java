@@ -2,21 +2,20 @@ package types;
 
 public class IntType extends NumberType {
 	
+	IntType(Type element, String size) {
+		super(element, size);
+	}
+	
 	@Override
-	public String toString() {
-		return "int";
+	protected Type newArray(String size) {
+		return new IntType(this, size);
 	}
 	
 	@Override
-	public boolean equals(Object other) {
-		if(other instanceof IntType) {
-			Type otherType = (Type) other;
-			return otherType.numDimensions() == numDimensions();
-		} else {
-			return false;
-		}
+	public String toString() {
+		return "int";
 	}
-
+	
 	public static boolean is(Type type) {
 		return type instanceof IntType;
 	}
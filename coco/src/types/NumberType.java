@@ -2,6 +2,10 @@ package types;
 
 public class NumberType extends Type {
 	
+	protected NumberType(Type element, String size) {
+		super(element, size);
+	}
+	
 	public static boolean is(Type type) {
 		return type instanceof NumberType;
 	}
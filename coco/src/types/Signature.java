@@ -0,0 +1,48 @@
+package types;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// Canonical parameter and return types of a function, compared by reference
+public class Signature {
+	
+	private static final Map<TypeList, Map<Type, Signature>> signatures = new HashMap<>();
+	
+	private final TypeList parameters;
+	private final Type returnType;
+	
+	private Signature(TypeList parameters, Type returnType) {
+		this.parameters = parameters;
+		this.returnType = returnType;
+	}
+	
+	public static Signature of(TypeList parameters, Type returnType) {
+		synchronized(signatures) {
+			Map<Type, Signature> returning = signatures.get(parameters);
+			if(returning == null) {
+				returning = new HashMap<>();
+				signatures.put(parameters, returning);
+			}
+			Signature signature = returning.get(returnType.unsized());
+			if(signature == null) {
+				signature = new Signature(parameters, returnType.unsized());
+				returning.put(returnType.unsized(), signature);
+			}
+			return signature;
+		}
+	}
+	
+	public TypeList parameters() {
+		return parameters;
+	}
+	
+	public Type returnType() {
+		return returnType;
+	}
+	
+	@Override
+	public String toString() {
+		return parameters.name() + "->" + returnType.name();
+	}
+	
+}
@@ -1,69 +1,113 @@
 package types;
 
-import coco.Location;
+import java.util.HashMap;
+import java.util.Map;
+
 import coco.Token;
 
+// Types are canonical: there's one object for each base type and sequence of array extents,
+// built up with arrayOf, so they're compared by reference. Extents only matter for storage;
+// two types are equal when they have the same base and number of dimensions.
 public class Type {
 	// ERROR, VOID, BOOL, INT, FLOAT;
-	private int dimensions = 0;
+	public static final Type VOID = new VoidType();
+	public static final Type BOOL = new BoolType(null, null);
+	public static final Type INT = new IntType(null, null);
+	public static final Type FLOAT = new FloatType(null, null);
+
+	private final Type element;	// type of indexing into this one, null if it isn't an array
+	private final String size;	// extent of the outermost dimension as declared, null when not given
+	private final int dimensions;
+	private final Type unsized;	// this type with no extents given, what it's compared by
+	private final Map<String, Type> arrays = new HashMap<>();
+	
+	protected Type(Type element, String size) {
+		this.element = element;
+		this.size = size;
+		if(element == null) {
+			dimensions = 0;
+			unsized = this;
+		} else {
+			dimensions = element.dimensions + 1;
+			unsized = (size == null && element.unsized == element) ? this : element.unsized.arrayOf(null);
+		}
+	}
+	
+	// Array of size elements of this type (size null when it isn't given)
+	public Type arrayOf(String size) {
+		synchronized(Type.class) {
+			Type array = arrays.get(size);
+			if(array == null) {
+				array = newArray(size);
+				arrays.put(size, array);
+			}
+			return array;
+		}
+	}
+
+	protected Type newArray(String size) {
+		return new Type(this, size);
+	}
 	
 	public int numDimensions() {
 		return dimensions;
 	}
 	
-	public void setDimensions(int dimensions) {
-		this.dimensions = dimensions;
+	public String size() {
+		return size;
 	}
-	
-	public void decrementDimensions() throws ArrayAccessException {
-		if(dimensions == 0) {
+
+	public Type unsized() {
+		return unsized;
+	}
+
+	// Type of an element of this array
+	public Type dereference() throws ArrayAccessException {
+		if(element == null) {
 			throw new ArrayAccessException();
 		}
-		--dimensions;
+		return element;
 	}
 	
-	public static Type fromString(String str, Location location) {
-		String[] split = str.split("\\[");
-		String basicType = split[0];
-		Type type;
-		if(basicType.equals("bool")) {
-			type = new BoolType();
-		} else if(basicType.equals("int")) {
-			type = new IntType();
-		} else if(basicType.equals("float")) {
-			type = new FloatType();
-		} else if(basicType.equals("void")) {
-			type = new VoidType();
-		} else {
-			type = new ErrorType();
-			((ErrorType) type).setError(location, str + " is not a type");
+	// As it's written in a declaration, e.g. int[10][20] or int[]
+	public String name() {
+		StringBuilder name = new StringBuilder();
+		Type type = this;
+		while(type.element != null) {
+			name.append("[");
+			if(type.size != null) name.append(type.size);
+			name.append("]");
+			type = type.element;
 		}
-		type.dimensions = split.length - 1;
-		if(type instanceof VoidType && type.dimensions > 0) {
-			type = new ErrorType();
-			((ErrorType) type).setError(location, "Array access is not allowed on VOID type");
-		}
-		return type;
+		return type.toString() + name;
+	}
+	
+	@Override
+	public boolean equals(Object other) {
+		return (other instanceof Type) && ((Type) other).unsized == unsized;
+	}
+
+	@Override
+	public int hashCode() {
+		return System.identityHashCode(unsized);
 	}
 	
 	public static Type fromToken(Token token) {
 		switch(token.kind()) {
 			case VOID: 
-				return new VoidType();
+				return VOID;
 			case BOOL: 
 			case TRUE: 
 			case FALSE: 
-				return new BoolType();
+				return BOOL;
 			case INT_VAL: 
 			case INT: 
-				return new IntType();
+				return INT;
 			case FLOAT_VAL: 
 			case FLOAT: 
-				return new FloatType();
+				return FLOAT;
 			default: 
-				Type error = new ErrorType();
-				((ErrorType) error).setError(token, "Not a type");
-				return error;
+				return new ErrorType(token, "Not a type");
 		}
 	}
 }
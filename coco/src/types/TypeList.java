@@ -1,12 +1,15 @@
 package types;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import ast.Node;
 
-import coco.Location;
-
 public class TypeList {
+
+	private static final Map<List<Type>, TypeList> lists = new HashMap<>();
 	
 	private Type[] types;
 	
@@ -18,6 +21,18 @@ public class TypeList {
 		return types[index];
 	}
 	
+	// As it's written in a signature, e.g. (int[],bool)
+	public String name() {
+		StringBuilder list = new StringBuilder();
+		list.append("(");
+		for(int t=0; t<types.length; ++t) {
+			if(t > 0) list.append(",");
+			list.append(types[t].name());
+		}
+		list.append(")");
+		return list.toString();
+	}
+	
 	@Override
 	public String toString() {
 		StringBuilder list = new StringBuilder();
@@ -47,25 +62,21 @@ public class TypeList {
 		return typeList;
 	}
 	
-	public static TypeList fromString(String str, Location location) {
-		if(str.charAt(0) == '(') {
-			str = str.substring(1);
-		}
-		if(str.charAt(str.length()-1) == ')') {
-			str = str.substring(0, str.length()-1);
-		}
-		
-		String[] types = str.split(",");
-		if(str.equals("")) {
-			types = new String[0];
+	// The one list of these types, which are taken without their extents
+	public static TypeList of(List<Type> types) {
+		List<Type> unsized = new ArrayList<>();
+		for(Type type: types) {
+			unsized.add(type.unsized());
 		}
-		
-		TypeList typeList = new TypeList();
-		typeList.types = new Type[types.length];
-		for(int t=0; t<types.length; ++t) {
-			typeList.types[t] = Type.fromString(types[t], location);
+		synchronized(lists) {
+			TypeList typeList = lists.get(unsized);
+			if(typeList == null) {
+				typeList = new TypeList();
+				typeList.types = unsized.toArray(new Type[0]);
+				lists.put(unsized, typeList);
+			}
+			return typeList;
 		}
-		return typeList;
 	}
 	
 }
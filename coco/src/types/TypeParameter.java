@@ -0,0 +1,28 @@
+package types;
+
+// Stands in for any type in a builtin's signature. Nothing else is ever equal to it,
+// so calls don't resolve against signatures using it.
+public class TypeParameter extends Type {
+	
+	private final String name;
+	
+	public TypeParameter(String name) {
+		this(null, null, name);
+	}
+	
+	private TypeParameter(Type element, String size, String name) {
+		super(element, size);
+		this.name = name;
+	}
+	
+	@Override
+	protected Type newArray(String size) {
+		return new TypeParameter(this, size, name);
+	}
+	
+	@Override
+	public String toString() {
+		return name;
+	}
+	
+}
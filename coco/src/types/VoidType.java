@@ -2,6 +2,10 @@ package types;
 
 public class VoidType extends Type {
 	
+	VoidType() {
+		super(null, null);
+	}
+	
 	@Override
 	public String toString() {
 		return "void";